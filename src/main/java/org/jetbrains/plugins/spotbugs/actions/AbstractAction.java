@@ -48,10 +48,15 @@ abstract class AbstractAction extends AnAction {
 				e,
 				project,
 				toolWindow,
-				FindBugsState.get(project)
+				getState(project)
 		);
 	}
 
+	@NotNull
+	FindBugsState getState(@NotNull final Project project) {
+		return FindBugsState.get(project);
+	}
+
 	abstract void updateImpl(
 			@NotNull final AnActionEvent e,
 			@NotNull final Project project,
@@ -77,7 +82,7 @@ abstract class AbstractAction extends AnAction {
 				e,
 				project,
 				toolWindow,
-				FindBugsState.get(project)
+				getState(project)
 		);
 	}
 
@@ -32,6 +32,7 @@ import org.jetbrains.annotations.PropertyKey;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
 import org.jetbrains.plugins.spotbugs.common.FindBugsPluginConstants;
 import org.jetbrains.plugins.spotbugs.core.AbstractSettings;
+import org.jetbrains.plugins.spotbugs.core.AnalysisScheduler;
 import org.jetbrains.plugins.spotbugs.core.FindBugsState;
 import org.jetbrains.plugins.spotbugs.core.PluginSettings;
 import org.jetbrains.plugins.spotbugs.core.ProjectSettings;
@@ -43,10 +44,26 @@ import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 import javax.swing.event.HyperlinkEvent;
 import javax.swing.event.HyperlinkListener;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 abstract class AbstractAnalyzeAction extends AbstractAction {
 
+	/**
+	 * A manual analysis supersedes a running background analysis (see {@link AnalysisScheduler}),
+	 * so the analyze actions are enabled in this case.
+	 */
+	@NotNull
+	@Override
+	final FindBugsState getState(@NotNull final Project project) {
+		final FindBugsState ret = super.getState(project);
+		if (ret.isStarted() && AnalysisScheduler.getInstance(project).isBackgroundRunning()) {
+			return FindBugsState.Finished;
+		}
+		return ret;
+	}
+
 	@Override
 	final void actionPerformedImpl(
 			@NotNull final AnActionEvent e,
@@ -105,11 +122,17 @@ abstract class AbstractAnalyzeAction extends AbstractAction {
 		}
 		final Map<String, Map<String, Boolean>> byPluginId = new HashMap<>();
 		byPluginId.put(FindBugsPluginConstants.FINDBUGS_CORE_PLUGIN_ID, projectSettings.detectors);
+		final Set<String> enabledPluginIds = new HashSet<>();
+		enabledPluginIds.add(FindBugsPluginConstants.FINDBUGS_CORE_PLUGIN_ID);
 		for (final PluginSettings pluginSettings : projectSettings.plugins) {
 			byPluginId.put(pluginSettings.id, pluginSettings.detectors);
+			if (pluginSettings.enabled) {
+				enabledPluginIds.add(pluginSettings.id);
+			}
 		}
 		for (final DetectorFactory detector : DetectorFactoryCollection.instance().getFactories()) {
-			if (detector.isReportingDetector()) {
+			// plugins of other configurations may be loaded too, see PluginLoader
+			if (detector.isReportingDetector() && enabledPluginIds.contains(detector.getPlugin().getPluginId())) {
 				boolean enabled = detector.isDefaultEnabled();
 				final Map<String, Boolean> detectors = byPluginId.get(detector.getPlugin().getPluginId());
 				if (detectors != null) {
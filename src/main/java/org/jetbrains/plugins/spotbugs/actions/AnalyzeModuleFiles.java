@@ -25,6 +25,7 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.CompilerModuleExtension;
+import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.util.Consumer;
@@ -35,6 +36,8 @@ import org.jetbrains.plugins.spotbugs.core.*;
 import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class AnalyzeModuleFiles extends AbstractAnalyzeAction {
 	private final boolean includeTests;
@@ -97,12 +100,12 @@ public abstract class AnalyzeModuleFiles extends AbstractAnalyzeAction {
 
 				indicator.setText("Collecting files for analysis...");
 				final FindBugsProject findBugsProject = projects.get(module, includeTests && compilerOutputPathForTests != null);
-				final int[] count = new int[1];
-				RecurseFileCollector.addFiles(project, indicator, findBugsProject, new File(compilerOutputPath.getCanonicalPath()), count);
-
+				final List<Pair<FindBugsProject, File>> classesDirs = new ArrayList<>();
+				classesDirs.add(Pair.create(findBugsProject, new File(compilerOutputPath.getCanonicalPath())));
 				if (compilerOutputPathForTests != null) {
-					RecurseFileCollector.addFiles(project, indicator, findBugsProject, new File(compilerOutputPathForTests.getCanonicalPath()), count);
+					classesDirs.add(Pair.create(findBugsProject, new File(compilerOutputPathForTests.getCanonicalPath())));
 				}
+				RecurseFileCollector.addFiles(project, indicator, classesDirs, new int[1]);
 				return true;
 			}
 		}.start();
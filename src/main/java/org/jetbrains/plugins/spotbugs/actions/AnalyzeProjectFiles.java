@@ -111,11 +111,12 @@ public abstract class AnalyzeProjectFiles extends AbstractAnalyzeAction {
 				}
 
 				indicator.setText("Collecting files for analysis...");
-				final int[] count = new int[1];
+				final List<Pair<FindBugsProject, File>> classesDirs = new ArrayList<>();
 				for (final Pair.NonNull<Module, VirtualFile> compilerOutputPath : compilerOutputPaths) {
 					final FindBugsProject findBugsProject = projects.get(compilerOutputPath.getFirst(), includeTests);
-					RecurseFileCollector.addFiles(project, indicator, findBugsProject, new File(compilerOutputPath.getSecond().getCanonicalPath()), count);
+					classesDirs.add(Pair.create(findBugsProject, new File(compilerOutputPath.getSecond().getCanonicalPath())));
 				}
+				RecurseFileCollector.addFiles(project, indicator, classesDirs, new int[1]);
 				return true;
 			}
 		}.start();
@@ -35,6 +35,7 @@ import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.help.HelpManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
@@ -49,7 +50,6 @@ import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
-import com.intellij.psi.PsiRecursiveElementVisitor;
 import com.intellij.util.Consumer;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NonNls;
@@ -62,13 +62,21 @@ import org.jetbrains.plugins.spotbugs.core.FindBugsState;
 import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import javax.swing.Action;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public final class AnalyzeScopeFiles extends AbstractAnalyzeAction {
 
+	/**
+	 * Number of files per read action.
+	 */
+	private static final int CHUNK_SIZE = 100;
+
 	@Override
 	void updateImpl(
 			@NotNull final AnActionEvent e,
@@ -151,7 +159,10 @@ public final class AnalyzeScopeFiles extends AbstractAnalyzeAction {
 		}.start();
 	}
 
-	@SuppressFBWarnings("SIC_INNER_SHOULD_BE_STATIC_ANON")
+	/**
+	 * The files of the scope are enumerated without PSI, then grouped by module and added in chunks.
+	 * A read action is held only for one chunk, so the IDE stays responsive while a large scope is collected.
+	 */
 	private void addClasses(
 			@NotNull final ProgressIndicator indicator,
 			@NotNull final Project project,
@@ -160,24 +171,48 @@ public final class AnalyzeScopeFiles extends AbstractAnalyzeAction {
 			final boolean includeTests
 	) {
 
-		final PsiManager psiManager = PsiManager.getInstance(project);
-		psiManager.runInBatchFilesMode(() -> {
-			final int[] count = new int[1];
-			scope.accept(new PsiRecursiveElementVisitor() {
-				@Override
-				public void visitFile(final @NotNull PsiFile file) {
-					if (indicator.isCanceled() || FindBugsState.get(project).isAborting()) {
-						throw new ProcessCanceledException();
-					}
-					if (IdeaUtilImpl.SUPPORTED_FILE_TYPES.contains(file.getFileType())) {
-						final VirtualFile vf = file.getVirtualFile();
-						projects.addFile(vf, false, includeTests); // LATER: profile this
-						indicator.setText2("Files collected: " + ++count[0]);
+		final List<VirtualFile> files = new ArrayList<>();
+		scope.accept(file -> {
+			checkCanceled(indicator, project);
+			if (!file.isDirectory()) {
+				files.add(file);
+			}
+			return true;
+		});
+
+		final Map<Module, List<VirtualFile>> filesByModule = new LinkedHashMap<>();
+		for (int from = 0; from < files.size(); from += CHUNK_SIZE) {
+			checkCanceled(indicator, project);
+			final List<VirtualFile> chunk = files.subList(from, Math.min(from + CHUNK_SIZE, files.size()));
+			ReadAction.run(() -> {
+				for (final VirtualFile file : chunk) {
+					if (file.isValid() && IdeaUtilImpl.SUPPORTED_FILE_TYPES.contains(file.getFileType())) {
+						final Module module = ModuleUtilCore.findModuleForFile(file, project);
+						if (module != null) {
+							filesByModule.computeIfAbsent(module, k -> new ArrayList<>()).add(file);
+						}
 					}
 				}
 			});
-			return null;
-		});
+		}
+
+		int count = 0;
+		for (final Map.Entry<Module, List<VirtualFile>> entry : filesByModule.entrySet()) {
+			final List<VirtualFile> moduleFiles = entry.getValue();
+			for (int from = 0; from < moduleFiles.size(); from += CHUNK_SIZE) {
+				checkCanceled(indicator, project);
+				final List<VirtualFile> chunk = moduleFiles.subList(from, Math.min(from + CHUNK_SIZE, moduleFiles.size()));
+				ReadAction.run(() -> projects.addModuleFiles(entry.getKey(), chunk, includeTests));
+				count += chunk.size();
+				indicator.setText2("Files collected: " + count);
+			}
+		}
+	}
+
+	private static void checkCanceled(@NotNull final ProgressIndicator indicator, @NotNull final Project project) {
+		if (indicator.isCanceled() || FindBugsState.get(project).isAborting()) {
+			throw new ProcessCanceledException();
+		}
 	}
 
 	@NonNls
@@ -56,6 +56,11 @@ public abstract class AbstractClassAdder {
 		fileIndex = ProjectRootManager.getInstance(project).getFileIndex();
 	}
 
+	@NotNull
+	final ProjectFileIndex getFileIndex() {
+		return fileIndex;
+	}
+
 	abstract void put(@NotNull final String fqp, @NotNull final PsiElement element);
 
 	public final void addContainingClasses(@NotNull final VirtualFile virtualFile) {
@@ -216,7 +221,7 @@ public abstract class AbstractClassAdder {
 	}
 
 	@Nullable
-	private VirtualFile getCompilerOutputPath(@NotNull final VirtualFile virtualFile) {
+	final VirtualFile getCompilerOutputPath(@NotNull final VirtualFile virtualFile) {
 		final Module module = ModuleUtilCore.findModuleForFile(virtualFile, _project);
 		if (module == null) {
 			return null;
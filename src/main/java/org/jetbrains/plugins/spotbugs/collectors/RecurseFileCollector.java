@@ -25,60 +25,208 @@ import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.common.util.IdeaUtilImpl;
 import org.jetbrains.plugins.spotbugs.core.FindBugsProject;
 import org.jetbrains.plugins.spotbugs.core.FindBugsState;
 
 import java.io.File;
-import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
+ * Collects the files to analyze from compiler output directories. Every directory is listed by its own task,
+ * so the directories of all modules (and the sub directories of a large one) are walked concurrently, which matters
+ * most for network mounted build directories. The file type is looked up once per file extension, and the progress
+ * text is updated at most every {@link #PROGRESS_INTERVAL_MILLIS}.
+ * <p>
+ * The collected files are added to their {@link FindBugsProject} in the calling thread, sorted by path.
+ *
  * $Date$
  *
  * @author Andre Pfeiler<andrep@twodividedbyzero.org>
  * @version $Revision$
  * @since 0.0.1
  */
-public final class RecurseFileCollector implements FileFilter {
+public final class RecurseFileCollector {
+
+	private static final long PROGRESS_INTERVAL_MILLIS = 100;
 
 	private final Project _project;
 	private final ProgressIndicator _indicator;
-	private final FindBugsProject _findBugsProject;
 	private final int[] _count;
+	private final ExecutorService _executor;
+	private final List<Queue<String>> _collected;
+
+	/**
+	 * File extension to supported file type.
+	 */
+	private final Map<String, Boolean> _supportedExtensions;
+
+	/**
+	 * Directories which are queued or being listed.
+	 */
+	private final AtomicInteger _pending;
+	private final CountDownLatch _done;
+	private final AtomicReference<Throwable> _error;
+	private final AtomicInteger _collectedCount;
+	private final AtomicLong _lastProgress;
+
+	private volatile boolean _canceled;
 
 
 	private RecurseFileCollector(
 			@NotNull final Project project,
 			@NotNull final ProgressIndicator indicator,
-			@NotNull final FindBugsProject findBugsProject,
-			@NotNull int[] count
+			@NotNull final int[] count,
+			final int dirCount
 	) {
 		_project = project;
 		_indicator = indicator;
-		_findBugsProject = findBugsProject;
 		_count = count;
+		_executor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+				"SpotBugs File Collector", Math.max(4, Runtime.getRuntime().availableProcessors()));
+		_collected = new ArrayList<>(dirCount);
+		_supportedExtensions = new ConcurrentHashMap<>();
+		_pending = new AtomicInteger();
+		_done = new CountDownLatch(1);
+		_error = new AtomicReference<>();
+		_collectedCount = new AtomicInteger(count[0]);
+		_lastProgress = new AtomicLong();
 	}
 
-	@Override
-	public boolean accept(final File path) {
-		if (path.isDirectory()) {
-			if (_indicator.isCanceled() || FindBugsState.get(_project).isAborting()) {
-				throw new ProcessCanceledException();
+
+	private void collect(@NotNull final List<Pair<FindBugsProject, File>> classesDirs) {
+		for (int i = 0; i < classesDirs.size(); i++) {
+			_collected.add(new ConcurrentLinkedQueue<>());
+		}
+		_pending.incrementAndGet(); // released below, so the latch is not counted down before all roots are queued
+		for (int i = 0; i < classesDirs.size(); i++) {
+			final File classesDir = classesDirs.get(i).getSecond();
+			if (classesDir.isDirectory()) {
+				submit(classesDir.toPath(), _collected.get(i));
+			}
+		}
+		release();
+		try {
+			while (!_done.await(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+				checkCanceled();
 			}
-			//noinspection ResultOfMethodCallIgnored
-			path.listFiles(this);
-		} else {
-			// add the classes to the list of files to be analysed
-			final FileType type = IdeaUtilImpl.getFileTypeByName(path.getName());
-			if (IdeaUtilImpl.isValidFileType(type)) {
-				final String filePath = path.getAbsolutePath();
-				_indicator.setText2("Files collected: " + ++_count[0]);
-				_findBugsProject.addFile(filePath);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ProcessCanceledException(e);
+		} finally {
+			_canceled = true; // stops the remaining tasks if canceled or failed
+			_executor.shutdown();
+		}
+		final Throwable error = _error.get();
+		if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		} else if (error != null) {
+			throw new IllegalStateException(error);
+		}
+
+		for (int i = 0; i < classesDirs.size(); i++) {
+			final List<String> files = new ArrayList<>(_collected.get(i));
+			Collections.sort(files);
+			final FindBugsProject findBugsProject = classesDirs.get(i).getFirst();
+			for (final String filePath : files) {
+				findBugsProject.addFile(filePath);
 			}
 		}
-		return false;
+		_count[0] = _collectedCount.get();
+		_indicator.setText2("Files collected: " + _count[0]);
+	}
+
+
+	private void submit(@NotNull final Path dir, @NotNull final Queue<String> collected) {
+		_pending.incrementAndGet();
+		_executor.execute(() -> {
+			try {
+				if (!_canceled) {
+					list(dir, collected);
+				}
+			} catch (final Throwable e) {
+				_error.compareAndSet(null, e);
+				_canceled = true;
+			} finally {
+				release();
+			}
+		});
+	}
+
+
+	private void release() {
+		if (_pending.decrementAndGet() == 0) {
+			_done.countDown();
+		}
+	}
+
+
+	private void list(@NotNull final Path dir, @NotNull final Queue<String> collected) throws IOException {
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+			for (final Path path : entries) {
+				if (_canceled) {
+					return;
+				}
+				if (Files.isDirectory(path)) {
+					submit(path, collected);
+				} else if (isSupported(path.getFileName().toString())) {
+					// add the classes to the list of files to be analysed
+					collected.add(path.toAbsolutePath().toString());
+					updateProgress(_collectedCount.incrementAndGet());
+				}
+			}
+		}
+	}
+
+
+	private boolean isSupported(@NotNull final String fileName) {
+		final int dot = fileName.lastIndexOf('.');
+		if (dot < 0) {
+			return isSupportedFileType(fileName);
+		}
+		return _supportedExtensions.computeIfAbsent(fileName.substring(dot + 1), extension -> isSupportedFileType(fileName));
+	}
+
+
+	private static boolean isSupportedFileType(@NotNull final String fileName) {
+		final FileType type = IdeaUtilImpl.getFileTypeByName(fileName);
+		return IdeaUtilImpl.isValidFileType(type);
+	}
+
+
+	private void updateProgress(final int count) {
+		final long now = System.currentTimeMillis();
+		final long last = _lastProgress.get();
+		if (now - last >= PROGRESS_INTERVAL_MILLIS && _lastProgress.compareAndSet(last, now)) {
+			_indicator.setText2("Files collected: " + count);
+		}
+	}
+
+
+	private void checkCanceled() {
+		if (_indicator.isCanceled() || FindBugsState.get(_project).isAborting()) {
+			throw new ProcessCanceledException();
+		}
 	}
 
 
@@ -89,9 +237,24 @@ public final class RecurseFileCollector implements FileFilter {
 			@NotNull final File classesDir,
 			@NotNull final int[] count
 	) {
-		if (classesDir.isDirectory()) {
-			//noinspection ResultOfMethodCallIgnored
-			classesDir.listFiles(new RecurseFileCollector(project, indicator, findBugsProject, count));
+		addFiles(project, indicator, Collections.singletonList(Pair.create(findBugsProject, classesDir)), count);
+	}
+
+
+	/**
+	 * Walks all given directories concurrently.
+	 *
+	 * @param classesDirs the project to add the files to, and the directory to collect them from
+	 * @param count       number of collected files, updated when all files are collected
+	 */
+	public static void addFiles(
+			@NotNull final Project project,
+			@NotNull final ProgressIndicator indicator,
+			@NotNull final List<Pair<FindBugsProject, File>> classesDirs,
+			@NotNull final int[] count
+	) {
+		if (!classesDirs.isEmpty()) {
+			new RecurseFileCollector(project, indicator, count, classesDirs.size()).collect(classesDirs);
 		}
 	}
-}
\ No newline at end of file
+}
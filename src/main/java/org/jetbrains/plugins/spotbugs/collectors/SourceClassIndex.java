@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.collectors;
+
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.core.ClassFiles;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps a source file to the class files compiled from it, by the {@code SourceFile} attribute of the class files.
+ * javac and kotlinc write this attribute for every top level, inner, local and anonymous class (unless compiled
+ * with {@code -g:none}), so the numbering of anonymous classes does not need to be guessed from the PSI.
+ * All classes of a source file are in the output directory of its package, so only this directory is read.
+ * The attribute of a class file is cached until the class file changes or the project is closed.
+ */
+public final class SourceClassIndex {
+
+	/**
+	 * Package output directory to class file name to entry.
+	 */
+	@NotNull
+	private final Map<File, Map<String, Entry>> cache = new ConcurrentHashMap<>();
+
+	@NotNull
+	static SourceClassIndex getInstance(@NotNull final Project project) {
+		return project.getService(SourceClassIndex.class);
+	}
+
+	/**
+	 * @param packageDir output directory of a package
+	 * @return source file name without directory (f. e. {@code Foo.java}) to the sorted paths of the class files
+	 * compiled from it, or {@code null} if the directory does not exist or if the class files have no
+	 * {@code SourceFile} attribute; use the PSI to find the classes in this case
+	 */
+	@Nullable
+	Map<String, List<String>> get(@NotNull final File packageDir) {
+		final File[] classFiles = packageDir.listFiles((dir, name) -> name.endsWith(AbstractClassAdder.CLASS_FILE_SUFFIX));
+		if (classFiles == null) {
+			return null;
+		}
+		final Map<String, Entry> previous = cache.getOrDefault(packageDir, Collections.emptyMap());
+		final Map<String, Entry> entries = new HashMap<>();
+		final Map<String, List<String>> ret = new HashMap<>();
+		boolean complete = true;
+		for (final File classFile : classFiles) {
+			Entry entry = previous.get(classFile.getName());
+			if (entry == null || !entry.isValid(classFile)) {
+				entry = new Entry(classFile);
+			}
+			entries.put(classFile.getName(), entry);
+			if (entry.sourceFileName == null) {
+				complete = false;
+			} else {
+				ret.computeIfAbsent(entry.sourceFileName, k -> new ArrayList<>()).add(classFile.getPath());
+			}
+		}
+		cache.put(packageDir, entries); // drops deleted class files
+		if (!complete) {
+			return null;
+		}
+		for (final List<String> paths : ret.values()) {
+			Collections.sort(paths);
+		}
+		return ret;
+	}
+
+	private static final class Entry {
+
+		private final long lastModified;
+
+		private final long length;
+
+		@Nullable
+		private final String sourceFileName;
+
+		private Entry(@NotNull final File classFile) {
+			lastModified = classFile.lastModified();
+			length = classFile.length();
+			sourceFileName = ClassFiles.readSourceFileName(classFile);
+		}
+
+		private boolean isValid(@NotNull final File classFile) {
+			return lastModified == classFile.lastModified() && length == classFile.length();
+		}
+	}
+}
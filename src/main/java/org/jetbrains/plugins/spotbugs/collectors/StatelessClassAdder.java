@@ -22,11 +22,16 @@ package org.jetbrains.plugins.spotbugs.collectors;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.core.FindBugsProject;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -39,10 +44,58 @@ public final class StatelessClassAdder extends AbstractClassAdder {
 	private static final Logger LOGGER = Logger.getInstance(StatelessClassAdder.class.getName());
 	private final FindBugsProject _findBugsProject;
 
+	@NotNull
+	private final SourceClassIndex sourceClassIndex;
+
 
 	public StatelessClassAdder(@NotNull final FindBugsProject findBugsProject, @NotNull final Project project) {
 		super(project);
 		_findBugsProject = findBugsProject;
+		sourceClassIndex = SourceClassIndex.getInstance(project);
+	}
+
+
+	/**
+	 * Adds the class files compiled from the given source file. They are looked up by {@link SourceClassIndex},
+	 * so the PSI of the file is only needed if the class files have no source file attribute.
+	 */
+	public void addClassFiles(@NotNull final VirtualFile virtualFile) {
+		addClassFiles(virtualFile, new HashMap<>());
+	}
+
+	/**
+	 * Like {@link #addClassFiles(VirtualFile)}, but every package output directory is read only once.
+	 */
+	public void addClassFiles(@NotNull final Collection<VirtualFile> virtualFiles) {
+		final Map<File, Map<String, List<String>>> indexes = new HashMap<>();
+		for (final VirtualFile virtualFile : virtualFiles) {
+			addClassFiles(virtualFile, indexes);
+		}
+	}
+
+	private void addClassFiles(@NotNull final VirtualFile virtualFile, @NotNull final Map<File, Map<String, List<String>>> indexes) {
+		final VirtualFile compilerOutputPath = getCompilerOutputPath(virtualFile);
+		if (compilerOutputPath == null) {
+			return;
+		}
+		final VirtualFile parent = virtualFile.getParent();
+		final String packageName = parent == null ? null : getFileIndex().getPackageNameByDirectory(parent);
+		if (packageName != null) {
+			final File packageDir = new File(compilerOutputPath.getPresentableUrl(), packageName.replace('.', File.separatorChar));
+			if (!indexes.containsKey(packageDir)) {
+				indexes.put(packageDir, sourceClassIndex.get(packageDir));
+			}
+			final Map<String, List<String>> index = indexes.get(packageDir);
+			final List<String> classFiles = index == null ? null : index.get(virtualFile.getName());
+			if (classFiles != null) {
+				for (final String classFile : classFiles) {
+					_findBugsProject.addFile(classFile);
+					LOGGER.debug("adding class file: " + classFile);
+				}
+				return;
+			}
+		}
+		addContainingClasses(virtualFile); // f. e. compiled with -g:none or package does not match the directory
 	}
 
 
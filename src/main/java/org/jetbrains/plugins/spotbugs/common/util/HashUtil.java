@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.common.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content hashes, as hex strings, used to detect changed files in the caches of the plugin.
+ * <p>
+ * Note that this class is used by the analysis daemon too, so it must not depend on IntelliJ classes.
+ */
+public final class HashUtil {
+
+	private HashUtil() {
+	}
+
+	@NotNull
+	public static String sha256(@NotNull final File file) throws IOException {
+		final MessageDigest digest = newSha256();
+		try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+			final byte[] buffer = new byte[64 * 1024];
+			//noinspection StatementWithEmptyBody
+			while (in.read(buffer) != -1) {
+			}
+		}
+		return toHex(digest);
+	}
+
+	@NotNull
+	public static String sha256(@NotNull final byte[] bytes) {
+		return HexFormat.of().formatHex(newSha256().digest(bytes));
+	}
+
+	/**
+	 * Use with a {@link DigestInputStream} to hash while reading, and {@link #toHex(MessageDigest)} for the result.
+	 */
+	@NotNull
+	public static MessageDigest newSha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every JRE must support SHA-256
+		}
+	}
+
+	@NotNull
+	public static String toHex(@NotNull final MessageDigest digest) {
+		return HexFormat.of().formatHex(digest.digest());
+	}
+}
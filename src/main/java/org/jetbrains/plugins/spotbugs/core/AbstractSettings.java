@@ -66,6 +66,30 @@ public abstract class AbstractSettings {
 	@AbstractCollection(surroundWithTag = false, elementTag = "category", elementValueAttribute = "name")
 	public Set<String> hiddenBugCategory = New.asSet("NOISE");
 
+	/**
+	 * Max time in milliseconds a detector may spend on one class, 0 for no limit.
+	 * A detector which exceeds it is skipped for the rest of the analysis.
+	 *
+	 * @see DetectorBudget
+	 */
+	@Tag
+	public int detectorBudgetPerClass = 0;
+
+	/**
+	 * Max time in seconds a detector may spend on all classes of one analysis, 0 for no limit.
+	 *
+	 * @see DetectorBudget
+	 */
+	@Tag
+	public int detectorBudgetTotal = 0;
+
+	/**
+	 * Disable detectors for this workspace which exceeded the budget in several consecutive analyses,
+	 * see {@link WorkspaceSettings#detectorsOverBudget}.
+	 */
+	@Tag
+	public boolean disableDetectorsOverBudget = false;
+
 	@Tag
 	public String suppressWarningsClassName = FindBugsPluginConstants.DEFAULT_SUPPRESS_WARNINGS_CLASSNAME;
 
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.IClassScreener;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.Version;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.util.HashUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Persistent class level cache of analysis results, stored below the IDE system directory.
+ * <p>
+ * Every analyzed class file is identified by the SHA-256 hash of its bytecode. The bugs reported for
+ * a class are reused as long as the bytecode and the settings fingerprint (SpotBugs version,
+ * settings, plugins, filter files and libraries) are unchanged. Unchanged classes are skipped by
+ * the engine (see {@link IClassScreener}) and their bugs are replayed to the {@link Reporter}.
+ * <p>
+ * Note that the cache works on class level, so results of inter-class detectors for an unchanged
+ * class are not updated when only one of its dependencies changed.
+ */
+final class AnalysisCache implements IClassScreener {
+
+	private static final Logger LOGGER = Logger.getInstance(AnalysisCache.class);
+
+	/**
+	 * Upper limit for all cache entries of all projects; least recently used entries are evicted first.
+	 */
+	private static final long MAX_CACHE_SIZE = 64L * 1024 * 1024;
+
+	private static final String INDEX_SUFFIX = ".index";
+	private static final String BUGS_SUFFIX = ".xml";
+	private static final String CLASS_SUFFIX = ".class";
+	private static final Object LOCK = new Object();
+
+	@NotNull
+	private final File indexFile;
+
+	@NotNull
+	private final File bugsFile;
+
+	@NotNull
+	private final String fingerprint;
+
+	/**
+	 * Dotted class name to bytecode hash of the classes of the current analysis.
+	 */
+	@NotNull
+	private final Map<String, String> classes;
+
+	/**
+	 * Dotted class name to bytecode hash of the cached classes which are not part of the current analysis.
+	 */
+	@NotNull
+	private final Map<String, String> retained;
+
+	/**
+	 * Dotted class names of the unchanged classes of the current analysis.
+	 */
+	@NotNull
+	private final Set<String> unchanged;
+
+	/**
+	 * Resource names (like {@code java/lang/Object.class}) of {@link #unchanged}.
+	 */
+	@NotNull
+	private final Set<String> unchangedResources;
+
+	private boolean changed;
+
+	private AnalysisCache(
+			@NotNull final File indexFile,
+			@NotNull final File bugsFile,
+			@NotNull final String fingerprint
+	) {
+		this.indexFile = indexFile;
+		this.bugsFile = bugsFile;
+		this.fingerprint = fingerprint;
+		classes = new HashMap<>();
+		retained = new HashMap<>();
+		unchanged = new HashSet<>();
+		unchangedResources = new HashSet<>();
+	}
+
+	/**
+	 * @param name name of the cache entry, usually the module name
+	 * @return the cache for the given module or {@code null} if the cache is not usable
+	 */
+	@Nullable
+	static AnalysisCache open(
+			@NotNull final Project project,
+			@NotNull final String name,
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final AbstractSettings settings,
+			@NotNull final Set<String> disabledDetectors
+	) {
+		try {
+			return open(
+					getDirectory(project),
+					name,
+					findBugsProject,
+					findBugsProject.getClassFiles(),
+					createFingerprint(findBugsProject, settings, disabledDetectors)
+			);
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.warn("Could not open analysis cache " + name, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param dir         directory of the cache entries of the project
+	 * @param fingerprint hash of everything besides the bytecode which influences the result, cached bugs of another fingerprint are not reused
+	 */
+	@NotNull
+	static AnalysisCache open(
+			@NotNull final File dir,
+			@NotNull final String name,
+			@NotNull final edu.umd.cs.findbugs.Project findBugsProject,
+			@NotNull final ClassFiles classFiles,
+			@NotNull final String fingerprint
+	) throws IOException {
+		final String key = FileUtil.sanitizeFileName(name, false);
+		final AnalysisCache ret = new AnalysisCache(
+				new File(dir, key + INDEX_SUFFIX),
+				new File(dir, key + BUGS_SUFFIX),
+				fingerprint
+		);
+		ret.load(findBugsProject, classFiles);
+		return ret;
+	}
+
+	@NotNull
+	private static File getDirectory(@NotNull final Project project) {
+		return new File(new File(new File(PathManager.getSystemPath(), "spotbugs"), project.getLocationHash()), "analysis");
+	}
+
+	private void load(@NotNull final edu.umd.cs.findbugs.Project findBugsProject, @NotNull final ClassFiles classFiles) throws IOException {
+		final Map<String, String> cached = readIndex();
+		for (final String filePath : findBugsProject.getFileList()) {
+			if (!filePath.endsWith(CLASS_SUFFIX)) {
+				changed = true; // archives and directories are always analyzed
+				continue;
+			}
+			final ClassFiles.ClassFile classFile = classFiles.get(filePath);
+			final String className = classFile.name;
+			final String hash = classFile.hash;
+			classes.put(className, hash);
+			if (hash.equals(cached.remove(className))) {
+				unchanged.add(className);
+				unchangedResources.add(className.replace('.', '/') + CLASS_SUFFIX);
+			} else {
+				changed = true;
+			}
+		}
+		retained.putAll(cached);
+		if (!unchanged.isEmpty()) {
+			// mark as recently used
+			final long now = System.currentTimeMillis();
+			indexFile.setLastModified(now);
+			bugsFile.setLastModified(now);
+		}
+	}
+
+	@NotNull
+	private Map<String, String> readIndex() throws IOException {
+		final Map<String, String> ret = new HashMap<>();
+		if (!indexFile.isFile() || !bugsFile.isFile()) {
+			return ret;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+			if (!fingerprint.equals(reader.readLine())) {
+				return ret; // settings, plugins or SpotBugs version changed
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final int separator = line.indexOf(' ');
+				if (separator > 0) {
+					ret.put(line.substring(0, separator), line.substring(separator + 1));
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return {@code true} if at least one class must be analyzed by the engine
+	 */
+	boolean hasChangedClasses() {
+		return changed;
+	}
+
+	/**
+	 * Reports the cached bugs of all unchanged classes to the given reporter.
+	 */
+	void replay(@NotNull final BugReporter reporter) {
+		if (unchanged.isEmpty()) {
+			return;
+		}
+		for (final BugInstance bug : readBugs().getCollection()) {
+			if (unchanged.contains(bug.getPrimaryClass().getClassName())) {
+				reporter.reportBug(bug);
+			}
+		}
+	}
+
+	/**
+	 * Updates the cache with the result of the current analysis.
+	 *
+	 * @param bugCollection bugs of the current analysis including the replayed ones
+	 */
+	void store(@NotNull final SortedBugCollection bugCollection) {
+		final SortedBugCollection bugs = new SortedBugCollection();
+		if (!retained.isEmpty()) {
+			for (final BugInstance bug : readBugs().getCollection()) {
+				if (retained.containsKey(bug.getPrimaryClass().getClassName())) {
+					bugs.add(bug, false);
+				}
+			}
+		}
+		for (final BugInstance bug : bugCollection.getCollection()) {
+			if (classes.containsKey(bug.getPrimaryClass().getClassName())) {
+				bugs.add(bug, false);
+			}
+		}
+
+		synchronized (LOCK) {
+			try {
+				final File dir = indexFile.getParentFile();
+				if (!dir.isDirectory() && !dir.mkdirs()) {
+					throw new IOException("Could not create directory " + dir);
+				}
+				final File tmpBugs = new File(dir, bugsFile.getName() + ".tmp");
+				bugs.writeXML(tmpBugs);
+				Files.move(tmpBugs.toPath(), bugsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+				final File tmpIndex = new File(dir, indexFile.getName() + ".tmp");
+				try (BufferedWriter writer = Files.newBufferedWriter(tmpIndex.toPath(), StandardCharsets.UTF_8)) {
+					writer.write(fingerprint);
+					writer.newLine();
+					writeIndex(writer, retained);
+					writeIndex(writer, classes);
+				}
+				Files.move(tmpIndex.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (final IOException e) {
+				LOGGER.warn("Could not write analysis cache " + indexFile, e);
+				FileUtil.delete(indexFile);
+			}
+			evict(indexFile.getParentFile().getParentFile());
+		}
+	}
+
+	private static void writeIndex(@NotNull final BufferedWriter writer, @NotNull final Map<String, String> index) throws IOException {
+		for (final Map.Entry<String, String> entry : index.entrySet()) {
+			writer.write(entry.getKey());
+			writer.write(' ');
+			writer.write(entry.getValue());
+			writer.newLine();
+		}
+	}
+
+	@NotNull
+	private SortedBugCollection readBugs() {
+		final SortedBugCollection ret = new SortedBugCollection();
+		try {
+			ret.readXML(bugsFile);
+		} catch (final Exception e) {
+			LOGGER.warn("Could not read analysis cache " + bugsFile, e);
+			// classes are analyzed again next time
+			FileUtil.delete(indexFile);
+		}
+		return ret;
+	}
+
+	/**
+	 * Deletes the least recently used entries of all projects until the cache fits into {@link #MAX_CACHE_SIZE}.
+	 */
+	private static void evict(@NotNull final File root) {
+		final List<File> files = new ArrayList<>();
+		final File[] projectDirs = root.listFiles(File::isDirectory);
+		if (projectDirs != null) {
+			for (final File projectDir : projectDirs) {
+				final File[] entries = new File(projectDir, "analysis").listFiles(File::isFile);
+				if (entries != null) {
+					files.addAll(Arrays.asList(entries));
+				}
+			}
+		}
+		long size = 0;
+		for (final File file : files) {
+			size += file.length();
+		}
+		if (size <= MAX_CACHE_SIZE) {
+			return;
+		}
+		files.sort(Comparator.comparingLong(File::lastModified));
+		for (final File file : files) {
+			if (size <= MAX_CACHE_SIZE) {
+				break;
+			}
+			final long length = file.length();
+			if (FileUtil.delete(file)) {
+				size -= length;
+			}
+		}
+	}
+
+	@NotNull
+	private static String createFingerprint(
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final AbstractSettings settings,
+			@NotNull final Set<String> disabledDetectors
+	) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(Version.VERSION_STRING).append('\n');
+		sb.append(settings.analysisEffort).append('\n');
+		sb.append(settings.minRank).append('\n');
+		sb.append(settings.minPriority).append('\n');
+		sb.append(settings.suppressWarningsClassName).append('\n');
+		sb.append(new TreeSet<>(settings.hiddenBugCategory)).append('\n');
+		sb.append(new TreeMap<>(settings.detectors)).append('\n');
+		sb.append(new TreeSet<>(disabledDetectors)).append('\n');
+		for (final PluginSettings plugin : new TreeSet<>(settings.plugins)) {
+			sb.append(plugin.id).append(' ').append(plugin.enabled).append(' ').append(new TreeMap<>(plugin.detectors)).append('\n');
+		}
+		final Set<String> plugins = new TreeSet<>();
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			plugins.add(plugin.getPluginId() + ' ' + plugin.getVersion() + ' ' + plugin.isGloballyEnabled());
+		}
+		sb.append(plugins).append('\n');
+		appendFiles(sb, settings.includeFilterFiles);
+		appendFiles(sb, settings.excludeFilterFiles);
+		appendFiles(sb, settings.excludeBugsFiles);
+		for (final String entry : findBugsProject.getAuxClasspathEntryList()) {
+			final File file = new File(entry);
+			// output directories of other modules change all the time
+			if (file.isFile()) {
+				appendFile(sb, file);
+			}
+		}
+		return HashUtil.sha256(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void appendFiles(@NotNull final StringBuilder sb, @NotNull final Map<String, Boolean> files) {
+		for (final Map.Entry<String, Boolean> entry : new TreeMap<>(files).entrySet()) {
+			if (entry.getValue()) {
+				appendFile(sb, new File(entry.getKey()));
+			}
+		}
+	}
+
+	private static void appendFile(@NotNull final StringBuilder sb, @NotNull final File file) {
+		sb.append(file.getPath()).append(' ').append(file.lastModified()).append(' ').append(file.length()).append('\n');
+	}
+
+	/**
+	 * @return resource names of the unchanged classes, which are not analyzed again
+	 */
+	@NotNull
+	Set<String> getUnchangedResources() {
+		return unchangedResources;
+	}
+
+	@Override
+	public boolean matches(final String fileName) {
+		return !unchangedResources.contains(fileName);
+	}
+
+	@Override
+	public boolean vacuous() {
+		return unchangedResources.isEmpty();
+	}
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import org.dom4j.DocumentException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.daemon.AnalysisDaemon;
+import org.jetbrains.plugins.spotbugs.daemon.DaemonProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection to one {@link AnalysisDaemon} process. Instances are pooled by {@link AnalysisDaemonService}
+ * (per max heap size and plugins).
+ */
+final class AnalysisDaemonClient {
+
+	private static final Logger LOGGER = Logger.getInstance(AnalysisDaemonClient.class);
+
+	@NotNull
+	private final Process process;
+
+	@NotNull
+	private final DataOutputStream out;
+
+	@NotNull
+	private final DataInputStream in;
+
+	private final int maxHeap;
+
+	/**
+	 * Plugins loaded by the daemon, see {@link #getPluginsKey(DaemonProtocol.Request)}.
+	 */
+	@NotNull
+	private final String plugins;
+
+	private AnalysisDaemonClient(@NotNull final Process process, final int maxHeap, @NotNull final String plugins) {
+		this.process = process;
+		this.maxHeap = maxHeap;
+		this.plugins = plugins;
+		out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+		in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+	}
+
+	/**
+	 * @param maxHeap max heap size of the daemon JVM in megabytes
+	 * @param plugins plugins of the requests which are analyzed by the daemon, see {@link #getPluginsKey(DaemonProtocol.Request)}
+	 */
+	@NotNull
+	static AnalysisDaemonClient start(final int maxHeap, @NotNull final String plugins) throws IOException {
+		final List<String> command = new ArrayList<>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		command.add("-Xmx" + maxHeap + "m");
+		command.add("-Djava.awt.headless=true");
+		command.add("-cp");
+		command.add(String.join(File.pathSeparator, buildClasspath()));
+		command.add(AnalysisDaemon.class.getName());
+		LOGGER.info("Starting SpotBugs daemon with " + maxHeap + "m heap");
+		final Process process = new ProcessBuilder(command)
+				.redirectError(ProcessBuilder.Redirect.appendTo(new File(PathManager.getLogPath(), "spotbugs-daemon.log")))
+				.start();
+		return new AnalysisDaemonClient(process, maxHeap, plugins);
+	}
+
+	/**
+	 * The plugin jar, SpotBugs and all its dependencies are in the lib directory of this plugin.
+	 * slf4j is provided by the IDE.
+	 */
+	@NotNull
+	private static Set<String> buildClasspath() {
+		final Set<String> ret = new LinkedHashSet<>();
+		for (final Class<?> clazz : new Class<?>[]{AnalysisDaemon.class, FindBugs2.class}) {
+			final String path = PathManager.getJarPathForClass(clazz);
+			if (path == null) {
+				continue;
+			}
+			ret.add(path);
+			final File dir = new File(path).getParentFile();
+			final File[] jars = path.endsWith(".jar") && dir != null ? dir.listFiles((d, name) -> name.endsWith(".jar")) : null;
+			if (jars != null) {
+				for (final File jar : jars) {
+					ret.add(jar.getPath());
+				}
+			}
+		}
+		try {
+			final String slf4j = PathManager.getJarPathForClass(Class.forName("org.slf4j.LoggerFactory"));
+			if (slf4j != null) {
+				ret.add(slf4j);
+			}
+		} catch (final ClassNotFoundException e) {
+			LOGGER.debug("slf4j not found", e);
+		}
+		return ret;
+	}
+
+	boolean isAlive() {
+		return process.isAlive();
+	}
+
+	int getMaxHeap() {
+		return maxHeap;
+	}
+
+	@NotNull
+	String getPlugins() {
+		return plugins;
+	}
+
+	/**
+	 * A daemon keeps the plugins it has loaded until it exits, so it must not be reused when a plugin jar
+	 * is added, removed or replaced (f. e. a new version of a plugin at the same location).
+	 *
+	 * @return the plugin URLs of the request with modification time and size of the plugin jars
+	 */
+	@NotNull
+	static String getPluginsKey(@NotNull final DaemonProtocol.Request request) {
+		final StringBuilder ret = new StringBuilder();
+		for (final String pluginUrl : request.pluginUrls) {
+			ret.append(pluginUrl);
+			try {
+				final File file = new File(new URL(pluginUrl).toURI());
+				ret.append('@').append(file.lastModified()).append(':').append(file.length());
+			} catch (final MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+				LOGGER.debug("Plugin is not a local file: " + pluginUrl, e);
+			}
+			ret.append('\n');
+		}
+		return ret.toString();
+	}
+
+	@NotNull
+	static DaemonProtocol.Request createRequest(
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final UserPreferences userPrefs,
+			@NotNull final AbstractSettings settings,
+			@NotNull final Collection<String> skippedClasses,
+			@NotNull final List<String> priorityClasses,
+			final int shard,
+			final int shardCount
+	) throws IOException {
+
+		final List<String> pluginUrls = new ArrayList<>();
+		final Map<String, Boolean> pluginStatus = new LinkedHashMap<>();
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			if (!plugin.isCorePlugin()) {
+				pluginUrls.add(plugin.getPluginLoader().getURL().toExternalForm());
+				pluginStatus.put(plugin.getPluginId(), findBugsProject.getPluginStatus(plugin));
+			}
+		}
+		final ByteArrayOutputStream prefs = new ByteArrayOutputStream();
+		userPrefs.write(prefs);
+
+		return new DaemonProtocol.Request(
+				findBugsProject.getFileList(),
+				findBugsProject.getAuxClasspathEntryList(),
+				findBugsProject.getSourceDirList(),
+				new ArrayList<>(skippedClasses),
+				shard,
+				shardCount,
+				pluginUrls,
+				pluginStatus,
+				prefs.toByteArray(),
+				settings.detectorBudgetPerClass,
+				TimeUnit.SECONDS.toMillis(settings.detectorBudgetTotal),
+				priorityClasses
+		);
+	}
+
+	/**
+	 * Analyzes the given request in the daemon. Progress and bugs are forwarded to the given reporter
+	 * while the daemon is running, so the behavior is the same as for an in-process analysis.
+	 * The reporter is locked while a message is forwarded, so several clients can share one reporter.
+	 *
+	 * @param forwardProgress {@code false} to forward only bugs and class names, used for all but the first shard
+	 * @param seen            bugs which are already reported by other shards, or {@code null} if not sharded
+	 * @return number of analyzed classes
+	 */
+	int analyze(
+			@NotNull final DaemonProtocol.Request request,
+			@NotNull final Reporter reporter,
+			final boolean forwardProgress,
+			@Nullable final Set<BugInstance> seen
+	) throws IOException {
+
+		out.writeUTF(DaemonProtocol.ANALYZE);
+		request.write(out);
+		out.flush();
+
+		boolean cancelSent = false;
+		while (true) {
+			final String type = in.readUTF();
+			switch (type) {
+				case DaemonProtocol.REPORT_NUMBER_OF_ARCHIVES:
+				case DaemonProtocol.START_ANALYSIS:
+					final int count = in.readInt();
+					if (forwardProgress) {
+						synchronized (reporter) {
+							if (DaemonProtocol.START_ANALYSIS.equals(type)) {
+								reporter.startAnalysis(count);
+							} else {
+								reporter.reportNumberOfArchives(count);
+							}
+						}
+					}
+					break;
+				case DaemonProtocol.FINISH_ARCHIVE:
+				case DaemonProtocol.FINISH_CLASS:
+				case DaemonProtocol.FINISH_PER_CLASS_ANALYSIS:
+					if (forwardProgress) {
+						synchronized (reporter) {
+							if (DaemonProtocol.FINISH_ARCHIVE.equals(type)) {
+								reporter.finishArchive();
+							} else if (DaemonProtocol.FINISH_CLASS.equals(type)) {
+								reporter.finishClass();
+							} else {
+								reporter.finishPerClassAnalysis();
+							}
+						}
+					}
+					break;
+				case DaemonProtocol.PREDICT_PASS_COUNT:
+					final int[] classesPerPass = new int[in.readInt()];
+					for (int i = 0; i < classesPerPass.length; i++) {
+						classesPerPass[i] = in.readInt();
+					}
+					if (forwardProgress) {
+						synchronized (reporter) {
+							reporter.predictPassCount(classesPerPass);
+						}
+					}
+					break;
+				case DaemonProtocol.OBSERVE_CLASSES:
+					final List<String> classNames = DaemonProtocol.readStrings(in);
+					synchronized (reporter) {
+						for (final String className : classNames) {
+							reporter.observeClass(DescriptorFactory.createClassDescriptorFromDottedClassName(className));
+						}
+					}
+					break;
+				case DaemonProtocol.BUGS:
+					reportBugs(DaemonProtocol.readBytes(in), reporter, seen);
+					break;
+				case DaemonProtocol.PROFILE:
+					final int profiledClasses = in.readInt();
+					synchronized (reporter) {
+						for (int i = 0; i < profiledClasses; i++) {
+							reporter.getTimings().addDetector(in.readUTF(), in.readLong(), in.readInt());
+						}
+					}
+					break;
+				case DaemonProtocol.OVER_BUDGET:
+					final List<String> overBudget = DaemonProtocol.readStrings(in);
+					synchronized (reporter) {
+						reporter.getTimings().addOverBudget(overBudget);
+					}
+					break;
+				case DaemonProtocol.FINISHED:
+					return in.readInt();
+				case DaemonProtocol.ERROR:
+					throw new IOException("SpotBugs daemon failed: " + new String(DaemonProtocol.readBytes(in), StandardCharsets.UTF_8));
+				default:
+					throw new IOException("Unknown message " + type);
+			}
+			if (!cancelSent) {
+				synchronized (reporter) {
+					cancelSent = reporter.isCanceled();
+				}
+				if (cancelSent) {
+					out.writeUTF(DaemonProtocol.CANCEL);
+					out.flush();
+				}
+			}
+		}
+	}
+
+	private static void reportBugs(
+			@NotNull final byte[] xml,
+			@NotNull final Reporter reporter,
+			@Nullable final Set<BugInstance> seen
+	) throws IOException {
+		final SortedBugCollection bugs = new SortedBugCollection(); // readXML overwrites the project
+		try {
+			bugs.readXML(new ByteArrayInputStream(xml));
+		} catch (final DocumentException e) {
+			throw new IOException("Invalid bugs from SpotBugs daemon", e);
+		}
+		synchronized (reporter) {
+			for (final BugInstance bug : bugs.getCollection()) {
+				if (seen == null || seen.add(bug)) {
+					reporter.reportBug(bug);
+				}
+			}
+		}
+	}
+
+	void shutdown() {
+		try {
+			out.writeUTF(DaemonProtocol.SHUTDOWN);
+			out.flush();
+		} catch (final IOException ignore) {
+			// already gone
+		}
+		process.destroy();
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.daemon.DaemonProtocol;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps the idle {@link AnalysisDaemonClient analysis daemons} of a project alive between two analyses,
+ * so loaded plugins and the JIT compiled engine are reused. The daemons are stopped when the project is closed.
+ */
+public final class AnalysisDaemonService implements Disposable {
+
+	@NotNull
+	private final List<AnalysisDaemonClient> idle = new ArrayList<>();
+
+	private boolean disposed;
+
+	@NotNull
+	static AnalysisDaemonService getInstance(@NotNull final Project project) {
+		return project.getService(AnalysisDaemonService.class);
+	}
+
+	/**
+	 * Analyzes the given project in one daemon, see {@link AnalysisDaemonClient#analyze}.
+	 */
+	void analyze(
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final UserPreferences userPrefs,
+			@NotNull final AbstractSettings settings,
+			@NotNull final Collection<String> skippedClasses,
+			@NotNull final List<String> priorityClasses,
+			@NotNull final Reporter reporter,
+			final int maxHeap
+	) throws IOException {
+
+		final DaemonProtocol.Request request = AnalysisDaemonClient.createRequest(findBugsProject, userPrefs, settings, skippedClasses, priorityClasses, 0, 1);
+		final int numClasses = analyzeShard(request, reporter, maxHeap, true, null);
+		finish(reporter, numClasses);
+	}
+
+	/**
+	 * Splits the classes of the given project into {@code shardCount} shards and analyzes every shard in its own
+	 * daemon concurrently. Every daemon gets the complete file list, so the class hierarchy and all references
+	 * can be resolved, but analyzes only the classes of its shard (nested classes stay with their top level class).
+	 * The bugs of all shards are reported to the given reporter, duplicates are dropped.
+	 * <p>
+	 * Detectors which collect facts about the application classes in the first pass and use them
+	 * while analyzing other classes see only the classes of their own shard, so they lose precision:
+	 * <ul>
+	 * <li>interprocedural nullness: NoteUnconditionalParamDerefs, NoteNonnullReturnValues, FindNullDeref
+	 * (NP_NULL_PARAM_DEREF, NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE across shards are missed)</li>
+	 * <li>field usage: FieldItemSummary, UnreadFields, MutableStaticFields (URF, UUF, UWF, MS warnings
+	 * for fields which are read or written only in another shard are false positives)</li>
+	 * <li>return value checks: NoteCheckReturnValueAnnotations, CalledMethods, MethodReturnCheck</li>
+	 * <li>resource tracking: BuildObligationPolicyDatabase, FindUnsatisfiedObligation (OBL, OS, ODR)</li>
+	 * <li>type qualifiers: NoteDirectlyRelevantTypeQualifiers, CheckTypeQualifiers</li>
+	 * <li>application wide checks: Naming (NM), FindHEmismatch (HE), UncallableMethodOfAnonymousClass (UMAC)</li>
+	 * </ul>
+	 * Intraprocedural detectors give the same results as an unsharded analysis.
+	 */
+	void analyzeSharded(
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final UserPreferences userPrefs,
+			@NotNull final AbstractSettings settings,
+			@NotNull final Collection<String> skippedClasses,
+			@NotNull final List<String> priorityClasses,
+			@NotNull final Reporter reporter,
+			final int maxHeap,
+			final int shardCount
+	) throws IOException, InterruptedException {
+
+		final Set<BugInstance> seen = new TreeSet<>(SortedBugCollection.BugInstanceComparator.instance);
+		final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("SpotBugs Analysis Shards", shardCount);
+		try {
+			final List<Future<Integer>> futures = new ArrayList<>(shardCount);
+			for (int shard = 0; shard < shardCount; shard++) {
+				final DaemonProtocol.Request request = AnalysisDaemonClient.createRequest(findBugsProject, userPrefs, settings, skippedClasses, priorityClasses, shard, shardCount);
+				final boolean forwardProgress = shard == 0;
+				futures.add(executor.submit(() -> analyzeShard(request, reporter, maxHeap, forwardProgress, seen)));
+			}
+			int numClasses = 0;
+			for (final Future<Integer> future : futures) {
+				try {
+					numClasses += future.get();
+				} catch (final ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			finish(reporter, numClasses);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void finish(@NotNull final Reporter reporter, final int numClasses) {
+		if (!reporter.isCanceled()) {
+			reporter.getProjectStats().setTotalClasses(numClasses);
+		}
+		reporter.finish();
+	}
+
+	/**
+	 * A daemon which failed or was canceled is not reused.
+	 * <p>
+	 * {@link Reporter} interrupts the thread which forwards a message when the analysis is canceled or timed out.
+	 * The interrupt is always cleared, because this thread is a shared pool thread.
+	 */
+	private int analyzeShard(
+			@NotNull final DaemonProtocol.Request request,
+			@NotNull final Reporter reporter,
+			final int maxHeap,
+			final boolean forwardProgress,
+			@Nullable final Set<BugInstance> seen
+	) throws IOException {
+
+		final AnalysisDaemonClient client = acquire(maxHeap, AnalysisDaemonClient.getPluginsKey(request));
+		boolean reusable = false;
+		try {
+			final int ret = client.analyze(request, reporter, forwardProgress, seen);
+			synchronized (reporter) {
+				reusable = !reporter.isCanceled();
+			}
+			return ret;
+		} finally {
+			Thread.interrupted(); // clear interrupt of Reporter, cancel and timeout are known by the reporter
+			if (reusable) {
+				release(client);
+			} else {
+				client.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Idle daemons with another max heap size or other plugins are stopped.
+	 */
+	@NotNull
+	private AnalysisDaemonClient acquire(final int maxHeap, @NotNull final String plugins) throws IOException {
+		synchronized (idle) {
+			final Iterator<AnalysisDaemonClient> it = idle.iterator();
+			while (it.hasNext()) {
+				final AnalysisDaemonClient client = it.next();
+				it.remove();
+				if (client.isAlive() && client.getMaxHeap() == maxHeap && client.getPlugins().equals(plugins)) {
+					return client;
+				}
+				client.shutdown();
+			}
+		}
+		return AnalysisDaemonClient.start(maxHeap, plugins);
+	}
+
+	private void release(@NotNull final AnalysisDaemonClient client) {
+		synchronized (idle) {
+			if (disposed) {
+				client.shutdown();
+			} else {
+				idle.add(client);
+			}
+		}
+	}
+
+	@Override
+	public void dispose() {
+		synchronized (idle) {
+			disposed = true;
+			for (final AnalysisDaemonClient client : idle) {
+				client.shutdown();
+			}
+			idle.clear();
+		}
+	}
+}
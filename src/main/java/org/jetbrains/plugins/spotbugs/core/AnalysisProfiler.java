@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.ProjectStats;
+import edu.umd.cs.findbugs.log.Profiler;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Profiler which knows the classes it profiled and their number of calls, so the timings can be read through
+ * {@link #getProfile(Class)} instead of parsing {@link #report()}. The SpotBugs profiler keeps both private.
+ * <p>
+ * Note that this class is used by the analysis daemon too, so it must not depend on IntelliJ classes.
+ */
+public class AnalysisProfiler extends Profiler {
+
+	@NotNull
+	private final Map<Class<?>, Integer> calls = new ConcurrentHashMap<>();
+
+	/**
+	 * @return stats which hand out this profiler, use it for the bug collection of the reporter
+	 */
+	@NotNull
+	public final ProjectStats createProjectStats() {
+		return new ProjectStats() {
+			@Override
+			public Profiler getProfiler() {
+				return AnalysisProfiler.this;
+			}
+		};
+	}
+
+	@Override
+	public void end(final Class<?> c) {
+		super.end(c);
+		calls.merge(c, 1, Integer::sum);
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		calls.clear();
+	}
+
+	@NotNull
+	public Set<Class<?>> getProfiledClasses() {
+		return Collections.unmodifiableSet(calls.keySet());
+	}
+
+	public int getCalls(@NotNull final Class<?> c) {
+		return calls.getOrDefault(c, 0);
+	}
+}
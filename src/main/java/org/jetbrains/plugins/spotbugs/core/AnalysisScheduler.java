@@ -0,0 +1,290 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.compiler.CompileScope;
+import com.intellij.openapi.compiler.CompilerManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the analyses of a project one after another, regardless of the trigger
+ * (actions, {@link FindBugsCompileAfterHook}, {@link CheckinHandlerFactoryImpl}).
+ * <ul>
+ * <li>Background requests (after compile / auto make) which arrive while an analysis is running are queued
+ * and merged into one run; the configured files of all requests are added to the same {@link FindBugsProjects}.</li>
+ * <li>A running background analysis is canceled when a newer request arrives, because the queued run
+ * analyzes its files too.</li>
+ * <li>Manual requests have priority: they cancel a running background analysis and run before the queued
+ * background requests.</li>
+ * <li>Modal requests (before check in) are never deferred, because the caller reads the result as soon as
+ * {@link FindBugsStarter#start()} returns. They start immediately and wait (inside their modal task) until
+ * the running and superseded analyses have stopped, see {@link FindBugsStarter#setPredecessors(Collection)}.</li>
+ * </ul>
+ * Never more than one analysis runs at a time.
+ * All methods are confined to the EDT.
+ */
+public final class AnalysisScheduler {
+
+	private static final Logger LOGGER = Logger.getInstance(AnalysisScheduler.class);
+
+	@Nullable
+	private Run running;
+
+	/**
+	 * Runs which are still shutting down (superseded) or finishing (overtaken by a modal run).
+	 */
+	@NotNull
+	private final List<Run> stopping = new ArrayList<>();
+
+	@Nullable
+	private Run pendingManual;
+
+	@Nullable
+	private Run pendingBackground;
+
+	/**
+	 * Starts the analysis of a run, replaced by tests which only check the order of the runs.
+	 */
+	@NotNull
+	private final BiConsumer<FindBugsStarter, Boolean> launcher;
+
+	public AnalysisScheduler() {
+		this(FindBugsStarter::run);
+	}
+
+	AnalysisScheduler(@NotNull final BiConsumer<FindBugsStarter, Boolean> launcher) {
+		this.launcher = launcher;
+	}
+
+	@NotNull
+	public static AnalysisScheduler getInstance(@NotNull final Project project) {
+		return project.getService(AnalysisScheduler.class);
+	}
+
+	/**
+	 * @return {@code true} if the running analysis is a background analysis which would be superseded by a manual one
+	 */
+	public boolean isBackgroundRunning() {
+		EventDispatchThreadHelper.checkEDT();
+		return running != null && running.background;
+	}
+
+	void schedule(@NotNull final FindBugsStarter starter, final boolean justCompiled) {
+		EventDispatchThreadHelper.checkEDT();
+		final Run run = new Run(starter, justCompiled);
+		if (running == null && stopping.isEmpty()) {
+			start(run);
+		} else if (starter.isBackground()) {
+			pendingBackground = Run.merge(pendingBackground, run);
+			supersedeRunning();
+		} else if (starter.isModal()) {
+			supersedeRunning();
+			if (running != null) {
+				stopping.add(running);
+				running = null;
+			}
+			final List<FindBugsStarter> predecessors = new ArrayList<>(stopping.size());
+			for (final Run previous : stopping) {
+				predecessors.add(previous.starter);
+			}
+			starter.setPredecessors(predecessors);
+			start(run);
+		} else {
+			supersedeRunning();
+			if (pendingManual != null) {
+				LOGGER.debug("Queued manual analysis replaced by a newer one");
+			}
+			pendingManual = run;
+		}
+	}
+
+	/**
+	 * Cancels the running background analysis (if any) and queues its files again
+	 * (in front of the other background requests).
+	 */
+	private void supersedeRunning() {
+		final Run superseded = running;
+		if (superseded == null || !superseded.background) {
+			return;
+		}
+		superseded.starter.analysisAborting();
+		pendingBackground = Run.requeue(superseded, pendingBackground);
+		stopping.add(superseded);
+		running = null;
+	}
+
+	/**
+	 * Invoked by {@link FindBugsStarter} when its analysis is finished or aborted (from any thread).
+	 */
+	void finished(@NotNull final FindBugsStarter starter) {
+		EventDispatchThreadHelper.invokeLater(() -> {
+			if (running != null && running.starter == starter) {
+				running = null;
+			} else {
+				stopping.removeIf(run -> run.starter == starter);
+			}
+			if (running == null && stopping.isEmpty()) {
+				startNext();
+			}
+		});
+	}
+
+	private void startNext() {
+		if (pendingManual != null) {
+			final Run run = pendingManual;
+			pendingManual = null;
+			start(run);
+		} else if (pendingBackground != null) {
+			final Run run = pendingBackground;
+			pendingBackground = null;
+			start(run);
+		}
+	}
+
+	/**
+	 * A run which fails to start never invokes {@link #finished(FindBugsStarter)}, so the next one is started instead.
+	 */
+	private void start(@NotNull final Run run) {
+		running = run;
+		try {
+			launcher.accept(run.starter, run.justCompiled);
+		} catch (final RuntimeException e) {
+			LOGGER.error("Could not start SpotBugs analysis", e);
+			if (running == run) {
+				running = null;
+			}
+			startNext();
+		}
+	}
+
+	/**
+	 * One or more merged requests.
+	 */
+	private static final class Run {
+
+		@NotNull
+		private final List<Pair<FindBugsStarter, Boolean>> requests;
+
+		@NotNull
+		private final FindBugsStarter starter;
+
+		private final boolean justCompiled;
+
+		private final boolean background;
+
+		private Run(@NotNull final FindBugsStarter starter, final boolean justCompiled) {
+			requests = new ArrayList<>();
+			requests.add(Pair.create(starter, justCompiled));
+			this.starter = starter;
+			this.justCompiled = justCompiled;
+			background = starter.isBackground();
+		}
+
+		private Run(@NotNull final List<Pair<FindBugsStarter, Boolean>> requests) {
+			this.requests = requests;
+			starter = new MergedStarter(requests.get(0).getFirst().getProject(), requests);
+			justCompiled = false;
+			background = true;
+		}
+
+		@NotNull
+		static Run merge(@Nullable final Run first, @NotNull final Run second) {
+			if (first == null) {
+				return second;
+			}
+			final List<Pair<FindBugsStarter, Boolean>> requests = new ArrayList<>(first.requests);
+			requests.addAll(second.requests);
+			return new Run(requests);
+		}
+
+		/**
+		 * Note that a canceled starter can not be started again, so the requests of a superseded run
+		 * always get a new starter.
+		 */
+		@NotNull
+		static Run requeue(@NotNull final Run superseded, @Nullable final Run pending) {
+			final List<Pair<FindBugsStarter, Boolean>> requests = new ArrayList<>(superseded.requests);
+			if (pending != null) {
+				requests.addAll(pending.requests);
+			}
+			return new Run(requests);
+		}
+	}
+
+	/**
+	 * Configures the files of all merged background requests.
+	 */
+	private static final class MergedStarter extends FindBugsStarter {
+
+		@NotNull
+		private final List<Pair<FindBugsStarter, Boolean>> requests;
+
+		private MergedStarter(@NotNull final Project project, @NotNull final List<Pair<FindBugsStarter, Boolean>> requests) {
+			super(project, "Running SpotBugs analysis for affected files...", ProgressStartType.RunInBackground);
+			this.requests = requests;
+		}
+
+		@Override
+		protected boolean isCompileBeforeAnalyze() {
+			return false;
+		}
+
+		@Override
+		protected boolean isIncremental() {
+			for (final Pair<FindBugsStarter, Boolean> request : requests) {
+				if (!request.getFirst().isIncremental()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		protected boolean isBackground() {
+			return true;
+		}
+
+		@Override
+		protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected boolean configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProjects projects, final boolean justCompiled) {
+			boolean ret = false;
+			for (final Pair<FindBugsStarter, Boolean> request : requests) {
+				ret |= request.getFirst().configure(indicator, projects, request.getSecond());
+			}
+			return ret;
+		}
+	}
+}
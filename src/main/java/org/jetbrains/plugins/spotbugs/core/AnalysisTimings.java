@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall clock time of the analysis phases (measured by {@link Reporter}) and the time spent in every
+ * detector and analysis engine (collected by the {@link AnalysisProfiler}) of one analysis.
+ */
+public final class AnalysisTimings {
+
+	@NotNull
+	private final List<Entry> phases;
+
+	/**
+	 * Simple class name to entry.
+	 */
+	@NotNull
+	private final Map<String, Entry> detectors;
+
+	/**
+	 * Detectors which were skipped because they exceeded the time budget, see {@link DetectorBudget}.
+	 */
+	@NotNull
+	private final Set<String> overBudget;
+
+	/**
+	 * Detectors which were not run because they exceeded the time budget in previous analyses.
+	 */
+	@NotNull
+	private final Set<String> disabled;
+
+	AnalysisTimings() {
+		phases = new ArrayList<>();
+		detectors = new HashMap<>();
+		overBudget = new TreeSet<>();
+		disabled = new TreeSet<>();
+	}
+
+	synchronized void addPhase(@NotNull final String name, final long millis) {
+		phases.add(new Entry(name, millis, 1));
+	}
+
+	synchronized void addProfiler(@NotNull final AnalysisProfiler profiler) {
+		for (final Class<?> c : profiler.getProfiledClasses()) {
+			addDetector(c.getSimpleName(), TimeUnit.NANOSECONDS.toMillis(profiler.getProfile(c).getTotalTime()), profiler.getCalls(c));
+		}
+	}
+
+	/**
+	 * Times of the same class are summed up, so the profiles of several shards can be added.
+	 *
+	 * @param name simple class name of the detector or analysis engine
+	 */
+	synchronized void addDetector(@NotNull final String name, final long millis, final int calls) {
+		detectors.merge(name, new Entry(name, millis, calls), (a, b) -> new Entry(name, a.millis + b.millis, a.calls + b.calls));
+	}
+
+	synchronized void addOverBudget(@NotNull final Collection<String> detectorNames) {
+		overBudget.addAll(detectorNames);
+	}
+
+	synchronized void addDisabled(@NotNull final Collection<String> detectorNames) {
+		disabled.addAll(detectorNames);
+	}
+
+	@NotNull
+	public synchronized List<Entry> getPhases() {
+		return Collections.unmodifiableList(new ArrayList<>(phases));
+	}
+
+	/**
+	 * @return the detectors and analysis engines, slowest first
+	 */
+	@NotNull
+	public synchronized List<Entry> getDetectors() {
+		final List<Entry> ret = new ArrayList<>(detectors.values());
+		ret.sort(Comparator.comparingLong(Entry::getMillis).reversed());
+		return Collections.unmodifiableList(ret);
+	}
+
+	@NotNull
+	public synchronized Set<String> getOverBudget() {
+		return Collections.unmodifiableSet(new TreeSet<>(overBudget));
+	}
+
+	@NotNull
+	public synchronized Set<String> getDisabled() {
+		return Collections.unmodifiableSet(new TreeSet<>(disabled));
+	}
+
+	public static final class Entry {
+
+		@NotNull
+		private final String name;
+
+		private final long millis;
+
+		private final int calls;
+
+		private Entry(@NotNull final String name, final long millis, final int calls) {
+			this.name = name;
+			this.millis = millis;
+			this.calls = calls;
+		}
+
+		@NotNull
+		public String getName() {
+			return name;
+		}
+
+		public long getMillis() {
+			return millis;
+		}
+
+		public int getCalls() {
+			return calls;
+		}
+	}
+}
@@ -0,0 +1,479 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.util.HashUtil;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Class files of one analysis run, each read and parsed only once: the class name, referenced classes
+ * and content hash are needed by {@link DependencyGraph}, {@link LibraryIndex}, {@link AnalysisCache},
+ * {@link MergedAnalysis} and the time limit handling of {@link FindBugsStarter}.
+ * <p>
+ * Shared by all {@link FindBugsProject}s of a run (see {@link FindBugsProjects}), thread safe.
+ */
+public final class ClassFiles {
+
+	private static final Logger LOGGER = Logger.getInstance(ClassFiles.class);
+	private static final int ACC_INTERFACE = 0x0200;
+
+	/**
+	 * File path to class file.
+	 */
+	@NotNull
+	private final ConcurrentMap<String, ClassFile> files;
+
+	ClassFiles() {
+		files = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @param filePath path of a class file of a {@link FindBugsProject}
+	 */
+	@NotNull
+	ClassFile get(@NotNull final String filePath) throws IOException {
+		final ClassFile ret = files.get(filePath);
+		if (ret != null) {
+			return ret;
+		}
+		final byte[] bytes = Files.readAllBytes(new File(filePath).toPath());
+		final ClassInfo classInfo = readClass(new ByteArrayInputStream(bytes), true);
+		if (classInfo == null) {
+			throw new IOException("Not a class file: " + filePath);
+		}
+		final ClassFile classFile = new ClassFile(classInfo.name, classInfo.references, classInfo.isInterface, HashUtil.sha256(bytes));
+		final ClassFile existing = files.putIfAbsent(filePath, classFile);
+		return existing != null ? existing : classFile;
+	}
+
+	/**
+	 * @return the dotted class name of the given class file, or the file path if it could not be read
+	 */
+	@NotNull
+	String getClassName(@NotNull final String filePath) {
+		try {
+			return get(filePath).name;
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.debug("Could not read class file " + filePath, e);
+			return filePath;
+		}
+	}
+
+	/**
+	 * Releases the parsed class files, call it when the analysis is finished.
+	 */
+	void clear() {
+		files.clear();
+	}
+
+	/**
+	 * Reads the {@code SourceFile} attribute of a class file, the constant pool is the only part which is parsed.
+	 *
+	 * @return source file name without directory (f. e. {@code Foo.java}), or {@code null} if the class file
+	 * has no such attribute or could not be read
+	 */
+	@Nullable
+	public static String readSourceFileName(@NotNull final File classFile) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(classFile.toPath())))) {
+			final ConstantPool pool = ConstantPool.read(in);
+			if (pool == null) {
+				return null;
+			}
+			skip(in, 6); // access flags, this and super class
+			skip(in, 2 * in.readUnsignedShort()); // interfaces
+			skipMembers(in); // fields
+			skipMembers(in); // methods
+			final int attributes = in.readUnsignedShort();
+			for (int i = 0; i < attributes; i++) {
+				final String attributeName = pool.utf8[in.readUnsignedShort()];
+				final int length = in.readInt();
+				if ("SourceFile".equals(attributeName)) {
+					return pool.utf8[in.readUnsignedShort()];
+				}
+				skip(in, length);
+			}
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.debug("Could not read class file " + classFile, e);
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the header of a class file. The constant pool, fields and methods are skipped, except
+	 * the class references of the constant pool if {@code allReferences} is set.
+	 *
+	 * @param allReferences {@code true} to return all referenced classes, otherwise only the super types,
+	 *                      the annotations (of the class, fields, methods and parameters)
+	 *                      and the thrown exceptions of the methods are returned
+	 * @return {@code null} if the stream does not contain a class file
+	 */
+	@Nullable
+	static ClassInfo readClass(@NotNull final InputStream stream, final boolean allReferences) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		final ConstantPool pool = ConstantPool.read(in);
+		if (pool == null) {
+			return null;
+		}
+		final String[] utf8 = pool.utf8;
+		final int[] classes = pool.classes;
+		final int count = utf8.length;
+		final boolean isInterface = (in.readUnsignedShort() & ACC_INTERFACE) != 0;
+		final String name = getClassName(utf8, classes, in.readUnsignedShort());
+		if (name == null) {
+			return null;
+		}
+		final Set<String> references = new HashSet<>();
+		final String superName = getClassName(utf8, classes, in.readUnsignedShort());
+		if (superName != null) {
+			references.add(superName);
+		}
+		final int interfaces = in.readUnsignedShort();
+		for (int i = 0; i < interfaces; i++) {
+			final String interfaceName = getClassName(utf8, classes, in.readUnsignedShort());
+			if (interfaceName != null) {
+				references.add(interfaceName);
+			}
+		}
+
+		if (allReferences) {
+			for (int i = 1; i < count; i++) {
+				final String className = getClassName(utf8, classes, i);
+				if (className != null) {
+					addReference(references, className);
+				} else if (utf8[i] != null) {
+					addDescriptorReferences(references, utf8[i]); // field / method descriptors and signatures
+				}
+			}
+		} else {
+			readMembers(in, utf8, classes, references); // fields
+			readMembers(in, utf8, classes, references); // methods
+			readAttributes(in, utf8, classes, references);
+		}
+		references.remove(name);
+		return new ClassInfo(name, new ArrayList<>(references), isInterface);
+	}
+
+	@Nullable
+	private static String getClassName(@NotNull final String[] utf8, @NotNull final int[] classes, final int index) {
+		if (index <= 0 || index >= classes.length || classes[index] == 0) {
+			return null;
+		}
+		return utf8[classes[index]].replace('/', '.');
+	}
+
+	private static void addReference(@NotNull final Set<String> references, @NotNull final String className) {
+		if (className.startsWith("[")) {
+			addDescriptorReferences(references, className); // array type, e.g. [[Ljava.lang.String;
+		} else {
+			references.add(className);
+		}
+	}
+
+	/**
+	 * Adds the class names of a descriptor or signature like {@code (Ljava/util/List<Lfoo/Bar;>;)V}.
+	 */
+	private static void addDescriptorReferences(@NotNull final Set<String> references, @NotNull final String descriptor) {
+		int start = descriptor.indexOf('L');
+		while (start >= 0) {
+			int end = start + 1;
+			while (end < descriptor.length() && ";<".indexOf(descriptor.charAt(end)) < 0) {
+				if (" ()".indexOf(descriptor.charAt(end)) >= 0) {
+					end = -1; // not a descriptor
+					break;
+				}
+				end++;
+			}
+			if (end < 0 || end >= descriptor.length()) {
+				return;
+			}
+			if (end > start + 1 && (start == 0 || "([;<>)*+-".indexOf(descriptor.charAt(start - 1)) >= 0 || Character.isUpperCase(descriptor.charAt(start - 1)))) {
+				references.add(descriptor.substring(start + 1, end).replace('/', '.'));
+			}
+			start = descriptor.indexOf('L', end);
+		}
+	}
+
+	private static void skipMembers(@NotNull final DataInputStream in) throws IOException {
+		final int members = in.readUnsignedShort();
+		for (int i = 0; i < members; i++) {
+			skip(in, 6); // access flags, name, descriptor
+			final int attributes = in.readUnsignedShort();
+			for (int j = 0; j < attributes; j++) {
+				skip(in, 2);
+				skip(in, in.readInt());
+			}
+		}
+	}
+
+	private static void readMembers(
+			@NotNull final DataInputStream in,
+			@NotNull final String[] utf8,
+			@NotNull final int[] classes,
+			@NotNull final Set<String> references
+	) throws IOException {
+		final int members = in.readUnsignedShort();
+		for (int i = 0; i < members; i++) {
+			skip(in, 6); // access flags, name, descriptor
+			readAttributes(in, utf8, classes, references);
+		}
+	}
+
+	/**
+	 * Adds the annotation types and thrown exceptions of a class, field or method,
+	 * other attributes are skipped.
+	 */
+	private static void readAttributes(
+			@NotNull final DataInputStream in,
+			@NotNull final String[] utf8,
+			@NotNull final int[] classes,
+			@NotNull final Set<String> references
+	) throws IOException {
+		final int attributes = in.readUnsignedShort();
+		for (int i = 0; i < attributes; i++) {
+			final String attributeName = utf8[in.readUnsignedShort()];
+			final int length = in.readInt();
+			if ("RuntimeVisibleAnnotations".equals(attributeName) || "RuntimeInvisibleAnnotations".equals(attributeName)) {
+				readAnnotations(in, utf8, references);
+			} else if ("RuntimeVisibleParameterAnnotations".equals(attributeName) || "RuntimeInvisibleParameterAnnotations".equals(attributeName)) {
+				final int parameters = in.readUnsignedByte();
+				for (int j = 0; j < parameters; j++) {
+					readAnnotations(in, utf8, references);
+				}
+			} else if ("Exceptions".equals(attributeName)) {
+				final int exceptions = in.readUnsignedShort();
+				for (int j = 0; j < exceptions; j++) {
+					final String exceptionName = getClassName(utf8, classes, in.readUnsignedShort());
+					if (exceptionName != null) {
+						references.add(exceptionName);
+					}
+				}
+			} else {
+				skip(in, length);
+			}
+		}
+	}
+
+	private static void readAnnotations(@NotNull final DataInputStream in, @NotNull final String[] utf8, @NotNull final Set<String> references) throws IOException {
+		final int annotations = in.readUnsignedShort();
+		for (int i = 0; i < annotations; i++) {
+			readAnnotation(in, utf8, references);
+		}
+	}
+
+	private static void readAnnotation(@NotNull final DataInputStream in, @NotNull final String[] utf8, @NotNull final Set<String> references) throws IOException {
+		addDescriptorReferences(references, utf8[in.readUnsignedShort()]); // type
+		final int pairs = in.readUnsignedShort();
+		for (int i = 0; i < pairs; i++) {
+			skip(in, 2); // name
+			readElementValue(in, utf8, references);
+		}
+	}
+
+	private static void readElementValue(@NotNull final DataInputStream in, @NotNull final String[] utf8, @NotNull final Set<String> references) throws IOException {
+		final int tag = in.readUnsignedByte();
+		switch (tag) {
+			case 'e': // enum: type and constant name
+				addDescriptorReferences(references, utf8[in.readUnsignedShort()]);
+				skip(in, 2);
+				break;
+			case 'c': // class literal
+				addDescriptorReferences(references, utf8[in.readUnsignedShort()]);
+				break;
+			case '@':
+				readAnnotation(in, utf8, references);
+				break;
+			case '[':
+				final int values = in.readUnsignedShort();
+				for (int i = 0; i < values; i++) {
+					readElementValue(in, utf8, references);
+				}
+				break;
+			default: // constant
+				skip(in, 2);
+		}
+	}
+
+	private static void skip(@NotNull final DataInputStream in, final int count) throws IOException {
+		int remaining = count;
+		while (remaining > 0) {
+			final int skipped = in.skipBytes(remaining);
+			if (skipped <= 0) {
+				in.readByte(); // throws EOFException at the end
+				remaining--;
+			} else {
+				remaining -= skipped;
+			}
+		}
+	}
+
+	/**
+	 * Utf8 and class entries of a constant pool, other entries are skipped.
+	 */
+	private static final class ConstantPool {
+
+		@NotNull
+		private final String[] utf8;
+
+		/**
+		 * Index of the name (in {@link #utf8}) of the class entries.
+		 */
+		@NotNull
+		private final int[] classes;
+
+		private ConstantPool(@NotNull final String[] utf8, @NotNull final int[] classes) {
+			this.utf8 = utf8;
+			this.classes = classes;
+		}
+
+		/**
+		 * Reads the class file up to the end of the constant pool.
+		 *
+		 * @return {@code null} if the stream does not contain a class file
+		 */
+		@Nullable
+		private static ConstantPool read(@NotNull final DataInputStream in) throws IOException {
+			if (in.readInt() != 0xCAFEBABE) {
+				return null;
+			}
+			skip(in, 4); // version
+			final int count = in.readUnsignedShort();
+			final String[] utf8 = new String[count];
+			final int[] classes = new int[count];
+			for (int i = 1; i < count; i++) {
+				final int tag = in.readUnsignedByte();
+				switch (tag) {
+					case 1: // Utf8
+						utf8[i] = in.readUTF();
+						break;
+					case 7: // Class
+						classes[i] = in.readUnsignedShort();
+						break;
+					case 8: // String
+					case 16: // MethodType
+					case 19: // Module
+					case 20: // Package
+						skip(in, 2);
+						break;
+					case 15: // MethodHandle
+						skip(in, 3);
+						break;
+					case 3: // Integer
+					case 4: // Float
+					case 9: // Fieldref
+					case 10: // Methodref
+					case 11: // InterfaceMethodref
+					case 12: // NameAndType
+					case 17: // Dynamic
+					case 18: // InvokeDynamic
+						skip(in, 4);
+						break;
+					case 5: // Long
+					case 6: // Double
+						skip(in, 8);
+						i++;
+						break;
+					default:
+						throw new IOException("Unknown constant pool tag " + tag);
+				}
+			}
+			return new ConstantPool(utf8, classes);
+		}
+	}
+
+	static final class ClassInfo {
+
+		/**
+		 * Dotted class name.
+		 */
+		@NotNull
+		final String name;
+
+		/**
+		 * Dotted names of the super types, annotations and thrown exceptions of a library class,
+		 * or of all referenced classes of an analyzed class.
+		 */
+		@NotNull
+		final List<String> references;
+
+		/**
+		 * {@code true} for interfaces and annotation types, not stored by {@link LibraryIndex}.
+		 */
+		final boolean isInterface;
+
+		ClassInfo(@NotNull final String name, @NotNull final List<String> references) {
+			this(name, references, false);
+		}
+
+		private ClassInfo(@NotNull final String name, @NotNull final List<String> references, final boolean isInterface) {
+			this.name = name;
+			this.references = references;
+			this.isInterface = isInterface;
+		}
+	}
+
+	static final class ClassFile {
+
+		/**
+		 * Dotted class name.
+		 */
+		@NotNull
+		final String name;
+
+		/**
+		 * Dotted names of all classes referenced by the constant pool, descriptors and signatures.
+		 */
+		@NotNull
+		final List<String> references;
+
+		/**
+		 * {@code true} for interfaces and annotation types.
+		 */
+		final boolean isInterface;
+
+		/**
+		 * SHA-256 hash of the bytecode.
+		 */
+		@NotNull
+		final String hash;
+
+		private ClassFile(@NotNull final String name, @NotNull final List<String> references, final boolean isInterface, @NotNull final String hash) {
+			this.name = name;
+			this.references = references;
+			this.isInterface = isInterface;
+			this.hash = hash;
+		}
+	}
+}
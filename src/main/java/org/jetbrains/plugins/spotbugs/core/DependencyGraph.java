@@ -0,0 +1,266 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bytecode level dependency graph of the analyzed classes, persisted below the IDE system directory.
+ * <p>
+ * The graph is updated with the class references (constant pool, descriptors and
+ * signatures, see {@link ClassFiles}) of each analyzed class file. It is used to find the direct dependents of changed classes, because
+ * interprocedural detectors (nullness, resource leaks, ...) can change their verdict for an
+ * unchanged caller of a changed class. It is only saved after a completed analysis, see {@link FindBugsStarter}.
+ */
+final class DependencyGraph {
+
+	private static final Logger LOGGER = Logger.getInstance(DependencyGraph.class);
+	private static final Object LOCK = new Object();
+
+	@NotNull
+	private final File file;
+
+	@NotNull
+	private final Map<String, Node> nodes;
+
+	/**
+	 * Reverse references: dotted class name to the dotted names of the classes which reference it.
+	 */
+	@NotNull
+	private final Map<String, Set<String>> referencedBy;
+
+	private DependencyGraph(@NotNull final File file) {
+		this.file = file;
+		nodes = new HashMap<>();
+		referencedBy = new HashMap<>();
+	}
+
+	@NotNull
+	static DependencyGraph load(@NotNull final Project project) {
+		return load(new File(new File(new File(PathManager.getSystemPath(), "spotbugs"), project.getLocationHash()), "dependencies.txt"));
+	}
+
+	@NotNull
+	static DependencyGraph load(@NotNull final File file) {
+		final DependencyGraph ret = new DependencyGraph(file);
+		synchronized (LOCK) {
+			if (ret.file.isFile()) {
+				try (BufferedReader reader = Files.newBufferedReader(ret.file.toPath(), StandardCharsets.UTF_8)) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						final String[] parts = line.split("\t");
+						if (parts.length >= 3) {
+							final Set<String> references = new HashSet<>();
+							for (int i = 3; i < parts.length; i++) {
+								references.add(parts[i]);
+							}
+							ret.put(parts[0], new Node(parts[1], parts[2], references));
+						}
+					}
+				} catch (final IOException e) {
+					LOGGER.warn("Could not read dependency graph " + ret.file, e);
+					ret.nodes.clear();
+					ret.referencedBy.clear();
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Replaces the nodes of the given class files with their class references.
+	 *
+	 * @param classFiles files of a {@link FindBugsProject}, other files are ignored
+	 * @param parsed     parsed class files of the analysis run
+	 * @return the dotted class names of the given class files
+	 */
+	@NotNull
+	Set<String> update(@NotNull final String moduleName, @NotNull final Collection<String> classFiles, @NotNull final ClassFiles parsed) {
+		final Set<String> ret = new HashSet<>();
+		for (final String classFile : classFiles) {
+			if (!classFile.endsWith(".class")) {
+				continue;
+			}
+			try {
+				final ClassFiles.ClassFile parsedFile = parsed.get(classFile);
+				ret.add(parsedFile.name);
+				put(parsedFile.name, new Node(moduleName, classFile, getReferences(parsedFile)));
+			} catch (final IOException | RuntimeException e) {
+				LOGGER.debug("Could not read class file " + classFile, e);
+			}
+		}
+		return ret;
+	}
+
+	@NotNull
+	private static Set<String> getReferences(@NotNull final ClassFiles.ClassFile classFile) {
+		final Set<String> ret = new HashSet<>();
+		for (final String reference : classFile.references) {
+			if (!reference.startsWith("java.")) {
+				ret.add(reference);
+			}
+		}
+		return ret;
+	}
+
+	private void put(@NotNull final String className, @NotNull final Node node) {
+		remove(className);
+		nodes.put(className, node);
+		for (final String reference : node.references) {
+			referencedBy.computeIfAbsent(reference, k -> new HashSet<>()).add(className);
+		}
+	}
+
+	private void remove(@NotNull final String className) {
+		final Node node = nodes.remove(className);
+		if (node == null) {
+			return;
+		}
+		for (final String reference : node.references) {
+			final Set<String> dependents = referencedBy.get(reference);
+			if (dependents != null && dependents.remove(className) && dependents.isEmpty()) {
+				referencedBy.remove(reference);
+			}
+		}
+	}
+
+	/**
+	 * Removes the classes whose class file was deleted. Only the classes in the given directories are checked,
+	 * the class files of modules which are not analyzed are left alone (their output may be cleaned up
+	 * just now).
+	 *
+	 * @param outputDirs compiler output directories of the analyzed modules
+	 * @return dotted class names of the removed classes
+	 */
+	@NotNull
+	Set<String> removeDeletedClasses(@NotNull final Collection<String> outputDirs) {
+		if (outputDirs.isEmpty()) {
+			return Collections.emptySet();
+		}
+		final List<String> prefixes = new ArrayList<>(outputDirs.size());
+		for (final String outputDir : outputDirs) {
+			prefixes.add(new File(outputDir).getPath() + File.separator);
+		}
+		final Set<String> ret = new HashSet<>();
+		for (final Map.Entry<String, Node> entry : nodes.entrySet()) {
+			final String classFile = new File(entry.getValue().classFile).getPath();
+			for (final String prefix : prefixes) {
+				if (classFile.startsWith(prefix)) {
+					if (!new File(classFile).isFile()) {
+						ret.add(entry.getKey());
+					}
+					break;
+				}
+			}
+		}
+		for (final String className : ret) {
+			remove(className);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the classes (dotted class name to node) which reference one of the given classes directly,
+	 * excluding the given classes itself
+	 */
+	@NotNull
+	Map<String, Node> getDependents(@NotNull final Set<String> classNames) {
+		final Map<String, Node> ret = new HashMap<>();
+		for (final String className : classNames) {
+			final Set<String> dependents = referencedBy.get(className);
+			if (dependents == null) {
+				continue;
+			}
+			for (final String dependent : dependents) {
+				if (!classNames.contains(dependent)) {
+					ret.put(dependent, nodes.get(dependent));
+				}
+			}
+		}
+		return ret;
+	}
+
+	void save() {
+		synchronized (LOCK) {
+			try {
+				final File dir = file.getParentFile();
+				if (!dir.isDirectory() && !dir.mkdirs()) {
+					throw new IOException("Could not create directory " + dir);
+				}
+				final File tmp = new File(dir, file.getName() + ".tmp");
+				try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+					for (final Map.Entry<String, Node> entry : nodes.entrySet()) {
+						final Node node = entry.getValue();
+						writer.write(entry.getKey());
+						writer.write('\t');
+						writer.write(node.module);
+						writer.write('\t');
+						writer.write(node.classFile);
+						for (final String reference : node.references) {
+							writer.write('\t');
+							writer.write(reference);
+						}
+						writer.newLine();
+					}
+				}
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (final IOException e) {
+				LOGGER.warn("Could not write dependency graph " + file, e);
+			}
+		}
+	}
+
+	static final class Node {
+
+		@NotNull
+		final String module;
+
+		@NotNull
+		final String classFile;
+
+		@NotNull
+		private final Set<String> references;
+
+		private Node(@NotNull final String module, @NotNull final String classFile, @NotNull final Set<String> references) {
+			this.module = module;
+			this.classFile = classFile;
+			this.references = references;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.Detector2;
+import edu.umd.cs.findbugs.DetectorToDetector2Adapter;
+import edu.umd.cs.findbugs.ProjectStats;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profiler which skips a detector for the rest of the analysis once it exceeded its time budget:
+ * a single class took longer than the per class budget, or all classes together took longer than the total budget.
+ * The time of a detector includes the analysis engines (CFG, dataflow) it triggers.
+ * <p>
+ * FindBugs2 has no way to remove a detector from a running analysis, but it asks the profiler of the
+ * {@link ProjectStats} before every detector / class visit. So a skipped detector is stopped in {@link #start(Class)}
+ * by throwing a {@link SkippedException}, which FindBugs2 handles like any other recoverable detector failure
+ * and reports to {@link edu.umd.cs.findbugs.BugReporter#logError(String, Throwable)} (use {@link #isSkipped(Throwable)}
+ * to ignore it there). A detector which is running is never interrupted, the budget is checked after every class.
+ * <p>
+ * Note that this class is used by the analysis daemon too, so it must not depend on IntelliJ classes.
+ */
+public final class DetectorBudget extends AnalysisProfiler {
+
+	private static final SkippedException SKIPPED = new SkippedException();
+
+	private final long perClassNanos;
+
+	private final long totalNanos;
+
+	@NotNull
+	private final Map<Class<?>, Long> used;
+
+	@NotNull
+	private final Deque<Long> running;
+
+	@NotNull
+	private final Set<Class<?>> overBudget;
+
+	/**
+	 * Simple class names (like {@link edu.umd.cs.findbugs.DetectorFactory#getShortName()}) of the skipped detectors.
+	 */
+	@NotNull
+	private final Set<String> skipped;
+
+	/**
+	 * Detector which was just stopped by {@link #start(Class)}, FindBugs2 still calls {@link #end(Class)} for it.
+	 */
+	@Nullable
+	private Class<?> stopping;
+
+	/**
+	 * @param perClassMillis max time of a detector for one class, 0 for no limit
+	 * @param totalMillis    max time of a detector for all classes, 0 for no limit
+	 */
+	public DetectorBudget(final long perClassMillis, final long totalMillis) {
+		perClassNanos = TimeUnit.MILLISECONDS.toNanos(perClassMillis);
+		totalNanos = TimeUnit.MILLISECONDS.toNanos(totalMillis);
+		used = new HashMap<>();
+		running = new ArrayDeque<>();
+		overBudget = new HashSet<>();
+		skipped = new TreeSet<>();
+	}
+
+	public static boolean isEnabled(final long perClassMillis, final long totalMillis) {
+		return perClassMillis > 0 || totalMillis > 0;
+	}
+
+	public static boolean isSkipped(@Nullable final Throwable e) {
+		return e instanceof SkippedException;
+	}
+
+	@NotNull
+	public Set<String> getSkipped() {
+		return Collections.unmodifiableSet(skipped);
+	}
+
+	@Override
+	public void start(final Class<?> c) {
+		stopping = null;
+		if (isDetector(c)) {
+			if (overBudget.contains(c)) {
+				stopping = c;
+				throw SKIPPED;
+			}
+			running.push(System.nanoTime());
+		}
+		super.start(c);
+	}
+
+	@Override
+	public void end(final Class<?> c) {
+		if (c == stopping) {
+			stopping = null;
+			return;
+		}
+		super.end(c);
+		if (isDetector(c)) {
+			final long elapsed = System.nanoTime() - running.pop();
+			final long total = used.merge(c, elapsed, Long::sum);
+			if ((perClassNanos > 0 && elapsed > perClassNanos) || (totalNanos > 0 && total > totalNanos)) {
+				overBudget.add(c);
+				skipped.add(c.getSimpleName());
+			}
+		}
+	}
+
+	/**
+	 * Classic detectors are wrapped by a {@link DetectorToDetector2Adapter} which reports
+	 * the wrapped detector separately.
+	 */
+	private static boolean isDetector(@NotNull final Class<?> c) {
+		return c != DetectorToDetector2Adapter.class && (Detector.class.isAssignableFrom(c) || Detector2.class.isAssignableFrom(c));
+	}
+
+	private static final class SkippedException extends RuntimeException {
+		private SkippedException() {
+			super("Detector exceeded its time budget", null, false, false);
+		}
+	}
+}
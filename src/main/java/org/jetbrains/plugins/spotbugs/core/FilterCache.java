@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.DelegatingBugReporter;
+import edu.umd.cs.findbugs.ExcludingHashesBugReporter;
+import edu.umd.cs.findbugs.FilterBugReporter;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import edu.umd.cs.findbugs.filter.Filter;
+import org.dom4j.DocumentException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.spotbugs.common.util.HashUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Parsed include / exclude filters and baseline bug hashes of the user preferences, shared by all modules
+ * and analyses of this JVM. An entry is reused as long as the modification time and size of the file are unchanged,
+ * or its content hash is unchanged (e.g. after a VCS update which touched the file).
+ * <p>
+ * The cached {@link Filter} instances are never modified, so they can be used by concurrent analyses.
+ * <p>
+ * Note that this class is used by the analysis daemon too, so it must not depend on IntelliJ classes.
+ */
+public final class FilterCache {
+
+	private static final Map<String, Entry<Filter>> filters = new HashMap<>();
+
+	/**
+	 * Baseline file path to the instance hashes of its bugs.
+	 */
+	private static final Map<String, Entry<Set<String>>> baselines = new HashMap<>();
+
+	private FilterCache() {
+	}
+
+	/**
+	 * Wraps the given reporter with the enabled filters and baselines of the user preferences, like
+	 * FindBugs2 does in {@code configureFilters} (see {@link PrioritizedEngine#configureFilters(UserPreferences)}).
+	 *
+	 * @param onError invoked for every filter or baseline which can not be read, the others are still applied
+	 * @return reporter to pass to {@link edu.umd.cs.findbugs.FindBugs2#setBugReporter(BugReporter)}
+	 */
+	@NotNull
+	public static BugReporter configure(
+			@NotNull final BugReporter reporter,
+			@NotNull final UserPreferences userPrefs,
+			@NotNull final BiConsumer<String, Exception> onError
+	) {
+		BugReporter ret = reporter;
+		for (final Map.Entry<String, Boolean> excludeBugFile : userPrefs.getExcludeBugsFiles().entrySet()) {
+			if (Boolean.TRUE.equals(excludeBugFile.getValue())) {
+				try {
+					ret = new BaselineBugReporter(ret, getBaseline(excludeBugFile.getKey()));
+				} catch (final IOException | DocumentException e) {
+					onError.accept("ExcludeBaseLineBug files configuration failed.", e);
+				}
+			}
+		}
+		for (final Map.Entry<String, Boolean> includeFileName : userPrefs.getIncludeFilterFiles().entrySet()) {
+			if (Boolean.TRUE.equals(includeFileName.getValue())) {
+				try {
+					ret = new FilterBugReporter(ret, getFilter(includeFileName.getKey()), true);
+				} catch (final IOException e) {
+					onError.accept("IncludeFilter configuration failed.", e);
+				}
+			}
+		}
+		for (final Map.Entry<String, Boolean> excludeFileName : userPrefs.getExcludeFilterFiles().entrySet()) {
+			if (Boolean.TRUE.equals(excludeFileName.getValue())) {
+				try {
+					ret = new FilterBugReporter(ret, getFilter(excludeFileName.getKey()), false);
+				} catch (final IOException e) {
+					onError.accept("ExcludeFilter configuration failed.", e);
+				}
+			}
+		}
+		return ret;
+	}
+
+	@NotNull
+	static Filter getFilter(@NotNull final String filePath) throws IOException {
+		final File file = new File(filePath);
+		synchronized (filters) {
+			final Entry<Filter> entry = filters.get(filePath);
+			if (entry != null && entry.isValid(file)) {
+				return entry.value;
+			}
+			final String hash = HashUtil.sha256(file);
+			if (entry != null && entry.hash.equals(hash)) {
+				filters.put(filePath, new Entry<>(file, hash, entry.value));
+				return entry.value;
+			}
+			final Filter ret = new Filter(filePath);
+			filters.put(filePath, new Entry<>(file, hash, ret));
+			return ret;
+		}
+	}
+
+	@NotNull
+	static Set<String> getBaseline(@NotNull final String filePath) throws IOException, DocumentException {
+		final File file = new File(filePath);
+		synchronized (baselines) {
+			final Entry<Set<String>> entry = baselines.get(filePath);
+			if (entry != null && entry.isValid(file)) {
+				return entry.value;
+			}
+			final String hash = HashUtil.sha256(file);
+			if (entry != null && entry.hash.equals(hash)) {
+				baselines.put(filePath, new Entry<>(file, hash, entry.value));
+				return entry.value;
+			}
+			final Set<String> hashes = new HashSet<>();
+			ExcludingHashesBugReporter.addToExcludedInstanceHashes(hashes, filePath);
+			final Set<String> ret = Collections.unmodifiableSet(hashes);
+			baselines.put(filePath, new Entry<>(file, hash, ret));
+			return ret;
+		}
+	}
+
+	private static final class Entry<T> {
+
+		private final long modified;
+
+		private final long size;
+
+		@NotNull
+		private final String hash;
+
+		@NotNull
+		private final T value;
+
+		private Entry(@NotNull final File file, @NotNull final String hash, @NotNull final T value) {
+			modified = file.lastModified();
+			size = file.length();
+			this.hash = hash;
+			this.value = value;
+		}
+
+		private boolean isValid(@NotNull final File file) {
+			return modified != 0 && modified == file.lastModified() && size == file.length();
+		}
+	}
+
+	/**
+	 * Like {@link ExcludingHashesBugReporter}, but with a shared set of instance hashes instead of parsing
+	 * the baseline file for every reporter.
+	 */
+	private static final class BaselineBugReporter extends DelegatingBugReporter {
+
+		@NotNull
+		private final Set<String> excludedHashes;
+
+		private BaselineBugReporter(@NotNull final BugReporter delegate, @NotNull final Set<String> excludedHashes) {
+			super(delegate);
+			this.excludedHashes = excludedHashes;
+		}
+
+		@Override
+		public void reportBug(@NotNull final BugInstance bugInstance) {
+			if (!excludedHashes.contains(bugInstance.getInstanceHash())) {
+				getDelegate().reportBug(bugInstance);
+			}
+		}
+	}
+}
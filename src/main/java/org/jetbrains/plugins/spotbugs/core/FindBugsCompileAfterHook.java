@@ -150,6 +150,16 @@ public class FindBugsCompileAfterHook {
 				return false;
 			}
 
+			@Override
+			protected boolean isIncremental() {
+				return true;
+			}
+
+			@Override
+			protected boolean isBackground() {
+				return true;
+			}
+
 			@Override
 			protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
 				throw new UnsupportedOperationException();
@@ -201,6 +211,16 @@ public class FindBugsCompileAfterHook {
 				return false;
 			}
 
+			@Override
+			protected boolean isIncremental() {
+				return true;
+			}
+
+			@Override
+			protected boolean isBackground() {
+				return true;
+			}
+
 			@Override
 			protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
 				throw new UnsupportedOperationException();
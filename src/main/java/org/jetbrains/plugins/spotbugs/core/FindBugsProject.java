@@ -28,6 +28,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.collectors.StatelessClassAdder;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -43,9 +44,13 @@ public class FindBugsProject extends edu.umd.cs.findbugs.Project {
 
 	private StatelessClassAdder classAdder;
 
-	private FindBugsProject(@NotNull final Project project, @NotNull final Module module) {
+	@NotNull
+	private final ClassFiles classFiles;
+
+	private FindBugsProject(@NotNull final Project project, @NotNull final Module module, @NotNull final ClassFiles classFiles) {
 		this.project = project;
 		this.module = module;
+		this.classFiles = classFiles;
 	}
 
 	@NotNull
@@ -53,6 +58,14 @@ public class FindBugsProject extends edu.umd.cs.findbugs.Project {
 		return module;
 	}
 
+	/**
+	 * @return the parsed class files of the analysis run, shared with the other projects of the run
+	 */
+	@NotNull
+	ClassFiles getClassFiles() {
+		return classFiles;
+	}
+
 	@NotNull
 	private StatelessClassAdder getClassAdder() {
 		if (classAdder == null) {
@@ -66,7 +79,17 @@ public class FindBugsProject extends edu.umd.cs.findbugs.Project {
       _outputFiles = new ArrayList<>();
 		}
 		_outputFiles.add(file.getPath());
-		getClassAdder().addContainingClasses(file);
+		getClassAdder().addClassFiles(file);
+	}
+
+	void addOutputFiles(@NotNull final Collection<VirtualFile> files) {
+		if (_outputFiles == null) {
+      _outputFiles = new ArrayList<>();
+		}
+		for (final VirtualFile file : files) {
+			_outputFiles.add(file.getPath());
+		}
+		getClassAdder().addClassFiles(files);
 	}
 
 	public void addOutputFile(@NotNull final VirtualFile file, @NotNull final PsiClass psiClass) {
@@ -88,6 +111,16 @@ public class FindBugsProject extends edu.umd.cs.findbugs.Project {
 			@NotNull final Module module,
 			@NotNull final String projectName
 	) {
+		return create(project, module, projectName, new ClassFiles());
+	}
+
+	@NotNull
+	static FindBugsProject create(
+			@NotNull final Project project,
+			@NotNull final Module module,
+			@NotNull final String projectName,
+			@NotNull final ClassFiles classFiles
+	) {
 
 
 		final ModuleSettings moduleSettings = ModuleSettings.getInstance(module);
@@ -98,7 +131,7 @@ public class FindBugsProject extends edu.umd.cs.findbugs.Project {
 			settings = ProjectSettings.getInstance(project);
 		}
 
-		final FindBugsProject ret = new FindBugsProject(project, module);
+		final FindBugsProject ret = new FindBugsProject(project, module, classFiles);
 		ret.setProjectName(projectName);
 		for (final Plugin plugin : Plugin.getAllPlugins()) {
 			if (!plugin.isCorePlugin()) {
@@ -115,4 +148,35 @@ public class FindBugsProject extends edu.umd.cs.findbugs.Project {
 		}
 		return ret;
 	}
+
+	/**
+	 * Creates one project which contains the files, source directories and aux classpath entries
+	 * of all given projects. Plugin status and parsed class files are taken from the first project.
+	 */
+	@NotNull
+	static FindBugsProject merge(
+			@NotNull final Project project,
+			@NotNull final String projectName,
+			@NotNull final List<FindBugsProject> projects
+	) {
+
+		final FindBugsProject first = projects.get(0);
+		final FindBugsProject ret = new FindBugsProject(project, first.getModule(), first.classFiles);
+		ret.setProjectName(projectName);
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			if (!plugin.isCorePlugin()) {
+				ret.setPluginStatusTrinary(plugin.getPluginId(), first.getPluginStatus(plugin));
+			}
+		}
+		for (final FindBugsProject findBugsProject : projects) {
+			ret.add(findBugsProject);
+			if (findBugsProject._outputFiles != null) {
+				if (ret._outputFiles == null) {
+					ret._outputFiles = new ArrayList<>();
+				}
+				ret._outputFiles.addAll(findBugsProject._outputFiles);
+			}
+		}
+		return ret;
+	}
 }
@@ -61,9 +61,18 @@ public final class FindBugsProjects {
 	@NotNull
 	private final Map<Module, FindBugsProject> projects;
 
+	@NotNull
+	private final ClassFiles classFiles;
+
+	/**
+	 * {@code true} if the test sources of a module are analyzed, see {@link #isIncludeTests()}.
+	 */
+	private boolean includeTests;
+
 	FindBugsProjects(@NotNull final Project project) {
 		this.project = project;
 		projects = new HashMap<>();
+		classFiles = new ClassFiles();
 	}
 
 	public boolean addFiles(@NotNull final Iterable<VirtualFile> files, final boolean checkCompiled, final boolean includeTests) {
@@ -84,6 +93,14 @@ public final class FindBugsProjects {
 		return true;
 	}
 
+	/**
+	 * Adds source files of the given module without checking whether they are compiled.
+	 * The files are not filtered by type, and every package output directory is read only once.
+	 */
+	public void addModuleFiles(@NotNull final Module module, @NotNull final Collection<VirtualFile> files, final boolean includeTests) {
+		get(module, includeTests).addOutputFiles(files);
+	}
+
 	public boolean addFile(@NotNull final VirtualFile file, final boolean checkCompiled, final boolean includeTests) {
 		if (!IdeaUtilImpl.isValidFileType(file.getFileType())) {
 			return true;
@@ -132,7 +149,8 @@ public final class FindBugsProjects {
 			ret = WithPluginClassloader.notNull(() -> FindBugsProject.create(
 					project,
 					module,
-					makeProjectName(module)
+					makeProjectName(module),
+					classFiles
 			));
 
 			final VirtualFile[] sourceRoots = getSourceRoots(module, includeTests);
@@ -182,6 +200,7 @@ public final class FindBugsProjects {
 			}
 
 			projects.put(module, ret);
+			this.includeTests |= includeTests;
 		}
 		return ret;
 	}
@@ -194,11 +213,24 @@ public final class FindBugsProjects {
 		return project.getName();
 	}
 
+	/**
+	 * @return {@code true} if the test sources of any module are analyzed, so classes of test sources
+	 * (f. e. the dependents of a changed class) can be added
+	 */
+	boolean isIncludeTests() {
+		return includeTests;
+	}
+
 	@NotNull
 	Map<Module, FindBugsProject> getProjects() {
 		return projects;
 	}
 
+	@NotNull
+	ClassFiles getClassFiles() {
+		return classFiles;
+	}
+
 	@NotNull
 	private Collection<VirtualFile> getCompilerOutputPaths(@NotNull final Module module, final boolean includeTests) {
 
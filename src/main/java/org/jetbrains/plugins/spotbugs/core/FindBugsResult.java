@@ -19,6 +19,8 @@
  */
 package org.jetbrains.plugins.spotbugs.core;
 
+import com.intellij.openapi.module.Module;
+import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.Project;
 import edu.umd.cs.findbugs.ProjectStats;
 import edu.umd.cs.findbugs.SortedBugCollection;
@@ -26,15 +28,129 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 public final class FindBugsResult {
 	@NotNull
 	private final Map<Project, SortedBugCollection> results;
 
+	/**
+	 * Dotted class names of all analyzed classes of an incremental analysis, including the deleted classes
+	 * (which have no bugs any more), {@code null} otherwise.
+	 */
+	@Nullable
+	private Set<String> incrementalClasses;
+
+	/**
+	 * Project name to timings of the analysis.
+	 */
+	@NotNull
+	private final Map<String, AnalysisTimings> timings;
+
+	/**
+	 * Dotted class names of the classes which were not analyzed because the time limit was reached.
+	 */
+	@NotNull
+	private final Set<String> unanalyzedClasses;
+
+	private boolean partial;
+
 	public FindBugsResult() {
 		this.results = new HashMap<>();
+		this.timings = new LinkedHashMap<>();
+		this.unanalyzedClasses = new TreeSet<>();
+	}
+
+	void setIncremental(@NotNull final Set<String> analyzedClasses) {
+		incrementalClasses = analyzedClasses;
+	}
+
+	/**
+	 * @return {@code true} if this is the result of an incremental analysis which should be merged
+	 * into the current result, see {@link #merge(FindBugsResult)}
+	 */
+	public boolean isIncremental() {
+		return incrementalClasses != null;
+	}
+
+	void markPartial(@NotNull final Collection<String> unanalyzedClasses) {
+		partial = true;
+		this.unanalyzedClasses.addAll(unanalyzedClasses);
+	}
+
+	/**
+	 * @return {@code true} if the analysis was stopped because the time limit was reached,
+	 * the result contains the bugs found so far
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+
+	/**
+	 * @return dotted class names of the classes which were not (completely) analyzed, see {@link #isPartial()}
+	 */
+	@NotNull
+	public Set<String> getUnanalyzedClasses() {
+		return Collections.unmodifiableSet(unanalyzedClasses);
+	}
+
+	/**
+	 * Creates a new result which contains the bugs of this result except the bugs of the classes analyzed
+	 * by the given incremental result, and all bugs of the incremental result. The bugs of the classes
+	 * which were not analyzed by a {@link #isPartial() partial} incremental result are retained.
+	 */
+	@NotNull
+	public FindBugsResult merge(@NotNull final FindBugsResult incremental) {
+		if (incremental.incrementalClasses == null) {
+			throw new IllegalArgumentException("Not an incremental result");
+		}
+		final Map<Module, Map.Entry<Project, SortedBugCollection>> incrementalByModule = new HashMap<>();
+		for (final Map.Entry<Project, SortedBugCollection> entry : incremental.results.entrySet()) {
+			incrementalByModule.put(getModule(entry.getKey()), entry);
+		}
+
+		final FindBugsResult ret = new FindBugsResult();
+		for (final Map.Entry<Project, SortedBugCollection> entry : results.entrySet()) {
+			final SortedBugCollection current = entry.getValue();
+			final ProjectStats stats = current.getProjectStats().clone();
+			stats.clearBugCounts();
+			final SortedBugCollection merged = new SortedBugCollection(stats, entry.getKey());
+			merged.setTimestamp(current.getTimestamp());
+			for (final BugInstance bug : current.getCollection()) {
+				final String className = bug.getPrimaryClass().getClassName();
+				if (!incremental.incrementalClasses.contains(className) || incremental.unanalyzedClasses.contains(className)) {
+					merged.add(bug);
+				}
+			}
+			final Map.Entry<Project, SortedBugCollection> update = incrementalByModule.remove(getModule(entry.getKey()));
+			if (update != null) {
+				for (final BugInstance bug : update.getValue().getCollection()) {
+					merged.add(bug);
+				}
+				merged.setTimestamp(update.getValue().getTimestamp());
+			}
+			ret.put(entry.getKey(), merged);
+		}
+		for (final Map.Entry<Project, SortedBugCollection> entry : incrementalByModule.values()) {
+			ret.put(entry.getKey(), entry.getValue());
+		}
+		ret.timings.putAll(incremental.timings); // timings of the last run
+		ret.partial = incremental.partial;
+		ret.unanalyzedClasses.addAll(incremental.unanalyzedClasses);
+		return ret;
+	}
+
+	@Nullable
+	private static Module getModule(@NotNull final Project project) {
+		if (project instanceof FindBugsProject) {
+			return ((FindBugsProject) project).getModule();
+		}
+		return null;
 	}
 
 	public void put(@NotNull final Project project, @Nullable final SortedBugCollection bugCollection) {
@@ -43,6 +159,18 @@ public final class FindBugsResult {
 		}
 	}
 
+	void putTimings(@NotNull final String projectName, @NotNull final AnalysisTimings analysisTimings) {
+		timings.put(projectName, analysisTimings);
+	}
+
+	/**
+	 * @return project name to timings, empty if the result was imported
+	 */
+	@NotNull
+	public Map<String, AnalysisTimings> getTimings() {
+		return timings;
+	}
+
 	public boolean isBugCollectionEmpty() {
 		for (final SortedBugCollection bugCollection : results.values()) {
 			if (!bugCollection.getCollection().isEmpty()) {
@@ -36,9 +36,9 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.util.Consumer;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import edu.umd.cs.findbugs.*;
 import edu.umd.cs.findbugs.config.*;
-import org.dom4j.DocumentException;
 import org.jetbrains.annotations.*;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
 import org.jetbrains.plugins.spotbugs.gui.common.BalloonTipFactory;
@@ -47,14 +47,33 @@ import org.jetbrains.plugins.spotbugs.messages.*;
 import org.jetbrains.plugins.spotbugs.plugins.PluginLoader;
 import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class FindBugsStarter implements AnalysisAbortingListener {
 
 	private static final Logger LOGGER = Logger.getInstance(FindBugsStarter.class);
 
+	/**
+	 * Smaller projects are not worth the startup costs of additional worker processes.
+	 */
+	private static final int MIN_CLASSES_PER_SHARD = 1000;
+
+	/**
+	 * See {@link AbstractSettings#disableDetectorsOverBudget}.
+	 */
+	private static final int DISABLE_OVER_BUDGET_AFTER = 3;
+
 	@NotNull
 	private final Project project;
 
@@ -73,6 +92,39 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 
 	private final AtomicBoolean _cancellingByUser;
 
+	/**
+	 * {@link System#nanoTime()} when the running analysis is stopped, see {@link #getTimeLimit()}.
+	 */
+	private long deadline = Reporter.NO_DEADLINE;
+
+	@NotNull
+	private PriorityClasses priorityClasses = PriorityClasses.EMPTY;
+
+	/**
+	 * Journals of the running analysis, modules can be analyzed concurrently. Journals of other
+	 * (interrupted) analyses are left alone, see {@link ResultJournal#suggestRecovery(Project)}.
+	 */
+	@NotNull
+	private final List<ResultJournal> journals = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Detectors which exceeded the time budget in any module of the running analysis, and the detectors
+	 * which were disabled because of it. {@code null} if no module counts them, see {@link #updateDetectorsOverBudget()}.
+	 */
+	@Nullable
+	private Pair<Set<String>, Set<String>> detectorsOverBudget;
+
+	/**
+	 * Analyses which must stop before this (modal) analysis starts, see {@link AnalysisScheduler}.
+	 */
+	@NotNull
+	private Collection<FindBugsStarter> predecessors = Collections.emptyList();
+
+	/**
+	 * Released when the analysis is finished or aborted, see {@link #awaitPredecessors(ProgressIndicator, Collection)}.
+	 */
+	private final CountDownLatch done = new CountDownLatch(1);
+
 
 	public FindBugsStarter(
 			@NotNull final Project project,
@@ -108,13 +160,20 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 				throw new UnsupportedOperationException("Unsupported " + progressStartType);
 		}
 		_cancellingByUser = new AtomicBoolean();
-		MessageBusManager.subscribe(project, this, AnalysisAbortingListener.TOPIC, this);
 	}
 
 	protected boolean isCompileBeforeAnalyze() {
 		return workspaceSettings.compileBeforeAnalyze;
 	}
 
+	/**
+	 * @return {@code true} if the direct dependents of the configured classes should be analyzed too
+	 * and the result should be merged into the current result instead of replacing it
+	 */
+	protected boolean isIncremental() {
+		return false;
+	}
+
 	public final void start() {
 		EventDispatchThreadHelper.checkEDT();
 		if (isCompileBeforeAnalyze()) {
@@ -141,37 +200,78 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 		}
 	}
 
+	/**
+	 * @return {@code true} if this analysis was not started by the user, see {@link AnalysisScheduler}
+	 */
+	protected boolean isBackground() {
+		return false;
+	}
+
+	final boolean isModal() {
+		return startProgressModal;
+	}
+
+	/**
+	 * Analyses which block or interrupt the user (after compile / auto make and before check in) are time-boxed:
+	 * a partial result is more useful than waiting for the complete one.
+	 *
+	 * @return max duration of the analysis in seconds, 0 for no limit
+	 */
+	protected int getTimeLimit() {
+		return isBackground() || isModal() ? workspaceSettings.analysisTimeLimit : 0;
+	}
+
+	@NotNull
+	final Project getProject() {
+		return project;
+	}
+
+	/**
+	 * Invoked by {@link AnalysisScheduler} before a modal analysis is started while other analyses are still running.
+	 */
+	final void setPredecessors(@NotNull final Collection<FindBugsStarter> predecessors) {
+		EventDispatchThreadHelper.checkEDT();
+		this.predecessors = predecessors;
+	}
+
+	@NotNull
+	final Collection<FindBugsStarter> getPredecessors() {
+		return predecessors;
+	}
+
 	private void startImpl(final boolean justCompiled) {
-		MessageBusManager.publishAnalysisStarted(project);
+		if (ApplicationManager.getApplication().isUnitTestMode()) {
+			run(justCompiled); // tasks run synchronously
+		} else {
+			AnalysisScheduler.getInstance(project).schedule(this, justCompiled);
+		}
+	}
 
-		if (!ApplicationManager.getApplication().isUnitTestMode()) {
-			final ToolWindow toolWindow = ToolWindowPanel.getWindow(project);
-			if (toolWindow == null) {
-				throw new IllegalStateException("No SpotBugs ToolWindow");
-			}
-			/*
-			 * Important: Make sure the tool window is initialized.
-			 * This call is important to make it just in case of false = toolWindowToFront
-			 * because we have no guarantee that activateToolWindow works.
-			 */
-			if (workspaceSettings.toolWindowToFront) {
-				ToolWindowPanel.showWindow(toolWindow);
-			}
+	/**
+	 * Invoked by {@link AnalysisScheduler} when it is the turn of this analysis.
+	 */
+	final void run(final boolean justCompiled) {
+		EventDispatchThreadHelper.checkEDT();
+		final Collection<FindBugsStarter> predecessors = this.predecessors;
+		if (predecessors.isEmpty()) {
+			publishStarted();
 		}
+		// only launched analyses are aborted by the user, see #asyncStart for disconnect
+		MessageBusManager.subscribe(project, this, AnalysisAbortingListener.TOPIC, this);
 
 		final Task task;
 		if (startProgressModal) {
 			task = new Task.Modal(project, _title, true) {
 				@Override
 				public void run(@NotNull final ProgressIndicator indicator) {
-					asyncStart(indicator, justCompiled);
+					asyncStart(indicator, justCompiled, predecessors);
 				}
 			};
 		} else {
 			task = new Task.Backgroundable(project, _title, true) {
 				@Override
 				public void run(@NotNull final ProgressIndicator indicator) {
-					asyncStart(indicator, justCompiled);
+					asyncStart(indicator, justCompiled, predecessors);
 				}
 
 				@Override
@@ -183,13 +283,77 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 		task.queue();
 	}
 
-	private void asyncStart(@NotNull final ProgressIndicator indicator, final boolean justCompiled) {
+	private void publishStarted() {
+		EventDispatchThreadHelper.checkEDT();
+		MessageBusManager.publishAnalysisStarted(project, isIncremental() && workspaceSettings.analyzeDependents);
+		project.getService(ProblemCacheService.class).clearReady();
+
+		if (!ApplicationManager.getApplication().isUnitTestMode()) {
+			final ToolWindow toolWindow = ToolWindowPanel.getWindow(project);
+			if (toolWindow == null) {
+				throw new IllegalStateException("No SpotBugs ToolWindow");
+			}
+			/*
+			 * Important: Make sure the tool window is initialized.
+			 * This call is important to make it just in case of false = toolWindowToFront
+			 * because we have no guarantee that activateToolWindow works.
+			 */
+			if (workspaceSettings.toolWindowToFront) {
+				ToolWindowPanel.showWindow(toolWindow);
+			}
+		}
+	}
+
+	private void asyncStart(
+			@NotNull final ProgressIndicator indicator,
+			final boolean justCompiled,
+			@NotNull final Collection<FindBugsStarter> predecessors
+	) {
 		indicator.setIndeterminate(true);
-		indicator.setText("Configure SpotBugs...");
+		boolean started = predecessors.isEmpty();
 		try {
+			if (!started) {
+				awaitPredecessors(indicator, predecessors);
+				/*
+				 * The events of the predecessors are already queued,
+				 * so the tool window sees them before the start of this analysis.
+				 */
+				EventDispatchThreadHelper.invokeAndWait(new EventDispatchThreadHelper.OperationAdapter() {
+					@Override
+					public void run() {
+						publishStarted();
+					}
+				});
+				started = true;
+			}
+			indicator.setText("Configure SpotBugs...");
 			asyncStartImpl(indicator, justCompiled);
 		} catch (final ProcessCanceledException ignore) {
-			MessageBusManager.publishAnalysisAbortedToEDT(project);
+			deleteJournals();
+			if (started) {
+				MessageBusManager.publishAnalysisAbortedToEDT(project);
+			}
+		} finally {
+			done.countDown();
+			AnalysisScheduler.getInstance(project).finished(this);
+			EventDispatchThreadHelper.invokeLater(() -> MessageBusManager.unsubscribe(project, this));
+		}
+	}
+
+	private void awaitPredecessors(@NotNull final ProgressIndicator indicator, @NotNull final Collection<FindBugsStarter> predecessors) {
+		indicator.setText("Waiting for the running SpotBugs analysis...");
+		try {
+			for (final FindBugsStarter predecessor : predecessors) {
+				while (!predecessor.done.await(100, TimeUnit.MILLISECONDS)) {
+					indicator.checkCanceled();
+					if (_cancellingByUser.get()) {
+						throw new ProcessCanceledException();
+					}
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ProcessCanceledException(e);
 		}
 	}
 
@@ -203,20 +367,65 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 		final FindBugsResult result = new FindBugsResult();
 		Throwable error = null;
 
+		if (!canceled) {
+			priorityClasses = ApplicationManager.getApplication().runReadAction(
+					(Computable<PriorityClasses>) () -> PriorityClasses.collect(project));
+		}
+
+		final int timeLimit = getTimeLimit();
+		deadline = timeLimit > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(timeLimit) : Reporter.NO_DEADLINE;
+
+		DependencyGraph dependencyGraph = null;
 		if (!canceled) {
 			try {
-				int numClassesOffset = 0;
-				for (final Map.Entry<Module, FindBugsProject> entry : projects.getProjects().entrySet()) {
-					final FindBugsProject findBugsProject = entry.getValue();
-					final Module module = entry.getKey();
-					indicator.setText("Start SpotBugs analysis of " + findBugsProject.getProjectName());
-					final Pair<SortedBugCollection, Reporter> data = executeImpl(indicator, module, findBugsProject, numClassesOffset);
-					final int numClasses = data.getSecond().getProjectStats().getNumClasses();
-					numClassesOffset += numClasses;
-					result.put(findBugsProject, data.getFirst());
-					if (data.getSecond().isCanceled()) {
-						canceled = true;
-						break;
+				if (workspaceSettings.analyzeDependents && isIncremental()) {
+					indicator.setText("Update class dependencies...");
+					dependencyGraph = DependencyGraph.load(project);
+					result.setIncremental(updateDependencyGraph(dependencyGraph, projects));
+				}
+
+				final AtomicInteger analyzedClassCount = new AtomicInteger();
+				final List<Map.Entry<Module, FindBugsProject>> sequential = new ArrayList<>(projects.getProjects().entrySet());
+				if (workspaceSettings.mergeModules || workspaceSettings.analysisThreads > 1) {
+					/*
+					 * SpotBugs plugins are loaded globally, so only modules which share the project settings
+					 * can be analyzed together or concurrently. Modules which override the project settings
+					 * are analyzed afterwards one after another.
+					 */
+					final List<Map.Entry<Module, FindBugsProject>> shared = new ArrayList<>();
+					for (final Map.Entry<Module, FindBugsProject> entry : projects.getProjects().entrySet()) {
+						if (!ModuleSettings.getInstance(entry.getKey()).overrideProjectSettings) {
+							shared.add(entry);
+						}
+					}
+					if (shared.size() > 1) {
+						sequential.removeAll(shared);
+						if (workspaceSettings.mergeModules) {
+							canceled = executeMerged(indicator, shared, result, analyzedClassCount);
+						} else {
+							canceled = executeParallel(indicator, shared, result, analyzedClassCount);
+						}
+					}
+				}
+				if (!canceled) {
+					for (final Map.Entry<Module, FindBugsProject> entry : sequential) {
+						final FindBugsProject findBugsProject = entry.getValue();
+						if (result.isPartial()) {
+							// time limit reached, remaining modules are not analyzed at all
+							result.markPartial(getUnanalyzedClasses(findBugsProject, Collections.emptySet()));
+							continue;
+						}
+						final Module module = entry.getKey();
+						indicator.setText("Start SpotBugs analysis of " + findBugsProject.getProjectName());
+						final Pair<SortedBugCollection, Reporter> data = executeImpl(indicator, module, findBugsProject, analyzedClassCount);
+						result.put(findBugsProject, data.getFirst());
+						result.putTimings(findBugsProject.getProjectName(), data.getSecond().getTimings());
+						if (data.getSecond().isTimedOut()) {
+							result.markPartial(data.getSecond().getUnanalyzedClasses());
+						} else if (data.getSecond().isCanceled()) {
+							canceled = true;
+							break;
+						}
 					}
 				}
 			} catch (final InterruptedException e) {
@@ -231,20 +440,202 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 			}
 		}
 
+		if (workspaceSettings.analyzeDependents && !canceled && error == null && !result.isPartial()) {
+			if (dependencyGraph == null) {
+				dependencyGraph = DependencyGraph.load(project);
+				updateDependencyGraph(dependencyGraph, projects);
+			}
+			dependencyGraph.save();
+		}
+		projects.getClassFiles().clear(); // the projects are referenced by the result
+		if (!canceled && error == null) {
+			updateDetectorsOverBudget();
+		}
 		if (canceled) {
 			MessageBusManager.publishAnalysisAbortedToEDT(project);
 		} else {
 			MessageBusManager.publishAnalysisFinishedToEDT(project, result, error);
 		}
+		if (!(error instanceof VirtualMachineError)) {
+			// keep the bugs found so far if the IDE is about to die
+			deleteJournals();
+		}
+	}
+
+	private void deleteJournals() {
+		for (final ResultJournal journal : journals) {
+			journal.delete();
+		}
+		journals.clear();
+	}
+
+	/**
+	 * Updates the {@link DependencyGraph} with the configured classes and adds the direct
+	 * dependents of them (and of deleted classes) in case of an {@link #isIncremental() incremental} analysis.
+	 * The graph is saved by the caller once the analysis is completed.
+	 *
+	 * @return the dotted class names of all classes which will be analyzed, and of the deleted classes
+	 * (so {@link FindBugsResult#merge(FindBugsResult)} drops their bugs)
+	 */
+	@NotNull
+	private Set<String> updateDependencyGraph(@NotNull final DependencyGraph graph, @NotNull final FindBugsProjects projects) {
+		final boolean includeTests = projects.isIncludeTests();
+		final Set<String> ret = new HashSet<>();
+		final List<String> outputDirs = new ArrayList<>();
+		for (final Map.Entry<Module, FindBugsProject> entry : projects.getProjects().entrySet()) {
+			ret.addAll(graph.update(entry.getKey().getName(), entry.getValue().getFileList(), projects.getClassFiles()));
+			ApplicationManager.getApplication().runReadAction(() -> {
+				addOutputDir(outputDirs, entry.getKey(), false);
+				if (includeTests) {
+					addOutputDir(outputDirs, entry.getKey(), true);
+				}
+			});
+		}
+		final Set<String> deletedClasses = graph.removeDeletedClasses(outputDirs);
+		if (isIncremental()) {
+			ret.addAll(deletedClasses);
+			final Map<String, DependencyGraph.Node> dependents = graph.getDependents(ret);
+			ApplicationManager.getApplication().runReadAction(() -> {
+				final ModuleManager moduleManager = ModuleManager.getInstance(project);
+				for (final Map.Entry<String, DependencyGraph.Node> dependent : dependents.entrySet()) {
+					final Module module = moduleManager.findModuleByName(dependent.getValue().module);
+					final String classFile = dependent.getValue().classFile;
+					if (module != null && new File(classFile).isFile() && (includeTests || !isTestOutput(module, classFile))) {
+						projects.get(module, includeTests).addFile(classFile);
+						ret.add(dependent.getKey());
+					}
+				}
+			});
+		}
+		return ret;
+	}
+
+	private static void addOutputDir(@NotNull final List<String> outputDirs, @NotNull final Module module, final boolean tests) {
+		final CompilerModuleExtension extension = CompilerModuleExtension.getInstance(module);
+		if (extension != null) {
+			final VirtualFile path = tests ? extension.getCompilerOutputPathForTests() : extension.getCompilerOutputPath();
+			if (path != null) {
+				outputDirs.add(path.getPath());
+			}
+		}
+	}
+
+	private static boolean isTestOutput(@NotNull final Module module, @NotNull final String classFile) {
+		final List<String> testOutputDirs = new ArrayList<>(1);
+		addOutputDir(testOutputDirs, module, true);
+		return !testOutputDirs.isEmpty() && new File(classFile).getPath().startsWith(new File(testOutputDirs.get(0)).getPath() + File.separator);
+	}
+
+	/**
+	 * Analyzes the given modules with one engine, see {@link MergedAnalysis}.
+	 *
+	 * @return {@code true} if the analysis was canceled
+	 */
+	private boolean executeMerged(
+			@NotNull final ProgressIndicator indicator,
+			@NotNull final List<Map.Entry<Module, FindBugsProject>> entries,
+			@NotNull final FindBugsResult result,
+			@NotNull final AtomicInteger analyzedClassCount
+	) throws IOException, InterruptedException {
+
+		final Module module = entries.get(0).getKey();
+		final AbstractSettings settings = loadSettings(module);
+		final MergedAnalysis mergedAnalysis = new MergedAnalysis(project, entries);
+		indicator.setText("Start SpotBugs analysis of " + mergedAnalysis.getProject().getProjectName());
+		final Pair<SortedBugCollection, Reporter> data = analyze(indicator, module, mergedAnalysis.getProject(), settings, analyzedClassCount, mergedAnalysis);
+		mergedAnalysis.putResults(result, data.getFirst());
+		result.putTimings(mergedAnalysis.getProject().getProjectName(), data.getSecond().getTimings());
+		if (data.getSecond().isTimedOut()) {
+			result.markPartial(data.getSecond().getUnanalyzedClasses());
+			return false;
+		}
+		return data.getSecond().isCanceled();
+	}
+
+	/**
+	 * Analyzes the given modules concurrently with a bounded pool of
+	 * {@link WorkspaceSettings#analysisThreads} workers. Each module still gets its own engine
+	 * and {@link Reporter}, the results are merged into {@code result} in module order.
+	 *
+	 * @return {@code true} if the analysis was canceled
+	 */
+	private boolean executeParallel(
+			@NotNull final ProgressIndicator indicator,
+			@NotNull final List<Map.Entry<Module, FindBugsProject>> entries,
+			@NotNull final FindBugsResult result,
+			@NotNull final AtomicInteger analyzedClassCount
+	) throws Exception {
+
+		// all modules share the project settings, so import settings and load plugins only once
+		final AbstractSettings settings = loadSettings(entries.get(0).getKey());
+
+		final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+				"SpotBugs Analysis", Math.min(workspaceSettings.analysisThreads, entries.size()));
+		final List<Future<Pair<SortedBugCollection, Reporter>>> futures = new ArrayList<>(entries.size());
+		try {
+			for (final Map.Entry<Module, FindBugsProject> entry : entries) {
+				futures.add(executor.submit(() -> {
+					indicator.setText("Start SpotBugs analysis of " + entry.getValue().getProjectName());
+					return analyze(indicator, entry.getKey(), entry.getValue(), settings, analyzedClassCount, null);
+				}));
+			}
+
+			boolean canceled = false;
+			for (int i = 0; i < futures.size(); i++) {
+				final Pair<SortedBugCollection, Reporter> data;
+				try {
+					data = futures.get(i).get();
+				} catch (final CancellationException e) {
+					canceled = true;
+					continue;
+				} catch (final ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (canceled || cause instanceof InterruptedException || cause instanceof ProcessCanceledException) {
+						// worker was interrupted because another worker (or the user) canceled the analysis
+						canceled = true;
+						continue;
+					}
+					throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+				}
+				result.put(entries.get(i).getValue(), data.getFirst());
+				result.putTimings(entries.get(i).getValue().getProjectName(), data.getSecond().getTimings());
+				if (data.getSecond().isTimedOut()) {
+					// all workers share the deadline, so there is no need to stop the others
+					result.markPartial(data.getSecond().getUnanalyzedClasses());
+				} else if (data.getSecond().isCanceled() && !canceled) {
+					canceled = true;
+					for (final Future<?> future : futures) {
+						future.cancel(true);
+					}
+				}
+			}
+			return canceled;
+		} finally {
+			for (final Future<?> future : futures) {
+				future.cancel(true);
+			}
+			executor.shutdownNow();
+		}
 	}
 
 	private Pair<SortedBugCollection, Reporter> executeImpl(
 			@NotNull final ProgressIndicator indicator,
 			@NotNull final Module module,
 			@NotNull final FindBugsProject findBugsProject,
-			final int analyzedClassCountOffset
+			@NotNull final AtomicInteger analyzedClassCount
 	) throws IOException, InterruptedException {
 
+		final AbstractSettings settings = loadSettings(module);
+		return analyze(indicator, module, findBugsProject, settings, analyzedClassCount, null);
+	}
+
+	/**
+	 * Imports the runtime settings (if configured) and loads the SpotBugs plugins for the given module.
+	 *
+	 * @return the effective settings of the module
+	 */
+	@NotNull
+	private AbstractSettings loadSettings(@NotNull final Module module) {
 		final ModuleSettings moduleSettings = ModuleSettings.getInstance(module);
 		AbstractSettings settings = projectSettings;
 		String importFilePathKey = WorkspaceSettings.PROJECT_IMPORT_FILE_PATH_KEY;
@@ -255,19 +646,27 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 
 		final String importFilePath = WorkspaceSettings.getInstance(project).importFilePath.get(importFilePathKey);
 		if (!StringUtil.isEmptyOrSpaces(importFilePath)) {
-			final boolean success = RuntimeSettingsImporter.importSettings(project, module, settings, importFilePath, importFilePathKey);
 			/*
-			 * Do continue analysis on import settings failure, but invalidate plugin state
-			 * on success because the plugins settings can change anytime.
+			 * Do continue analysis on import settings failure. Changed plugin settings are
+			 * loaded by PluginLoader because they change the fingerprint of the configuration.
 			 */
-			if (success) {
-				PluginLoader.invalidate();
-			}
+			RuntimeSettingsImporter.importSettings(project, module, settings, importFilePath, importFilePathKey);
 		}
 
-		if (!PluginLoader.load(project, moduleSettings.overrideProjectSettings ? module : null, settings, true)) {
+		if (!PluginLoader.load(project, settings, true)) {
 			throw new ProcessCanceledException();
 		}
+		return settings;
+	}
+
+	private Pair<SortedBugCollection, Reporter> analyze(
+			@NotNull final ProgressIndicator indicator,
+			@NotNull final Module module,
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final AbstractSettings settings,
+			@NotNull final AtomicInteger analyzedClassCount,
+			@Nullable final MergedAnalysis mergedAnalysis
+	) throws IOException, InterruptedException {
 
 		final DetectorFactoryCollection detectorFactoryCollection = DetectorFactoryCollection.instance();
 
@@ -296,8 +695,18 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 				configureDetectors(pluginSettings.detectors, detectorFactoryCollection, userPrefs);
 			}
 		}
+		final Set<String> disabledOverBudget = getDisabledOverBudget(settings);
+		for (final String detector : disabledOverBudget) {
+			final DetectorFactory detectorFactory = detectorFactoryCollection.getFactory(detector);
+			if (detectorFactory != null) {
+				userPrefs.enableDetector(detectorFactory, false);
+			}
+		}
 
-		final SortedBugCollection bugCollection = new SortedBugCollection(findBugsProject);
+		final DetectorBudget budget = DetectorBudget.isEnabled(settings.detectorBudgetPerClass, settings.detectorBudgetTotal) ?
+				new DetectorBudget(settings.detectorBudgetPerClass, TimeUnit.SECONDS.toMillis(settings.detectorBudgetTotal)) : null;
+		final AnalysisProfiler profiler = budget != null ? budget : new AnalysisProfiler();
+		final SortedBugCollection bugCollection = new SortedBugCollection(profiler.createProjectStats(), findBugsProject);
 
 		final Reporter reporter = new Reporter(
 				project,
@@ -306,35 +715,197 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 				projectFilterSettings,
 				indicator,
 				_cancellingByUser,
-				analyzedClassCountOffset
+				analyzedClassCount
 		);
 
 		reporter.setPriorityThreshold(userPrefs.getUserDetectorThreshold());
 		reporter.setRankThreshold(projectFilterSettings.getMinRank());
+		reporter.setMergedAnalysis(mergedAnalysis);
+		reporter.setDeadline(deadline);
+		final int shardCount = getShardCount(findBugsProject);
+		// the bugs of an incremental analysis are shown when it is finished, see ToolWindowPanel
+		// shards report their classes interleaved, so the reporter can not tell when the priority classes are finished
+		reporter.setPriorityClasses(!isIncremental() && shardCount == 1 ? priorityClasses : null);
+		reporter.getTimings().addDisabled(disabledOverBudget);
+		// the bugs of an incremental analysis are no usable result on their own
+		final ResultJournal journal = isIncremental() ? null : ResultJournal.create(project, module);
+		if (journal != null) {
+			journals.add(journal);
+		}
+		reporter.setJournal(journal);
 
-		final FindBugs2 engine = new FindBugs2();
+		final PrioritizedEngine engine = new PrioritizedEngine();
 		{
+			engine.setPriorityClasses(priorityClasses.getClassNames());
 			engine.setNoClassOk(true);
 			engine.setMergeSimilarWarnings(false);
-			engine.setBugReporter(reporter);
+			engine.setBugReporter(FilterCache.configure(reporter, userPrefs, LOGGER::error));
 			engine.setProject(findBugsProject);
 			engine.setProgressCallback(reporter);
-			configureFilter(engine, userPrefs);
 			engine.setDetectorFactoryCollection(detectorFactoryCollection);
 			engine.setUserPreferences(userPrefs);
 		}
 
+		if (workspaceSettings.pruneLibraries) {
+			// before the cache is opened, its fingerprint includes the aux classpath
+			LibraryIndex.pruneAuxClasspath(findBugsProject);
+		}
+		final AnalysisCache cache = workspaceSettings.incrementalAnalysis ? AnalysisCache.open(
+				project, mergedAnalysis != null ? project.getName() + "-merged" : module.getName(), findBugsProject, settings, disabledOverBudget) : null;
+		if (cache != null) {
+			engine.setClassScreener(cache);
+			cache.replay(reporter);
+		}
+
 		try {
-			engine.execute();
+			if (cache != null && !cache.hasChangedClasses()) {
+				reporter.finish(); // all classes unchanged, all bugs are replayed
+			} else if (shardCount > 1) {
+				AnalysisDaemonService.getInstance(project).analyzeSharded(
+						findBugsProject,
+						userPrefs,
+						settings,
+						cache != null ? cache.getUnchangedResources() : Collections.emptySet(),
+						priorityClasses.getClassNames(),
+						reporter,
+						workspaceSettings.daemonMaxHeap,
+						shardCount
+				);
+			} else if (workspaceSettings.analyzeInDaemon) {
+				AnalysisDaemonService.getInstance(project).analyze(
+						findBugsProject,
+						userPrefs,
+						settings,
+						cache != null ? cache.getUnchangedResources() : Collections.emptySet(),
+						priorityClasses.getClassNames(),
+						reporter,
+						workspaceSettings.daemonMaxHeap
+				);
+			} else {
+				try {
+					engine.execute();
+				} catch (final InterruptedException e) {
+					if (!reporter.isTimedOut()) {
+						throw e;
+					}
+					Thread.interrupted(); // clear interrupt of Reporter, the bugs found so far are published
+					reporter.finish(); // not invoked by FindBugs2 if interrupted
+				}
+				reporter.getTimings().addProfiler(profiler);
+				if (budget != null) {
+					reporter.getTimings().addOverBudget(budget.getSkipped());
+				}
+			}
 		} finally {
 			engine.dispose();
+			if (journal != null) {
+				journal.close();
+			}
 		}
 
 		bugCollection.setTimestamp(System.currentTimeMillis());
+		if (reporter.isTimedOut()) {
+			final Set<String> analyzed = new HashSet<>(reporter.getAnalyzedClasses());
+			if (cache != null) {
+				for (final String resource : cache.getUnchangedResources()) {
+					analyzed.add(resource.substring(0, resource.length() - ".class".length()).replace('/', '.'));
+				}
+			}
+			reporter.setUnanalyzedClasses(getUnanalyzedClasses(findBugsProject, analyzed));
+			reporter.getProjectStats().setTotalClasses(analyzed.size());
+		}
+		analyzedClassCount.addAndGet(reporter.getProjectStats().getNumClasses());
+		final Set<String> overBudget = reporter.getTimings().getOverBudget();
+		if (!overBudget.isEmpty()) {
+			LOGGER.info("Detectors skipped because they exceeded the time budget: " + overBudget);
+		}
+		if (!reporter.isCanceled() && settings.disableDetectorsOverBudget) {
+			collectDetectorsOverBudget(overBudget, disabledOverBudget);
+		}
+		// results of skipped detectors are incomplete
+		if (cache != null && !reporter.isCanceled() && overBudget.isEmpty()) {
+			cache.store(bugCollection);
+		}
 
 		return Pair.create(bugCollection, reporter);
 	}
 
+	/**
+	 * Only class files are considered, archives and directories of the project are not listed.
+	 *
+	 * @param analyzedClasses dotted names of the completely analyzed classes
+	 * @return dotted names of the classes of the given project which were not (completely) analyzed
+	 */
+	@NotNull
+	private static Set<String> getUnanalyzedClasses(@NotNull final FindBugsProject findBugsProject, @NotNull final Set<String> analyzedClasses) {
+		final Set<String> ret = new TreeSet<>();
+		for (final String filePath : findBugsProject.getFileList()) {
+			if (!filePath.endsWith(".class")) {
+				continue;
+			}
+			final String className = findBugsProject.getClassFiles().getClassName(filePath);
+			if (!analyzedClasses.contains(className)) {
+				ret.add(className);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return detectors which exceeded the time budget in {@link #DISABLE_OVER_BUDGET_AFTER} consecutive analyses
+	 */
+	@NotNull
+	private Set<String> getDisabledOverBudget(@NotNull final AbstractSettings settings) {
+		final Set<String> ret = new TreeSet<>();
+		if (settings.disableDetectorsOverBudget) {
+			synchronized (workspaceSettings) {
+				for (final Map.Entry<String, Integer> entry : workspaceSettings.detectorsOverBudget.entrySet()) {
+					if (entry.getValue() >= DISABLE_OVER_BUDGET_AFTER) {
+						ret.add(entry.getKey());
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Adds the detectors of one module to {@link #detectorsOverBudget}. Note that modules can be analyzed concurrently.
+	 */
+	private synchronized void collectDetectorsOverBudget(@NotNull final Set<String> overBudget, @NotNull final Set<String> disabled) {
+		if (detectorsOverBudget == null) {
+			detectorsOverBudget = Pair.create(new HashSet<>(), new HashSet<>());
+		}
+		detectorsOverBudget.getFirst().addAll(overBudget);
+		detectorsOverBudget.getSecond().addAll(disabled);
+	}
+
+	/**
+	 * Counts the consecutive analyses in which a detector exceeded the time budget (in any module).
+	 * The count of a detector which ran within the budget (in all modules) is reset. Invoked once per analysis.
+	 */
+	private synchronized void updateDetectorsOverBudget() {
+		if (detectorsOverBudget == null) {
+			return;
+		}
+		final Set<String> overBudget = detectorsOverBudget.getFirst();
+		final Set<String> disabled = detectorsOverBudget.getSecond();
+		detectorsOverBudget = null;
+		synchronized (workspaceSettings) {
+			workspaceSettings.detectorsOverBudget.keySet().removeIf(detector -> !overBudget.contains(detector) && !disabled.contains(detector));
+			for (final String detector : overBudget) {
+				workspaceSettings.detectorsOverBudget.merge(detector, 1, Integer::sum);
+			}
+		}
+	}
+
+	/**
+	 * @return number of worker processes for the given project, see {@link AnalysisDaemonService#analyzeSharded}
+	 */
+	private int getShardCount(@NotNull final FindBugsProject findBugsProject) {
+		return Math.max(1, Math.min(workspaceSettings.analysisShards, findBugsProject.getFileCount() / MIN_CLASSES_PER_SHARD));
+	}
+
 	protected abstract void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer);
 
 	@NotNull
@@ -419,46 +990,6 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 		}
 	}
 
-	private static void configureFilter(
-			@NotNull final FindBugs2 engine,
-			@NotNull final UserPreferences userPrefs
-	) {
-
-		final Map<String, Boolean> excludeFilterFiles = userPrefs.getExcludeFilterFiles();
-		for (final Map.Entry<String, Boolean> excludeFileName : excludeFilterFiles.entrySet()) {
-			if (excludeFileName.getValue()) {
-				final String filePath = excludeFileName.getKey();
-				try {
-					engine.addFilter(filePath, false);
-				} catch (final IOException e) {
-					LOGGER.error("ExcludeFilter configuration failed.", e);
-				}
-			}
-		}
-		final Map<String, Boolean> includeFilterFiles = userPrefs.getIncludeFilterFiles();
-		for (final Map.Entry<String, Boolean> includeFileName : includeFilterFiles.entrySet()) {
-			if (includeFileName.getValue()) {
-				final String filePath = includeFileName.getKey();
-				try {
-					engine.addFilter(filePath, true);
-				} catch (final IOException e) {
-					LOGGER.error("IncludeFilter configuration failed.", e);
-				}
-			}
-		}
-		final Map<String, Boolean> excludeBugFiles = userPrefs.getExcludeBugsFiles();
-		for (final Map.Entry<String, Boolean> excludeBugFile : excludeBugFiles.entrySet()) {
-			if (excludeBugFile.getValue()) {
-				final String filePath = excludeBugFile.getKey();
-				try {
-					engine.excludeBaselineBugs(filePath);
-				} catch (final IOException | DocumentException e) {
-					LOGGER.error("ExcludeBaseLineBug files configuration failed.", e);
-				}
-			}
-		}
-	}
-
 	protected final void showWarning(@NotNull final String message) {
 		EventDispatchThreadHelper.invokeLater(() -> BalloonTipFactory.showToolWindowWarnNotifier(
 				project, message + " " + ResourcesLoader.getString("analysis.aborted")));
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.util.HashUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Persistent index of the classes of library jars, persisted below the IDE system directory and shared by
+ * all modules and projects. A jar is identified by its path, size and modification time, and its index is
+ * stored by content hash, so a jar which is copied to another path is not indexed again.
+ * <p>
+ * SpotBugs opens every aux classpath entry and scans all entries of every jar on every analysis.
+ * {@link #pruneAuxClasspath(FindBugsProject)} uses the index to remove the jars which do not contain any class
+ * referenced by the analyzed classes, including the super types, annotations (of the class and its members) and thrown
+ * exceptions of the referenced library classes (which SpotBugs needs to resolve the class hierarchy, type qualifiers
+ * and exception handlers). Directories of the aux classpath
+ * (like the compiler output of the module) are not indexed, the referenced classes are read from them directly.
+ */
+final class LibraryIndex {
+
+	private static final Logger LOGGER = Logger.getInstance(LibraryIndex.class);
+	private static final Object LOCK = new Object();
+
+	private static final String FORMAT = "# SpotBugs library index 2";
+	private static final String PATHS_FILE = "paths.txt";
+	private static final String INDEX_SUFFIX = ".idx";
+	private static final String CLASS_SUFFIX = ".class";
+
+	/**
+	 * Jar path to key, loaded from {@link #PATHS_FILE}.
+	 */
+	@NotNull
+	private final Map<String, JarKey> paths;
+
+	@NotNull
+	private final File dir;
+
+	private boolean changed;
+
+	private LibraryIndex(@NotNull final File dir) {
+		this.dir = dir;
+		paths = new HashMap<>();
+	}
+
+	/**
+	 * Removes the library jars from the aux classpath of the given project which are not needed to analyze
+	 * its classes. Nothing is removed if the project contains archives or directories to analyze, because
+	 * their references are not known before the analysis.
+	 */
+	static void pruneAuxClasspath(@NotNull final FindBugsProject findBugsProject) {
+		pruneAuxClasspath(findBugsProject, findBugsProject.getClassFiles(), new File(new File(PathManager.getSystemPath(), "spotbugs"), "libraries"));
+	}
+
+	/**
+	 * @param classFiles parsed class files of the given project
+	 * @param dir        directory of the index
+	 */
+	static void pruneAuxClasspath(@NotNull final edu.umd.cs.findbugs.Project findBugsProject, @NotNull final ClassFiles classFiles, @NotNull final File dir) {
+		final Set<String> referenced = new HashSet<>();
+		for (final String filePath : findBugsProject.getFileList()) {
+			if (!filePath.endsWith(CLASS_SUFFIX)) {
+				return;
+			}
+			try {
+				referenced.addAll(classFiles.get(filePath).references);
+			} catch (final IOException | RuntimeException e) {
+				LOGGER.debug("Could not read class file " + filePath, e);
+				return;
+			}
+		}
+
+		final List<String> auxClasspath = findBugsProject.getAuxClasspathEntryList();
+		final Map<String, Map<String, ClassFiles.ClassInfo>> indexes = new HashMap<>();
+		synchronized (LOCK) {
+			final LibraryIndex index = load(dir);
+			for (final String entry : auxClasspath) {
+				if (isArchive(entry) && !indexes.containsKey(entry)) {
+					final Map<String, ClassFiles.ClassInfo> classes = index.get(new File(entry));
+					if (classes != null) {
+						indexes.put(entry, classes);
+					}
+				}
+			}
+			index.save();
+		}
+
+		// the first entry on the classpath which contains a class wins, like in SpotBugs
+		final Map<String, Integer> classToJar = new HashMap<>();
+		final Map<String, ClassFiles.ClassInfo> classInfos = new HashMap<>();
+		final List<Integer> directories = new ArrayList<>();
+		for (int i = 0; i < auxClasspath.size(); i++) {
+			final Map<String, ClassFiles.ClassInfo> classes = indexes.get(auxClasspath.get(i));
+			if (classes != null) {
+				for (final Map.Entry<String, ClassFiles.ClassInfo> classEntry : classes.entrySet()) {
+					if (classToJar.putIfAbsent(classEntry.getKey(), i) == null) {
+						classInfos.put(classEntry.getKey(), classEntry.getValue());
+					}
+				}
+			} else if (new File(auxClasspath.get(i)).isDirectory()) {
+				directories.add(i);
+			}
+		}
+
+		final Set<String> needed = new HashSet<>();
+		final Set<String> visited = new HashSet<>();
+		final Deque<String> work = new ArrayDeque<>(referenced);
+		while (!work.isEmpty()) {
+			final String className = work.pop();
+			if (!visited.add(className)) {
+				continue;
+			}
+			final Integer jar = classToJar.get(className);
+			final ClassFiles.ClassInfo directoryClass;
+			try {
+				directoryClass = readFromDirectories(auxClasspath, directories, className, jar != null ? jar : Integer.MAX_VALUE);
+			} catch (final IOException | RuntimeException e) {
+				LOGGER.debug("Could not read class " + className + " of aux classpath, nothing is removed", e);
+				return;
+			}
+			if (directoryClass != null) {
+				work.addAll(directoryClass.references);
+			} else if (jar != null) {
+				needed.add(auxClasspath.get(jar));
+				work.addAll(classInfos.get(className).references);
+			}
+		}
+
+		int removed = 0;
+		for (int i = findBugsProject.getNumAuxClasspathEntries() - 1; i >= 0; i--) {
+			final String entry = findBugsProject.getAuxClasspathEntry(i);
+			if (indexes.containsKey(entry) && !needed.contains(entry)) {
+				findBugsProject.removeAuxClasspathEntry(i);
+				removed++;
+			}
+		}
+		LOGGER.debug("Removed " + removed + " of " + indexes.size() + " library jars from aux classpath of " + findBugsProject.getProjectName());
+	}
+
+	/**
+	 * @param directories positions of the directories in the aux classpath
+	 * @param before      only the directories before this position are searched
+	 * @return the given class of the first directory which contains it, {@code null} if not found
+	 */
+	@Nullable
+	private static ClassFiles.ClassInfo readFromDirectories(
+			@NotNull final List<String> auxClasspath,
+			@NotNull final List<Integer> directories,
+			@NotNull final String className,
+			final int before
+	) throws IOException {
+		final String path = className.replace('.', '/') + CLASS_SUFFIX;
+		for (final int i : directories) {
+			if (i >= before) {
+				break;
+			}
+			final File file = new File(auxClasspath.get(i), path);
+			if (file.isFile()) {
+				try (InputStream in = Files.newInputStream(file.toPath())) {
+					return ClassFiles.readClass(in, false);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean isArchive(@NotNull final String path) {
+		final String lower = path.toLowerCase(Locale.ENGLISH);
+		return (lower.endsWith(".jar") || lower.endsWith(".zip")) && new File(path).isFile();
+	}
+
+	/**
+	 * Caller must hold {@link #LOCK}.
+	 */
+	@NotNull
+	private static LibraryIndex load(@NotNull final File dir) {
+		final LibraryIndex ret = new LibraryIndex(dir);
+		final File file = new File(ret.dir, PATHS_FILE);
+		if (file.isFile()) {
+			try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					final String[] parts = line.split("\t");
+					if (parts.length == 4) {
+						ret.paths.put(parts[0], new JarKey(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
+					}
+				}
+			} catch (final IOException | NumberFormatException e) {
+				LOGGER.warn("Could not read library index " + file, e);
+				ret.paths.clear();
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return dotted class name to class info of the given jar, {@code null} if the jar could not be read
+	 */
+	@Nullable
+	private Map<String, ClassFiles.ClassInfo> get(@NotNull final File jar) {
+		final long size = jar.length();
+		final long modified = jar.lastModified();
+		try {
+			final JarKey key = paths.get(jar.getPath());
+			if (key != null && key.size == size && key.modified == modified) {
+				final Map<String, ClassFiles.ClassInfo> ret = readIndex(new File(dir, key.hash + INDEX_SUFFIX));
+				if (ret != null) {
+					return ret;
+				}
+			}
+			final String hash = HashUtil.sha256(jar);
+			final File indexFile = new File(dir, hash + INDEX_SUFFIX);
+			Map<String, ClassFiles.ClassInfo> ret = readIndex(indexFile); // same jar at another path
+			if (ret == null) {
+				ret = scan(jar);
+				writeIndex(indexFile, ret);
+			}
+			paths.put(jar.getPath(), new JarKey(size, modified, hash));
+			changed = true;
+			return ret;
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.debug("Could not index library " + jar, e);
+			return null;
+		}
+	}
+
+	@NotNull
+	private static Map<String, ClassFiles.ClassInfo> scan(@NotNull final File jar) throws IOException {
+		final Map<String, ClassFiles.ClassInfo> ret = new HashMap<>();
+		try (ZipFile zipFile = new ZipFile(jar)) {
+			final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				final ZipEntry entry = entries.nextElement();
+				final String name = entry.getName();
+				if (entry.isDirectory() || !name.endsWith(CLASS_SUFFIX) || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+					continue;
+				}
+				try (InputStream in = zipFile.getInputStream(entry)) {
+					final ClassFiles.ClassInfo classInfo = ClassFiles.readClass(in, false);
+					if (classInfo != null) {
+						ret.put(classInfo.name, classInfo);
+					}
+				} catch (final IOException | RuntimeException e) {
+					LOGGER.debug("Could not read " + name + " of " + jar, e);
+				}
+			}
+		}
+		return ret;
+	}
+
+	@Nullable
+	private static Map<String, ClassFiles.ClassInfo> readIndex(@NotNull final File indexFile) throws IOException {
+		if (!indexFile.isFile()) {
+			return null;
+		}
+		final Map<String, ClassFiles.ClassInfo> ret = new HashMap<>();
+		try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+			if (!FORMAT.equals(reader.readLine())) {
+				return null;
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] parts = line.split("\t");
+				ret.put(parts[0], new ClassFiles.ClassInfo(parts[0], Arrays.asList(parts).subList(1, parts.length)));
+			}
+		}
+		return ret;
+	}
+
+	private static void writeIndex(@NotNull final File indexFile, @NotNull final Map<String, ClassFiles.ClassInfo> classes) throws IOException {
+		final File dir = indexFile.getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Could not create directory " + dir);
+		}
+		final File tmp = new File(dir, indexFile.getName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(FORMAT);
+			writer.newLine();
+			for (final ClassFiles.ClassInfo classInfo : classes.values()) {
+				writer.write(classInfo.name);
+				for (final String reference : classInfo.references) {
+					writer.write('\t');
+					writer.write(reference);
+				}
+				writer.newLine();
+			}
+		}
+		Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Writes the paths (if changed) and deletes the indexes of jars which are gone.
+	 */
+	private void save() {
+		if (!changed) {
+			return;
+		}
+		final File file = new File(dir, PATHS_FILE);
+		try {
+			final Set<String> hashes = new HashSet<>();
+			final File tmp = new File(dir, PATHS_FILE + ".tmp");
+			try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+				for (final Map.Entry<String, JarKey> entry : paths.entrySet()) {
+					if (!new File(entry.getKey()).isFile()) {
+						continue;
+					}
+					final JarKey key = entry.getValue();
+					hashes.add(key.hash);
+					writer.write(entry.getKey() + '\t' + key.size + '\t' + key.modified + '\t' + key.hash);
+					writer.newLine();
+				}
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			final File[] indexFiles = dir.listFiles((d, name) -> name.endsWith(INDEX_SUFFIX));
+			if (indexFiles != null) {
+				for (final File indexFile : indexFiles) {
+					final String name = indexFile.getName();
+					if (!hashes.contains(name.substring(0, name.length() - INDEX_SUFFIX.length()))) {
+						Files.deleteIfExists(indexFile.toPath());
+					}
+				}
+			}
+		} catch (final IOException e) {
+			LOGGER.warn("Could not write library index " + file, e);
+		}
+	}
+
+	private static final class JarKey {
+
+		private final long size;
+
+		private final long modified;
+
+		@NotNull
+		private final String hash;
+
+		private JarKey(final long size, final long modified, @NotNull final String hash) {
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+		}
+	}
+}
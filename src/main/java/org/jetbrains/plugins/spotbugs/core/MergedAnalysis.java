@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.PackageStats;
+import edu.umd.cs.findbugs.ProjectStats;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Analysis of several modules with one engine invocation. The class hierarchy, the aux classpath
+ * (JDK, libraries, module outputs) and the analysis caches of SpotBugs are built only once.
+ * <p>
+ * The bugs are attributed back to the module which owns the class file of the primary class,
+ * so every module still gets its own {@link SortedBugCollection} in the {@link FindBugsResult}.
+ */
+final class MergedAnalysis {
+
+	private static final Logger LOGGER = Logger.getInstance(MergedAnalysis.class);
+
+	@NotNull
+	private final FindBugsProject project;
+
+	@NotNull
+	private final Map<FindBugsProject, Pair<Module, SortedBugCollection>> modules;
+
+	/**
+	 * Dotted class name to owning module.
+	 */
+	@NotNull
+	private final Map<String, Pair<Module, SortedBugCollection>> owners;
+
+	/**
+	 * Dotted class names of the analyzed interfaces.
+	 */
+	@NotNull
+	private final Set<String> interfaces;
+
+	@NotNull
+	private final Pair<Module, SortedBugCollection> fallback;
+
+	MergedAnalysis(@NotNull final Project project, @NotNull final List<Map.Entry<Module, FindBugsProject>> entries) {
+		final List<FindBugsProject> projects = new ArrayList<>(entries.size());
+		modules = new LinkedHashMap<>();
+		owners = new HashMap<>();
+		interfaces = new HashSet<>();
+		for (final Map.Entry<Module, FindBugsProject> entry : entries) {
+			final FindBugsProject findBugsProject = entry.getValue();
+			final Pair<Module, SortedBugCollection> owner = Pair.create(entry.getKey(), new SortedBugCollection(findBugsProject));
+			projects.add(findBugsProject);
+			modules.put(findBugsProject, owner);
+			for (final String filePath : findBugsProject.getFileList()) {
+				if (filePath.endsWith(".class")) {
+					try {
+						final ClassFiles.ClassFile classFile = findBugsProject.getClassFiles().get(filePath);
+						owners.put(classFile.name, owner);
+						if (classFile.isInterface) {
+							interfaces.add(classFile.name);
+						}
+					} catch (final IOException | RuntimeException e) {
+						LOGGER.warn("Could not read class file " + filePath, e);
+					}
+				}
+			}
+		}
+		this.project = FindBugsProject.merge(project, project.getName(), projects);
+		fallback = modules.values().iterator().next();
+	}
+
+	@NotNull
+	FindBugsProject getProject() {
+		return project;
+	}
+
+	/**
+	 * @return the module and bug collection which owns the primary class of the given bug
+	 */
+	@NotNull
+	Pair<Module, SortedBugCollection> findOwner(@NotNull final BugInstance bug) {
+		String className = bug.getPrimaryClass().getClassName();
+		Pair<Module, SortedBugCollection> ret = owners.get(className);
+		while (ret == null) {
+			final int nested = className.lastIndexOf('$');
+			if (nested < 0) {
+				return fallback;
+			}
+			className = className.substring(0, nested);
+			ret = owners.get(className);
+		}
+		return ret;
+	}
+
+	/**
+	 * Distributes the class statistics of the merged run and puts the bug collection
+	 * of every module into the result.
+	 */
+	void putResults(@NotNull final FindBugsResult result, @NotNull final SortedBugCollection bugCollection) {
+		final ProjectStats stats = bugCollection.getProjectStats();
+		for (final PackageStats packageStats : stats.getPackageStats()) {
+			for (final PackageStats.ClassStats classStats : packageStats.getClassStats()) {
+				final Pair<Module, SortedBugCollection> owner = owners.getOrDefault(classStats.getName(), fallback);
+				final String className = classStats.getName();
+				owner.getSecond().getProjectStats().addClass(className, classStats.getSourceFile(), interfaces.contains(className), classStats.size());
+			}
+		}
+		for (final Map.Entry<FindBugsProject, Pair<Module, SortedBugCollection>> entry : modules.entrySet()) {
+			final SortedBugCollection moduleBugCollection = entry.getValue().getSecond();
+			moduleBugCollection.setTimestamp(bugCollection.getTimestamp());
+			result.put(entry.getKey(), moduleBugCollection);
+		}
+	}
+}
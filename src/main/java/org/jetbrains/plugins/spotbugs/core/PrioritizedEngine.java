@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.FindBugsProgress;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import edu.umd.cs.findbugs.util.TopologicalSort;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Engine which analyzes some classes (like the classes of the open editors) before all others in the last pass,
+ * so their bugs are reported first. Bugs are only reported in the last pass, and all databases of the
+ * interprocedural analyses are built in the earlier passes, so the ordering does not change the result.
+ * The earlier passes keep the call graph order of FindBugs2.
+ * <p>
+ * Note that this class is used by the analysis daemon too, so it must not depend on IntelliJ classes.
+ */
+public final class PrioritizedEngine extends FindBugs2 {
+
+	/**
+	 * Dotted top level class name to priority (lower first).
+	 */
+	@NotNull
+	private Map<String, Integer> priorities;
+
+	private int passCount;
+
+	private int pass = -1;
+
+	public PrioritizedEngine() {
+		priorities = Collections.emptyMap();
+	}
+
+	/**
+	 * @param classNames dotted top level class names in the order they should be analyzed,
+	 *                   nested classes are analyzed together with their top level class
+	 */
+	public void setPriorityClasses(@NotNull final List<String> classNames) {
+		priorities = new HashMap<>();
+		for (final String className : classNames) {
+			priorities.putIfAbsent(className, priorities.size());
+		}
+	}
+
+	@NotNull
+	public static String getTopLevelClassName(@NotNull final String dottedClassName) {
+		final int nested = dottedClassName.indexOf('$');
+		return nested < 0 ? dottedClassName : dottedClassName.substring(0, nested);
+	}
+
+	/**
+	 * Invoked by {@link #setUserPreferences(UserPreferences)}. FindBugs2 parses every filter and baseline file
+	 * for every engine, the caller adds the cached ones with {@link FilterCache#configure} instead.
+	 */
+	@Override
+	protected void configureFilters(final UserPreferences userPreferences) {
+	}
+
+	@Override
+	public void setProgressCallback(final FindBugsProgress progressCallback) {
+		super.setProgressCallback(new PassTracker(progressCallback));
+	}
+
+	/**
+	 * Invoked by FindBugs2 before every pass (except a prescan) over the application classes.
+	 */
+	@Override
+	public List<ClassDescriptor> sortByCallGraph(
+			final Collection<ClassDescriptor> classList,
+			final TopologicalSort.OutEdges<ClassDescriptor> outEdges
+	) {
+		final List<ClassDescriptor> ret = super.sortByCallGraph(classList, outEdges);
+		if (priorities.isEmpty() || pass + 1 != passCount - 1) {
+			return ret;
+		}
+		final List<ClassDescriptor> sorted = new ArrayList<>(ret);
+		// stable, so the call graph order is kept within the same priority and for all other classes
+		sorted.sort((a, b) -> Integer.compare(getPriority(a), getPriority(b)));
+		return sorted;
+	}
+
+	private int getPriority(@NotNull final ClassDescriptor classDescriptor) {
+		final Integer ret = priorities.get(getTopLevelClassName(classDescriptor.getDottedClassName()));
+		return ret != null ? ret : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Counts the passes, FindBugs2 does not expose the current pass.
+	 */
+	private final class PassTracker implements FindBugsProgress {
+
+		@NotNull
+		private final FindBugsProgress delegate;
+
+		private PassTracker(@NotNull final FindBugsProgress delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void reportNumberOfArchives(final int numArchives) {
+			delegate.reportNumberOfArchives(numArchives);
+		}
+
+		@Override
+		public void startArchive(final String name) {
+			delegate.startArchive(name);
+		}
+
+		@Override
+		public void finishArchive() {
+			delegate.finishArchive();
+		}
+
+		@Override
+		public void predictPassCount(final int[] classesPerPass) {
+			passCount = classesPerPass.length;
+			delegate.predictPassCount(classesPerPass);
+		}
+
+		@Override
+		public void startAnalysis(final int numClasses) {
+			pass++;
+			delegate.startAnalysis(numClasses);
+		}
+
+		@Override
+		public void finishClass() {
+			delegate.finishClass();
+		}
+
+		@Override
+		public void finishPerClassAnalysis() {
+			delegate.finishPerClassAnalysis();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.ex.IdeDocumentHistory;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassOwner;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classes which are analyzed first (see {@link PrioritizedEngine}): the classes of the selected editors,
+ * of the other open editors and of the recently modified files, in this order.
+ */
+final class PriorityClasses {
+
+	static final PriorityClasses EMPTY = new PriorityClasses(Collections.emptyMap());
+
+	private static final int MAX_CHANGED_FILES = 50;
+
+	/**
+	 * Dotted top level class name to source file, in priority order.
+	 */
+	@NotNull
+	private final Map<String, VirtualFile> classes;
+
+	private PriorityClasses(@NotNull final Map<String, VirtualFile> classes) {
+		this.classes = classes;
+	}
+
+	/**
+	 * Must be invoked in a read action.
+	 */
+	@NotNull
+	static PriorityClasses collect(@NotNull final Project project) {
+		final FileEditorManager fileEditorManager = FileEditorManager.getInstance(project);
+		final Set<VirtualFile> files = new LinkedHashSet<>();
+		Collections.addAll(files, fileEditorManager.getSelectedFiles());
+		Collections.addAll(files, fileEditorManager.getOpenFiles());
+		final List<VirtualFile> changed = new ArrayList<>();
+		for (final VirtualFile file : IdeDocumentHistory.getInstance(project).getChangedFiles()) {
+			changed.add(file);
+		}
+		Collections.reverse(changed); // most recent first
+		files.addAll(changed.subList(0, Math.min(MAX_CHANGED_FILES, changed.size())));
+
+		final PsiManager psiManager = PsiManager.getInstance(project);
+		final Map<String, VirtualFile> classes = new LinkedHashMap<>();
+		for (final VirtualFile file : files) {
+			if (!file.isValid()) {
+				continue;
+			}
+			final PsiFile psiFile = psiManager.findFile(file);
+			if (psiFile instanceof PsiClassOwner) {
+				for (final PsiClass psiClass : ((PsiClassOwner) psiFile).getClasses()) {
+					final String qualifiedName = psiClass.getQualifiedName();
+					if (qualifiedName != null) {
+						classes.putIfAbsent(qualifiedName, file);
+					}
+				}
+			}
+		}
+		return new PriorityClasses(classes);
+	}
+
+	boolean isEmpty() {
+		return classes.isEmpty();
+	}
+
+	@NotNull
+	List<String> getClassNames() {
+		return new ArrayList<>(classes.keySet());
+	}
+
+	boolean contains(@NotNull final String dottedClassName) {
+		return classes.containsKey(PrioritizedEngine.getTopLevelClassName(dottedClassName));
+	}
+
+	@NotNull
+	Set<VirtualFile> getFiles() {
+		return new LinkedHashSet<>(classes.values());
+	}
+}
@@ -19,8 +19,10 @@
  */
 package org.jetbrains.plugins.spotbugs.core;
 
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.ExtendedProblemDescriptor;
 
 import java.util.*;
@@ -31,12 +33,35 @@ public class ProblemCacheService {
 
     private final ConcurrentMap<PsiFile, List<ExtendedProblemDescriptor>> problems;
 
+    /**
+     * Files whose classes were visited by all per class detectors of the running analysis, see {@link PriorityClasses}.
+     * Their problems are provisional until the analysis is finished.
+     */
+    private final Set<VirtualFile> readyFiles;
+
     public ProblemCacheService() {
       problems = new ConcurrentHashMap<>();
+      readyFiles = ConcurrentHashMap.newKeySet();
     }
 
     @NotNull
     public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
         return problems;
     }
+
+    /**
+     * @return {@code true} if the problems of the given file can be shown, labeled as provisional, while an
+     * analysis is running
+     */
+    public boolean isReady(@Nullable final VirtualFile file) {
+        return file != null && readyFiles.contains(file);
+    }
+
+    void setReady(@NotNull final Collection<VirtualFile> files) {
+        readyFiles.addAll(files);
+    }
+
+    void clearReady() {
+        readyFiles.clear();
+    }
 }
@@ -19,11 +19,13 @@
  */
 package org.jetbrains.plugins.spotbugs.core;
 
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.Pair;
 import com.intellij.util.Processor;
 import com.intellij.util.containers.TransferToEDTQueue;
 import edu.umd.cs.findbugs.AbstractBugReporter;
@@ -36,6 +38,7 @@ import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.config.ProjectFilterSettings;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
 import org.jetbrains.plugins.spotbugs.messages.MessageBusManager;
 
@@ -43,16 +46,23 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 
 	private static final Logger LOGGER = Logger.getInstance(Reporter.class.getName());
 	private static final String ANALYZING_CLASSES_i18N = "Analyzing classes: ";
+	static final long NO_DEADLINE = Long.MAX_VALUE;
+	private static final int MAX_PENDING_BUGS = 1000;
+	private static final long MAX_PENDING_BUGS_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+	private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
 
 	@NotNull
 	private final Project _project;
@@ -76,8 +86,49 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	private int goal;
 	@NonNls
 	private String _currentStageName;
+	/**
+	 * Classes of all passes, see {@link #predictPassCount(int[])}, 0 if not yet known.
+	 */
+	private int totalWork;
+	private int workDone;
+	@Nullable
+	private String observedClass;
+	private long lastProgressUpdate;
 	private boolean _canceled;
-	private int analyzedClassCountOffset;
+	@NotNull
+	private final AtomicInteger analyzedClassCountOffset;
+	@Nullable
+	private MergedAnalysis mergedAnalysis;
+	@NotNull
+	private final AnalysisTimings timings;
+	@NotNull
+	private final AtomicLong publishNanos;
+	@Nullable
+	private String phaseName;
+	private long phaseStart;
+	private long deadline = NO_DEADLINE;
+	private boolean timedOut;
+	private int passCount;
+	/**
+	 * Dotted names of the classes which were completely analyzed in the current pass.
+	 */
+	@NotNull
+	private final Set<String> passClasses;
+	@Nullable
+	private String currentClass;
+	@NotNull
+	private Set<String> unanalyzedClasses = Collections.emptySet();
+	@Nullable
+	private PriorityClasses priorityClasses;
+	private boolean priorityClassesReady;
+	/**
+	 * Bugs which are not yet handed over to the EDT, see {@link #flushBugs(boolean)}.
+	 */
+	@NotNull
+	private List<Bug> pendingBugs;
+	private long pendingBugsSince;
+	@Nullable
+	private ResultJournal journal;
 
 
 	Reporter(
@@ -87,7 +138,7 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 			@NotNull final ProjectFilterSettings projectFilterSettings,
 			@NotNull final ProgressIndicator indicator,
 			@NotNull final AtomicBoolean cancellingByUser,
-			final int analyzedClassCountOffset
+			@NotNull final AtomicInteger analyzedClassCountOffset
 	) {
 		_project = project;
 		this.module = module;
@@ -96,7 +147,12 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 		_indicator = indicator;
 		_cancellingByUser = cancellingByUser;
 		this.analyzedClassCountOffset = analyzedClassCountOffset;
-		_transferToEDTQueue = new TransferToEDTQueue<Runnable>("Add New Bug Instance", new RunnableProcessor(), new Condition<Object>() {
+		timings = new AnalysisTimings();
+		publishNanos = new AtomicLong();
+		passClasses = new HashSet<>();
+		pendingBugs = new ArrayList<>();
+		pendingBugsSince = System.nanoTime();
+		_transferToEDTQueue = new TransferToEDTQueue<Runnable>("Add New Bug Instance", new RunnableProcessor(publishNanos), new Condition<Object>() {
 			@Override
 			public boolean value(final Object o) {
 				return project.isDisposed() || _cancellingByUser.get() || _indicator.isCanceled();
@@ -105,10 +161,102 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	}
 
 
+	/**
+	 * Attribute the bugs to the owning module of a merged analysis instead of the module of this reporter.
+	 */
+	void setMergedAnalysis(@Nullable final MergedAnalysis mergedAnalysis) {
+		this.mergedAnalysis = mergedAnalysis;
+	}
+
+
+	/**
+	 * The published bugs are written to the given journal too, so they survive a crash of the IDE.
+	 */
+	void setJournal(@Nullable final ResultJournal journal) {
+		this.journal = journal;
+	}
+
+
+	@NotNull
+	AnalysisTimings getTimings() {
+		return timings;
+	}
+
+
+	/**
+	 * Stops the analysis like a cancel when the given {@link System#nanoTime()} is reached,
+	 * but the bugs found so far are published as result, see {@link #isTimedOut()}.
+	 */
+	void setDeadline(final long deadline) {
+		this.deadline = deadline;
+	}
+
+
+	boolean isTimedOut() {
+		return timedOut;
+	}
+
+
+	/**
+	 * The given classes are analyzed first in the last pass (see {@link PrioritizedEngine}), so the per class
+	 * detectors have reported the bugs of their files as soon as another class is observed. The editor
+	 * annotations of these files are shown from then on, before the analysis is finished. They are provisional:
+	 * detectors which report after all classes are visited ({@code Detector2.finishPass}, e.g. UnreadFields)
+	 * may still add bugs to these files until the analysis is finished and the annotations are refreshed.
+	 */
+	void setPriorityClasses(@Nullable final PriorityClasses priorityClasses) {
+		this.priorityClasses = priorityClasses;
+	}
+
+
+	@NotNull
+	Set<String> getUnanalyzedClasses() {
+		return unanalyzedClasses;
+	}
+
+
+	void setUnanalyzedClasses(@NotNull final Set<String> unanalyzedClasses) {
+		this.unanalyzedClasses = unanalyzedClasses;
+	}
+
+
+	/**
+	 * Bugs are reported in the last pass, so a class was only analyzed completely if its last pass was finished.
+	 * The class which was analyzed when the time limit was reached is never included. Note that the classes
+	 * of other shards are observed by this reporter too, so this is only an approximation for a sharded analysis.
+	 *
+	 * @return dotted names of the classes which were analyzed completely before the analysis timed out
+	 */
+	@NotNull
+	Set<String> getAnalyzedClasses() {
+		if (passCount > 0 && pass == passCount - 1) {
+			return Collections.unmodifiableSet(passClasses);
+		}
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Ends the current phase (if any) and starts a new one.
+	 */
+	private void beginPhase(@Nullable final String name) {
+		final long now = System.nanoTime();
+		if (phaseName != null) {
+			timings.addPhase(phaseName, TimeUnit.NANOSECONDS.toMillis(now - phaseStart));
+		}
+		phaseName = name;
+		phaseStart = now;
+	}
+
 	private boolean checkCancel() {
 		if (_canceled) {
 			return true;
 		}
+		if (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0) {
+			LOGGER.info("SpotBugs analysis of " + module.getName() + " stopped, time limit reached");
+			timedOut = true;
+			cancelFindBugs();
+			return true;
+		}
 		if (_indicator.isCanceled()) {
 			cancelFindBugs();
 			return true;
@@ -129,22 +277,42 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 		}
 		_bugCollection.add(bug);
 		bugCount++;
-		observeClass(bug.getPrimaryClass().getClassDescriptor());
-
-		// Guarantee thread visibility *one* time.
-    final AtomicReference<SortedBugCollection> bugCollectionRef = new AtomicReference<>(_bugCollection);
-    final AtomicReference<BugInstance> bugRef = new AtomicReference<>(bug);
-		final int analyzedClassCount = analyzedClassCountOffset + getProjectStats().getNumClasses();
-		_transferToEDTQueue.offer(new Runnable() {
-			/**
-			 * Invoked by EDT.
-			 */
-			@Override
-			public void run() {
-				final Bug bug = new Bug(module, bugCollectionRef.get(), bugRef.get());
-				MessageBusManager.publishNewBug(_project, bug, analyzedClassCount);
-			}
-		});
+		observe(bug.getPrimaryClass().getClassDescriptor());
+
+		Module bugModule = module;
+		SortedBugCollection bugCollection = _bugCollection;
+		if (mergedAnalysis != null) {
+			final Pair<Module, SortedBugCollection> owner = mergedAnalysis.findOwner(bug);
+			bugModule = owner.getFirst();
+			bugCollection = owner.getSecond();
+			bugCollection.add(bug);
+		}
+
+		pendingBugs.add(new Bug(bugModule, bugCollection, bug));
+		flushBugs(false);
+	}
+
+
+	/**
+	 * Publishes the buffered bugs with one EDT event, if forced or the buffer is full or old enough.
+	 * The bugs are handed over to the EDT by the {@link TransferToEDTQueue} which guarantees thread visibility.
+	 */
+	private void flushBugs(final boolean force) {
+		if (pendingBugs.isEmpty()) {
+			return;
+		}
+		final long now = System.nanoTime();
+		if (!force && pendingBugs.size() < MAX_PENDING_BUGS && now - pendingBugsSince < MAX_PENDING_BUGS_NANOS) {
+			return;
+		}
+		final List<Bug> bugs = pendingBugs;
+		final int analyzedClassCount = analyzedClassCountOffset.get() + getProjectStats().getNumClasses();
+		pendingBugs = new ArrayList<>();
+		pendingBugsSince = now;
+		if (journal != null) {
+			journal.append(bugs, getProjectStats().getNumClasses());
+		}
+		_transferToEDTQueue.offer(() -> MessageBusManager.publishNewBugs(_project, bugs, analyzedClassCount));
 	}
 
 
@@ -154,6 +322,15 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	}
 
 
+	@Override
+	public void logError(final String message, final Throwable e) {
+		if (DetectorBudget.isSkipped(e)) {
+			return; // detector is over budget, reported by AnalysisTimings
+		}
+		super.logError(message, e);
+	}
+
+
 	@Override
 	public void startArchive(final String s) {
 	}
@@ -197,12 +374,15 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 
 	@Override
 	public void finish() {
+		flushBugs(true);
 		EventDispatchThreadHelper.invokeAndWait(new EventDispatchThreadHelper.OperationAdapter() {
 			@Override
 			public void run() {
 				_transferToEDTQueue.drain();
 			}
 		});
+		beginPhase(null);
+		timings.addPhase("Bug publishing (EDT)", TimeUnit.NANOSECONDS.toMillis(publishNanos.get()));
 		_indicator.setText("Finished: Found " + bugCount + " bugs.");
 		_indicator.finishNonCancelableSection();
 	}
@@ -221,17 +401,48 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 
 	@Override
 	public void observeClass(@NotNull final ClassDescriptor classDescriptor) {
+		final boolean running = observe(classDescriptor);
+		if (running && priorityClasses != null && !priorityClassesReady && passCount > 0 && pass == passCount - 1
+				&& !priorityClasses.contains(classDescriptor.getDottedClassName())) {
+			publishPriorityClassesReady();
+		}
+		if (deadline != NO_DEADLINE) {
+			// the previous class of this pass is finished when the next one is observed
+			if (running && currentClass != null) {
+				passClasses.add(currentClass);
+			}
+			currentClass = running ? classDescriptor.getDottedClassName() : null;
+		}
+	}
+
+	/**
+	 * @return {@code false} if the analysis is canceled
+	 */
+	private boolean observe(@NotNull final ClassDescriptor classDescriptor) {
 		if (checkCancel()) {
-			return;
+			return false;
 		}
 
-		final String className = classDescriptor.getDottedClassName();
-		_indicator.setText("Observing class: " + className);
-		if (pass <= 0) {
-			_indicator.setText("Prescanning... (found " + bugCount + ", checking " + className + ')');
-		} else {
-			_indicator.setText("Checking... (found " + bugCount + ", checking " + className + ')');
+		flushBugs(false); // publish the bugs of a class with few bugs not only at the end
+		observedClass = classDescriptor.getDottedClassName();
+		updateProgress(false);
+		return true;
+	}
+
+	/**
+	 * Queued behind the bugs of the priority classes, so they are in the tree before the annotators run.
+	 */
+	private void publishPriorityClassesReady() {
+		priorityClassesReady = true;
+		flushBugs(true);
+		final PriorityClasses ready = priorityClasses;
+		if (ready == null || ready.isEmpty()) {
+			return;
 		}
+		_transferToEDTQueue.offer(() -> {
+			_project.getService(ProblemCacheService.class).setReady(ready.getFiles());
+			DaemonCodeAnalyzer.getInstance(_project).restart();
+		});
 	}
 
 	private void cancelFindBugs() {
@@ -253,24 +464,26 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 
 	@Override
 	public void finishArchive() {
-		step();
+		step(false);
 	}
 
 
 	@Override
 	public void finishClass() {
-		step();
+		step(true);
 	}
 
 
 	@Override
 	public void finishPerClassAnalysis() {
+		beginPhase("Finishing analysis");
 		_indicator.setText("Finishing analysis...");
 	}
 
 
 	@Override
 	public void reportNumberOfArchives(final int numArchives) {
+		beginPhase("Scanning classpath");
 		beginStage("Scanning archives: ", numArchives);
 		checkCancel(); // interrupt here has no effect, this is a FindBugs bug... bad for jumbo projects.
 	}
@@ -279,18 +492,27 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	@Override
 	public void startAnalysis(final int numClasses) {
 		pass++;
+		passClasses.clear();
+		currentClass = null;
+		beginPhase(pass == 0 ? "Pass #1 (prescan)" : "Pass #" + (pass + 1));
 		beginStage(ANALYZING_CLASSES_i18N, numClasses);
 	}
 
 
 	@Override
 	public void predictPassCount(final int[] classesPerPass) {
+		passCount = classesPerPass.length;
 		int expectedWork = 0;
+		totalWork = 0;
 		for (final int count : classesPerPass) {
 			expectedWork += 2 * count;
+			totalWork += count;
 		}
 		expectedWork -= classesPerPass[0];
 		_indicator.setText("Performing bug checking... " + expectedWork);
+		workDone = 0;
+		_indicator.setIndeterminate(false);
+		_indicator.setFraction(0);
 	}
 
 
@@ -298,21 +520,53 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 		stepCount = 0;
 		this.goal = goal;
 		_currentStageName = stageName;
-		_indicator.setText2(stageName + " 0/" + this.goal);
+		updateProgress(true);
 	}
 
 
-	private void step() {
+	private void step(final boolean classFinished) {
 		stepCount++;
+		if (classFinished) {
+			workDone++;
+		}
+		updateProgress(false);
+	}
+
+
+	/**
+	 * The indicator is updated at most every {@link #PROGRESS_INTERVAL_NANOS}, the counters are updated for every
+	 * class; a large analysis would spend more time in building progress texts than in some detectors otherwise.
+	 */
+	private void updateProgress(final boolean force) {
+		final long now = System.nanoTime();
+		if (!force && now - lastProgressUpdate < PROGRESS_INTERVAL_NANOS) {
+			return;
+		}
+		lastProgressUpdate = now;
+		if (observedClass != null) {
+			_indicator.setText((pass <= 0 ? "Prescanning... (found " : "Checking... (found ") + bugCount + ", checking " + observedClass + ')');
+		}
 		final int work = pass == 0 ? 1 : 2;
 		_indicator.setText2(_currentStageName + ' ' + stepCount + '/' + goal + (ANALYZING_CLASSES_i18N.equals(_currentStageName) ? " (pass #" + work + "/2)" : ""));
+		if (totalWork > 0) {
+			_indicator.setFraction(Math.min(1.0, (double) workDone / totalWork));
+		}
 	}
 
 
 	private static class RunnableProcessor implements Processor<Runnable> {
+		@NotNull
+		private final AtomicLong publishNanos;
+
+		RunnableProcessor(@NotNull final AtomicLong publishNanos) {
+			this.publishNanos = publishNanos;
+		}
+
 		@Override
 		public boolean process(Runnable runnable) {
+			final long start = System.nanoTime();
 			runnable.run();
+			publishNanos.addAndGet(System.nanoTime() - start);
 			return true;
 		}
 	}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.notification.NotificationAction;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.dom4j.DocumentException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
+import org.jetbrains.plugins.spotbugs.daemon.DaemonProtocol;
+import org.jetbrains.plugins.spotbugs.messages.MessageBusManager;
+import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Append-only file with the bugs of a running analysis, written by {@link Reporter} whenever it publishes bugs.
+ * Every analysis deletes its own journals when it is finished or canceled, so journals which exist
+ * on startup belong to an analysis which was killed (IDE crashed, out of memory). The bugs found so far can be
+ * loaded into the tool window then, see {@link #suggestRecovery(Project)}. These journals are kept until the
+ * user loads or discards them, analyses started in the meantime do not touch them.
+ * <p>
+ * A journal starts with a header (format version, module name of the reporter) followed by records
+ * (module name of the bugs, number of analyzed classes, bug collection XML). A record which was only partially
+ * written when the IDE died is ignored.
+ */
+final class ResultJournal {
+
+	private static final Logger LOGGER = Logger.getInstance(ResultJournal.class);
+
+	private static final String MAGIC = "SpotBugs result journal 1";
+
+	private static final String SUFFIX = ".journal";
+
+	@NotNull
+	private final File file;
+
+	@Nullable
+	private DataOutputStream out;
+
+	private ResultJournal(@NotNull final File file, @NotNull final DataOutputStream out) {
+		this.file = file;
+		this.out = out;
+	}
+
+	/**
+	 * @return {@code null} if the journal could not be created, the analysis works without journal then
+	 */
+	@Nullable
+	static ResultJournal create(@NotNull final Project project, @NotNull final Module module) {
+		return create(getDirectory(project), module.getName());
+	}
+
+	/**
+	 * @param moduleName module of the reporter which writes the journal
+	 */
+	@Nullable
+	static ResultJournal create(@NotNull final File dir, @NotNull final String moduleName) {
+		try {
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("Could not create " + dir);
+			}
+			final File file = File.createTempFile("analysis", SUFFIX, dir);
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeUTF(MAGIC);
+			out.writeUTF(moduleName);
+			out.flush();
+			return new ResultJournal(file, out);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not create result journal in " + dir, e);
+			return null;
+		}
+	}
+
+	@NotNull
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * Writes the given bugs through to the file system. Errors are logged, and the journal is closed then.
+	 *
+	 * @param analyzedClassCount analyzed classes of the reporter of this journal
+	 */
+	synchronized void append(@NotNull final List<Bug> bugs, final int analyzedClassCount) {
+		if (out == null) {
+			return;
+		}
+		final Map<String, SortedBugCollection> byModule = new LinkedHashMap<>();
+		for (final Bug bug : bugs) {
+			final Module module = bug.getModule();
+			byModule.computeIfAbsent(module != null ? module.getName() : "", k -> new SortedBugCollection()).add(bug.getInstance());
+		}
+		try {
+			for (final Map.Entry<String, SortedBugCollection> entry : byModule.entrySet()) {
+				final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+				entry.getValue().writeXML(xml);
+				out.writeUTF(entry.getKey());
+				out.writeInt(analyzedClassCount);
+				DaemonProtocol.writeBytes(out, xml.toByteArray());
+			}
+			out.flush();
+		} catch (final IOException e) {
+			LOGGER.warn("Could not write result journal " + file, e);
+			close();
+		}
+	}
+
+	/**
+	 * Closes the file, it is kept until {@link #delete()}. Can be invoked more than once.
+	 */
+	synchronized void close() {
+		if (out != null) {
+			try {
+				out.close();
+			} catch (final IOException e) {
+				LOGGER.debug("Could not close result journal " + file, e);
+			}
+			out = null;
+		}
+	}
+
+	/**
+	 * Closes and deletes the file, invoked when the analysis which created this journal is over.
+	 */
+	synchronized void delete() {
+		close();
+		delete(new File[]{file});
+	}
+
+	private static void delete(@NotNull final File[] files) {
+		for (final File file : files) {
+			if (file.exists() && !file.delete()) {
+				LOGGER.debug("Could not delete " + file);
+			}
+		}
+	}
+
+	/**
+	 * Shows a notification if there are journals of an interrupted analysis. Invoked on project startup,
+	 * so the listed journals can not belong to a running analysis.
+	 */
+	static void suggestRecovery(@NotNull final Project project) {
+		final File[] files = listJournals(project);
+		if (files == null || files.length == 0) {
+			return;
+		}
+		NotificationGroupManager.getInstance()
+				.getNotificationGroup("SpotBugs.RecoveredResult")
+				.createNotification(
+						ResourcesLoader.getString("journal.recover.title"),
+						ResourcesLoader.getString("journal.recover.text"),
+						NotificationType.INFORMATION
+				)
+				.addAction(NotificationAction.createSimpleExpiring(ResourcesLoader.getString("journal.recover.load"), () -> load(project, files)))
+				.addAction(NotificationAction.createSimpleExpiring(ResourcesLoader.getString("journal.recover.discard"), () -> delete(files)))
+				.notify(project);
+	}
+
+	/**
+	 * Publishes the bugs of the given journals like an analysis and deletes the journals.
+	 * Does nothing if the journals are gone or empty, so the tool window keeps its result.
+	 */
+	private static void load(@NotNull final Project project, @NotNull final File[] files) {
+		new Task.Backgroundable(project, ResourcesLoader.getString("journal.recover.progress"), false) {
+			@Override
+			public void run(@NotNull final ProgressIndicator indicator) {
+				final Map<String, SortedBugCollection> collections = new LinkedHashMap<>();
+				for (final File file : files) {
+					if (file.isFile()) {
+						read(file, moduleName -> getCollection(project, moduleName, collections));
+					}
+				}
+				if (!collections.isEmpty()) {
+					publish(project, collections);
+				}
+				delete(files);
+			}
+		}.queue();
+	}
+
+	private static void publish(@NotNull final Project project, @NotNull final Map<String, SortedBugCollection> collections) {
+		MessageBusManager.publishAnalysisStartedToEDT(project);
+		final FindBugsResult result = new FindBugsResult();
+		for (final SortedBugCollection collection : collections.values()) {
+			final Module module = collection.getProject() instanceof FindBugsProject ? ((FindBugsProject) collection.getProject()).getModule() : null;
+			final List<Bug> bugs = new ArrayList<>();
+			for (final BugInstance bug : collection.getCollection()) {
+				bugs.add(new Bug(module, collection, bug));
+			}
+			if (!bugs.isEmpty()) {
+				final int analyzedClassCount = collection.getProjectStats().getNumClasses();
+				EventDispatchThreadHelper.invokeLater(() -> MessageBusManager.publishNewBugs(project, bugs, analyzedClassCount));
+			}
+			result.put(collection.getProject(), collection);
+		}
+		MessageBusManager.publishAnalysisFinishedToEDT(project, result, null);
+	}
+
+	/**
+	 * Adds the bugs of the given journal to the collection of their module.
+	 *
+	 * @param collections module name to the bug collection of the module
+	 */
+	static void read(@NotNull final File file, @NotNull final Function<String, SortedBugCollection> collections) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (!MAGIC.equals(in.readUTF())) {
+				LOGGER.info("Unsupported result journal " + file);
+				return;
+			}
+			final String reporterModule = in.readUTF();
+			int analyzedClassCount = 0;
+			try {
+				while (true) {
+					final String moduleName = in.readUTF();
+					final int recordClassCount = in.readInt();
+					final byte[] xml = DaemonProtocol.readBytes(in);
+					analyzedClassCount = Math.max(analyzedClassCount, recordClassCount); // only of complete records
+					final SortedBugCollection bugs = new SortedBugCollection(); // readXML overwrites the project
+					bugs.readXML(new ByteArrayInputStream(xml));
+					final SortedBugCollection collection = collections.apply(moduleName);
+					for (final BugInstance bug : bugs.getCollection()) {
+						collection.add(bug);
+					}
+				}
+			} catch (final EOFException ignore) {
+				// end of journal, or last record is incomplete
+			}
+			final SortedBugCollection collection = collections.apply(reporterModule);
+			collection.getProjectStats().setTotalClasses(collection.getProjectStats().getNumClasses() + analyzedClassCount);
+		} catch (final IOException | DocumentException e) {
+			LOGGER.warn("Could not read result journal " + file, e);
+		}
+	}
+
+	@NotNull
+	private static SortedBugCollection getCollection(
+			@NotNull final Project project,
+			@NotNull final String moduleName,
+			@NotNull final Map<String, SortedBugCollection> collections
+	) {
+		SortedBugCollection ret = collections.get(moduleName);
+		if (ret == null) {
+			final Module module = ApplicationManager.getApplication().runReadAction(
+					(Computable<Module>) () -> ModuleManager.getInstance(project).findModuleByName(moduleName));
+			if (module != null) {
+				ret = new SortedBugCollection(FindBugsProject.create(project, module, project.getName() + "[" + moduleName + "]"));
+			} else {
+				final edu.umd.cs.findbugs.Project findBugsProject = new edu.umd.cs.findbugs.Project();
+				findBugsProject.setProjectName(project.getName());
+				ret = new SortedBugCollection(findBugsProject);
+			}
+			collections.put(moduleName, ret);
+		}
+		return ret;
+	}
+
+	@Nullable
+	private static File[] listJournals(@NotNull final Project project) {
+		return getDirectory(project).listFiles((dir, name) -> name.endsWith(SUFFIX));
+	}
+
+	@NotNull
+	private static File getDirectory(@NotNull final Project project) {
+		return new File(new File(new File(PathManager.getSystemPath(), "spotbugs"), project.getLocationHash()), "journal");
+	}
+}
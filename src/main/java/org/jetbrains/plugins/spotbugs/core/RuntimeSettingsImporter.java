@@ -23,10 +23,14 @@ import com.intellij.notification.*;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.JDOMUtil;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.xmlb.SmartSerializer;
+import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
+import org.jetbrains.plugins.spotbugs.common.util.HashUtil;
 import org.jetbrains.plugins.spotbugs.common.util.IoUtil;
 import org.jetbrains.plugins.spotbugs.gui.settings.ModuleConfigurableImpl;
 import org.jetbrains.plugins.spotbugs.gui.settings.ProjectConfigurableImpl;
@@ -35,16 +39,28 @@ import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 final class RuntimeSettingsImporter {
 
 	private static final Logger LOGGER = Logger.getInstance(RuntimeSettingsImporter.class);
 
+	/**
+	 * Last successful import into a settings instance (project settings or module settings).
+	 */
+	private static final Map<AbstractSettings, Imported> imported = Collections.synchronizedMap(new WeakHashMap<>());
+
 	private RuntimeSettingsImporter() {
 	}
 
+	/**
+	 * Imports the given file into the settings. The import is skipped if the same file (by modification time and size,
+	 * or by content hash) was imported into the settings before and the settings were not changed since then.
+	 */
 	static boolean importSettings(
 			@NotNull final Project project,
 			@NotNull final Module module,
@@ -68,6 +84,15 @@ final class RuntimeSettingsImporter {
 		}
 
 		try {
+			final Imported cached = imported.get(settings);
+			if (cached != null && cached.isUpToDate(file, settings)) {
+				return true;
+			}
+			final String hash = HashUtil.sha256(file);
+			if (cached != null && cached.filePath.equals(file.getPath()) && cached.hash.equals(hash) && cached.snapshot.equals(snapshot(settings))) {
+				imported.put(settings, new Imported(file, hash, cached.snapshot)); // touched only
+				return true;
+			}
 			final FileInputStream input = new FileInputStream(file);
 			try {
 				final WorkspaceSettings workspaceSettings = WorkspaceSettings.getInstance(project);
@@ -79,6 +104,11 @@ final class RuntimeSettingsImporter {
 					}
 				}.doImport(input, settings, importFilePathKey);
 				workspaceSettings.importFilePath = importFilePath; // restore current
+				if (success) {
+					imported.put(settings, new Imported(file, hash, snapshot(settings)));
+				} else {
+					imported.remove(settings);
+				}
 				return success;
 			} finally {
 				IoUtil.safeClose(input);
@@ -91,6 +121,16 @@ final class RuntimeSettingsImporter {
 		}
 	}
 
+	/**
+	 * Serialized settings, like the settings export of {@link org.jetbrains.plugins.spotbugs.gui.settings.AdvancedSettingsAction}.
+	 */
+	@NotNull
+	private static String snapshot(@NotNull final AbstractSettings settings) {
+		final Element root = new Element("findbugs");
+		new SmartSerializer().writeExternal(settings, root, false);
+		return JDOMUtil.write(root);
+	}
+
 	private static void showImportPreferencesWarning(@NotNull final Project project, @NotNull final Module module, @NotNull String message) {
 		showImportPreferencesWarning(project, module, null, message);
 	}
@@ -129,4 +169,36 @@ final class RuntimeSettingsImporter {
 				}))
 				.notify(project);
 	}
+
+	private static final class Imported {
+
+		@NotNull
+		private final String filePath;
+
+		private final long modified;
+
+		private final long size;
+
+		@NotNull
+		private final String hash;
+
+		/**
+		 * Settings after the import, to detect changes made in the settings dialog since then.
+		 */
+		@NotNull
+		private final String snapshot;
+
+		private Imported(@NotNull final File file, @NotNull final String hash, @NotNull final String snapshot) {
+			filePath = file.getPath();
+			modified = file.lastModified();
+			size = file.length();
+			this.hash = hash;
+			this.snapshot = snapshot;
+		}
+
+		private boolean isUpToDate(@NotNull final File file, @NotNull final AbstractSettings settings) {
+			return filePath.equals(file.getPath()) && modified != 0 && modified == file.lastModified() && size == file.length() &&
+					snapshot.equals(snapshot(settings));
+		}
+	}
 }
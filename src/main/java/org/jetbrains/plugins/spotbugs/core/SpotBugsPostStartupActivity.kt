@@ -55,6 +55,7 @@ internal class SpotBugsPostStartupActivity: ProjectActivity {
 
         PluginSuggestion.suggestPlugins(project)
         RFilerFilterSuggestion(project).suggest()
+        ResultJournal.suggestRecovery(project)
 
         LegacyProjectSettingsConverter.convertSettings(project)
 
@@ -46,9 +46,67 @@ public final class WorkspaceSettings implements PersistentStateComponent<Workspa
 	@Tag
 	public boolean analyzeAfterAutoMake = false;
 
+	/**
+	 * Record the class dependencies of every analysis; the analysis after compile/auto make also analyzes
+	 * the direct dependents of the affected classes and merges the result into the current result.
+	 */
+	@Tag
+	public boolean analyzeDependents = false;
+
 	@Tag
 	public boolean runInBackground = false;
 
+	/**
+	 * Maximum number of modules which are analyzed concurrently. 1 means sequential analysis.
+	 */
+	@Tag
+	public int analysisThreads = 1;
+
+	/**
+	 * Analyze all modules which share the project settings with one engine (see {@link MergedAnalysis}).
+	 */
+	@Tag
+	public boolean mergeModules = false;
+
+	/**
+	 * Reuse the bugs of unchanged classes from the previous analysis (see {@link AnalysisCache}).
+	 */
+	@Tag
+	public boolean incrementalAnalysis = false;
+
+	/**
+	 * Run the engine in a long-lived separate JVM (see {@link AnalysisDaemonService}) instead of the IDE process.
+	 */
+	@Tag
+	public boolean analyzeInDaemon = false;
+
+	/**
+	 * Max heap size of the analysis daemon (and of every shard worker) in megabytes.
+	 */
+	@Tag
+	public int daemonMaxHeap = 2048;
+
+	/**
+	 * Number of worker processes which analyze one large module concurrently
+	 * (see {@link AnalysisDaemonService#analyzeSharded}). 1 disables sharding.
+	 */
+	@Tag
+	public int analysisShards = 1;
+
+	/**
+	 * Max duration in seconds of analyses after compile / auto make and before check in. The bugs found so far
+	 * are published as partial result when the limit is reached (see {@link FindBugsResult#isPartial()}). 0 for no limit.
+	 */
+	@Tag
+	public int analysisTimeLimit = 0;
+
+	/**
+	 * Add only the library jars to the aux classpath which contain classes referenced by the analyzed classes,
+	 * see {@link LibraryIndex}.
+	 */
+	@Tag
+	public boolean pruneLibraries = false;
+
 	/**
 	 * Last used export directory for "Export Bug Collection".
 	 */
@@ -96,6 +154,23 @@ public final class WorkspaceSettings implements PersistentStateComponent<Workspa
 	)
 	public Map<String, String> importFilePath = new HashMap<>();
 
+	/**
+	 * Detectors (key = {@link edu.umd.cs.findbugs.DetectorFactory#getShortName()}) which exceeded the
+	 * detector time budget, value is the number of consecutive analyses which exceeded it.
+	 *
+	 * @see AbstractSettings#disableDetectorsOverBudget
+	 */
+	@Tag(value = "detectorsOverBudget")
+	@MapAnnotation(
+			surroundWithTag = false,
+			surroundValueWithTag = false,
+			surroundKeyWithTag = false,
+			entryTagName = "detector",
+			keyAttributeName = "name",
+			valueAttributeName = "count"
+	)
+	public Map<String, Integer> detectorsOverBudget = new HashMap<>();
+
 	@Tag
 	public boolean annotationTextRangeMarkup = true;
 
@@ -0,0 +1,472 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.daemon;
+
+import edu.umd.cs.findbugs.AbstractBugReporter;
+import edu.umd.cs.findbugs.AnalysisError;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugRanker;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.FindBugsProgress;
+import edu.umd.cs.findbugs.IClassScreener;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.ProjectStats;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.IClassObserver;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.core.AnalysisProfiler;
+import org.jetbrains.plugins.spotbugs.core.DetectorBudget;
+import org.jetbrains.plugins.spotbugs.core.FilterCache;
+import org.jetbrains.plugins.spotbugs.core.PrioritizedEngine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of the long-lived analysis daemon process which is started by the IDE
+ * (see {@code AnalysisDaemonService}) when "Analyze in separate process" is enabled.
+ * <p>
+ * The daemon reads requests from stdin and writes progress and bugs to stdout, see {@link DaemonProtocol}.
+ * Loaded plugins and the detector factories stay in memory between two analyses, and the JIT
+ * compiled engine is reused. The daemon exits when stdin is closed.
+ * <p>
+ * Note that this class runs in a plain JVM, so it must not depend on IntelliJ classes.
+ */
+public final class AnalysisDaemon {
+
+	private static final int BUGS_PER_MESSAGE = 100;
+	private static final long MAX_BUG_DELAY_MS = 250;
+	private static final long OBSERVE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	@NotNull
+	private final DataOutputStream out;
+
+	@NotNull
+	private final Set<String> loadedPluginUrls;
+
+	private Thread analysis;
+
+	private AnalysisDaemon(@NotNull final DataOutputStream out) {
+		this.out = out;
+		loadedPluginUrls = new HashSet<>();
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+		// stdout is reserved for the protocol, SpotBugs prints some messages to System.out
+		System.setOut(System.err);
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+		new AnalysisDaemon(out).run(in);
+		System.exit(0);
+	}
+
+	private void run(@NotNull final DataInputStream in) throws IOException, InterruptedException {
+		while (true) {
+			final String type;
+			try {
+				type = in.readUTF();
+			} catch (final EOFException e) {
+				return; // IDE is gone
+			}
+			if (DaemonProtocol.ANALYZE.equals(type)) {
+				final DaemonProtocol.Request request = DaemonProtocol.Request.read(in);
+				if (analysis != null) {
+					analysis.join();
+				}
+				analysis = new Thread(() -> analyze(request), "SpotBugs Daemon Analysis");
+				analysis.start();
+			} else if (DaemonProtocol.CANCEL.equals(type)) {
+				if (analysis != null) {
+					analysis.interrupt(); // causes break in FindBugs main loop
+				}
+			} else if (DaemonProtocol.SHUTDOWN.equals(type)) {
+				return;
+			} else {
+				throw new IOException("Unknown message " + type);
+			}
+		}
+	}
+
+	private void analyze(@NotNull final DaemonProtocol.Request request) {
+		DaemonReporter reporter = null;
+		try {
+			loadPlugins(request);
+
+			final Project project = new Project();
+			for (final String file : request.files) {
+				project.addFile(file);
+			}
+			for (final String entry : request.auxClasspath) {
+				project.addAuxClasspathEntry(entry);
+			}
+			project.addSourceDirs(request.sourceDirs);
+			for (final Map.Entry<String, Boolean> entry : request.pluginStatus.entrySet()) {
+				project.setPluginStatusTrinary(entry.getKey(), entry.getValue());
+			}
+
+			final UserPreferences userPrefs = UserPreferences.createDefaultUserPreferences();
+			userPrefs.read(new ByteArrayInputStream(request.userPreferences));
+
+			final DetectorBudget budget = DetectorBudget.isEnabled(request.detectorBudgetPerClass, request.detectorBudgetTotal) ?
+					new DetectorBudget(request.detectorBudgetPerClass, request.detectorBudgetTotal) : null;
+			final AnalysisProfiler profiler = budget != null ? budget : new AnalysisProfiler();
+			reporter = new DaemonReporter(project, profiler);
+			final PrioritizedEngine engine = new PrioritizedEngine();
+			try {
+				engine.setPriorityClasses(request.priorityClasses);
+				engine.setNoClassOk(true);
+				engine.setMergeSimilarWarnings(false);
+				engine.setBugReporter(FilterCache.configure(reporter, userPrefs, reporter::logError));
+				engine.setProject(project);
+				engine.setProgressCallback(reporter);
+				engine.addClassObserver(reporter);
+				engine.setDetectorFactoryCollection(DetectorFactoryCollection.instance());
+				engine.setUserPreferences(userPrefs);
+				if (!request.skippedClasses.isEmpty() || request.shardCount > 1) {
+					engine.setClassScreener(new ShardClassScreener(new HashSet<>(request.skippedClasses), request.shard, request.shardCount));
+				}
+				engine.execute();
+			} finally {
+				engine.dispose();
+			}
+			synchronized (out) {
+				reporter.flushBugs();
+				out.writeUTF(DaemonProtocol.PROFILE);
+				out.writeInt(profiler.getProfiledClasses().size());
+				for (final Class<?> c : profiler.getProfiledClasses()) {
+					out.writeUTF(c.getSimpleName());
+					out.writeLong(TimeUnit.NANOSECONDS.toMillis(profiler.getProfile(c).getTotalTime()));
+					out.writeInt(profiler.getCalls(c));
+				}
+				if (budget != null) {
+					out.writeUTF(DaemonProtocol.OVER_BUDGET);
+					DaemonProtocol.writeStrings(out, budget.getSkipped());
+				}
+				out.writeUTF(DaemonProtocol.FINISHED);
+				out.writeInt(reporter.getProjectStats().getNumClasses());
+				out.flush();
+			}
+		} catch (final InterruptedException e) {
+			// canceled, the IDE keeps the bugs found so far if its time limit was reached
+			Thread.interrupted();
+			sendFinished(reporter);
+		} catch (final Throwable e) {
+			final StringWriter stackTrace = new StringWriter();
+			e.printStackTrace(new PrintWriter(stackTrace));
+			try {
+				synchronized (out) {
+					out.writeUTF(DaemonProtocol.ERROR);
+					DaemonProtocol.writeBytes(out, stackTrace.toString().getBytes(StandardCharsets.UTF_8));
+					out.flush();
+				}
+			} catch (final IOException ignore) {
+				System.exit(1); // IDE is gone
+			}
+		}
+	}
+
+	private void sendFinished(@Nullable final DaemonReporter reporter) {
+		try {
+			synchronized (out) {
+				if (reporter != null) {
+					reporter.flushBugs();
+				}
+				out.writeUTF(DaemonProtocol.FINISHED);
+				out.writeInt(0);
+				out.flush();
+			}
+		} catch (final IOException ignore) {
+			System.exit(1); // IDE is gone
+		}
+	}
+
+	/**
+	 * A plugin is loaded once per URL. The IDE does not reuse a daemon after a plugin jar has changed,
+	 * see {@code AnalysisDaemonClient#getPluginsKey}.
+	 */
+	private void loadPlugins(@NotNull final DaemonProtocol.Request request) throws Exception {
+		for (final String pluginUrl : request.pluginUrls) {
+			if (loadedPluginUrls.add(pluginUrl)) {
+				Plugin.addCustomPlugin(new URL(pluginUrl));
+			}
+		}
+	}
+
+	/**
+	 * Skips the unchanged classes of an incremental analysis and the classes of the other shards.
+	 * Nested classes are always in the same shard as their top level class.
+	 */
+	private static final class ShardClassScreener implements IClassScreener {
+
+		@NotNull
+		private final Set<String> skipped;
+
+		private final int shard;
+
+		private final int shardCount;
+
+		private ShardClassScreener(@NotNull final Set<String> skipped, final int shard, final int shardCount) {
+			this.skipped = skipped;
+			this.shard = shard;
+			this.shardCount = shardCount;
+		}
+
+		@Override
+		public boolean matches(final String fileName) {
+			if (skipped.contains(fileName)) {
+				return false;
+			}
+			if (shardCount <= 1) {
+				return true;
+			}
+			String topLevel = fileName.endsWith(".class") ? fileName.substring(0, fileName.length() - ".class".length()) : fileName;
+			final int nested = topLevel.indexOf('$', topLevel.lastIndexOf('/') + 1);
+			if (nested > 0) {
+				topLevel = topLevel.substring(0, nested);
+			}
+			return Math.floorMod(topLevel.hashCode(), shardCount) == shard;
+		}
+
+		@Override
+		public boolean vacuous() {
+			return skipped.isEmpty() && shardCount <= 1;
+		}
+	}
+
+	/**
+	 * Forwards progress and bugs to the IDE. Bugs and observed classes are sent in batches to keep the number of
+	 * messages (and flushes of the pipe) small. Pending observed classes are written before any other message,
+	 * so the IDE sees all messages in the order of the analysis.
+	 */
+	private final class DaemonReporter extends AbstractBugReporter implements FindBugsProgress, IClassObserver {
+
+		@NotNull
+		private final SortedBugCollection bugCollection;
+
+		@NotNull
+		private SortedBugCollection pending;
+
+		private long lastFlush;
+
+		/**
+		 * Dotted names of the classes which are not yet sent, guarded by the lock of {@link #out}.
+		 */
+		@NotNull
+		private final List<String> observedClasses;
+
+		private long lastObservedClassesFlush;
+
+		private DaemonReporter(@NotNull final Project project, @NotNull final AnalysisProfiler profiler) {
+			bugCollection = new SortedBugCollection(profiler.createProjectStats(), project);
+			pending = new SortedBugCollection(project);
+			lastFlush = System.currentTimeMillis();
+			observedClasses = new ArrayList<>();
+			lastObservedClassesFlush = System.nanoTime();
+			setPriorityThreshold(Priorities.LOW_PRIORITY);
+			setRankThreshold(BugRanker.VISIBLE_RANK_MAX);
+		}
+
+		@Override
+		protected void doReportBug(final BugInstance bug) {
+			bugCollection.add(bug);
+			pending.add(bug);
+			if (pending.getCollection().size() >= BUGS_PER_MESSAGE || System.currentTimeMillis() - lastFlush > MAX_BUG_DELAY_MS) {
+				try {
+					synchronized (out) {
+						flushBugs();
+						out.flush();
+					}
+				} catch (final IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+
+		/**
+		 * Caller must hold the lock of {@link #out}.
+		 */
+		private void flushBugs() throws IOException {
+			flushObservedClasses();
+			lastFlush = System.currentTimeMillis();
+			if (pending.getCollection().isEmpty()) {
+				return;
+			}
+			final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+			pending.writeXML(xml);
+			pending = new SortedBugCollection(bugCollection.getProject());
+			out.writeUTF(DaemonProtocol.BUGS);
+			DaemonProtocol.writeBytes(out, xml.toByteArray());
+		}
+
+		/**
+		 * Caller must hold the lock of {@link #out}.
+		 */
+		private void flushObservedClasses() throws IOException {
+			lastObservedClassesFlush = System.nanoTime();
+			if (observedClasses.isEmpty()) {
+				return;
+			}
+			out.writeUTF(DaemonProtocol.OBSERVE_CLASSES);
+			DaemonProtocol.writeStrings(out, observedClasses);
+			observedClasses.clear();
+		}
+
+		private void send(@NotNull final String type) {
+			try {
+				synchronized (out) {
+					flushObservedClasses();
+					out.writeUTF(type);
+				}
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private void send(@NotNull final String type, final int value) {
+			try {
+				synchronized (out) {
+					flushObservedClasses();
+					out.writeUTF(type);
+					out.writeInt(value);
+					out.flush();
+				}
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void observeClass(final ClassDescriptor classDescriptor) {
+			try {
+				synchronized (out) {
+					observedClasses.add(classDescriptor.getDottedClassName());
+					if (System.nanoTime() - lastObservedClassesFlush >= OBSERVE_INTERVAL_NANOS) {
+						flushObservedClasses();
+						out.flush();
+					}
+				}
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void reportNumberOfArchives(final int numArchives) {
+			send(DaemonProtocol.REPORT_NUMBER_OF_ARCHIVES, numArchives);
+		}
+
+		@Override
+		public void startAnalysis(final int numClasses) {
+			send(DaemonProtocol.START_ANALYSIS, numClasses);
+		}
+
+		@Override
+		public void finishArchive() {
+			send(DaemonProtocol.FINISH_ARCHIVE);
+		}
+
+		@Override
+		public void finishClass() {
+			send(DaemonProtocol.FINISH_CLASS);
+		}
+
+		@Override
+		public void finishPerClassAnalysis() {
+			send(DaemonProtocol.FINISH_PER_CLASS_ANALYSIS);
+		}
+
+		@Override
+		public void predictPassCount(final int[] classesPerPass) {
+			try {
+				synchronized (out) {
+					flushObservedClasses();
+					out.writeUTF(DaemonProtocol.PREDICT_PASS_COUNT);
+					out.writeInt(classesPerPass.length);
+					for (final int count : classesPerPass) {
+						out.writeInt(count);
+					}
+				}
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void logError(final String message, final Throwable e) {
+			if (!DetectorBudget.isSkipped(e)) {
+				super.logError(message, e);
+			}
+		}
+
+		@Override
+		public void reportAnalysisError(final AnalysisError error) {
+			System.err.println(error.getMessage());
+		}
+
+		@Override
+		public void reportMissingClass(final String string) {
+		}
+
+		@Override
+		public void reportQueuedErrors() {
+		}
+
+		@Override
+		public void startArchive(final String name) {
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		@Override
+		public SortedBugCollection getBugCollection() {
+			return bugCollection;
+		}
+
+		@Override
+		public ProjectStats getProjectStats() {
+			return bugCollection.getProjectStats();
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.daemon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Messages exchanged between the IDE and the {@link AnalysisDaemon} over the stdin/stdout pipe of the
+ * daemon process. Every message starts with its type (see {@link DataOutputStream#writeUTF(String)})
+ * followed by the message specific payload.
+ * <p>
+ * Note that this class is loaded by the daemon process, so it must not depend on IntelliJ classes.
+ */
+public final class DaemonProtocol {
+
+	// IDE -> daemon
+
+	/**
+	 * Followed by a {@link Request}.
+	 */
+	public static final String ANALYZE = "analyze";
+
+	public static final String CANCEL = "cancel";
+
+	public static final String SHUTDOWN = "shutdown";
+
+	// daemon -> IDE, mirrors FindBugsProgress
+
+	public static final String REPORT_NUMBER_OF_ARCHIVES = "reportNumberOfArchives";
+	public static final String START_ANALYSIS = "startAnalysis";
+	public static final String FINISH_ARCHIVE = "finishArchive";
+	public static final String FINISH_CLASS = "finishClass";
+	public static final String FINISH_PER_CLASS_ANALYSIS = "finishPerClassAnalysis";
+	public static final String PREDICT_PASS_COUNT = "predictPassCount";
+
+	/**
+	 * Followed by the dotted names of the classes observed since the last message, see {@link #writeStrings}.
+	 * Observed classes are sent at most every 100 ms, or before any other message to keep the order.
+	 */
+	public static final String OBSERVE_CLASSES = "observeClasses";
+
+	/**
+	 * Followed by a bug collection XML document which contains the bugs reported since the last message.
+	 */
+	public static final String BUGS = "bugs";
+
+	/**
+	 * Followed by the number of profiled classes and for each the simple class name (UTF), the total milliseconds (long)
+	 * and the number of calls (int), see {@code org.jetbrains.plugins.spotbugs.core.AnalysisProfiler}.
+	 */
+	public static final String PROFILE = "profile";
+
+	/**
+	 * Followed by the names of the detectors which exceeded the time budget,
+	 * see {@code org.jetbrains.plugins.spotbugs.core.DetectorBudget}.
+	 */
+	public static final String OVER_BUDGET = "overBudget";
+
+	/**
+	 * Followed by the number of analyzed classes.
+	 */
+	public static final String FINISHED = "finished";
+
+	/**
+	 * Followed by the stack trace of the failure.
+	 */
+	public static final String ERROR = "error";
+
+	private DaemonProtocol() {
+	}
+
+	public static void writeStrings(@NotNull final DataOutputStream out, @NotNull final Collection<String> values) throws IOException {
+		out.writeInt(values.size());
+		for (final String value : values) {
+			out.writeUTF(value);
+		}
+	}
+
+	@NotNull
+	public static List<String> readStrings(@NotNull final DataInputStream in) throws IOException {
+		final int size = in.readInt();
+		final List<String> ret = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			ret.add(in.readUTF());
+		}
+		return ret;
+	}
+
+	public static void writeBytes(@NotNull final DataOutputStream out, @NotNull final byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	@NotNull
+	public static byte[] readBytes(@NotNull final DataInputStream in) throws IOException {
+		final byte[] ret = new byte[in.readInt()];
+		in.readFully(ret);
+		return ret;
+	}
+
+	/**
+	 * Everything the daemon needs to configure its engine.
+	 */
+	public static final class Request {
+
+		@NotNull
+		public final List<String> files;
+
+		@NotNull
+		public final List<String> auxClasspath;
+
+		@NotNull
+		public final List<String> sourceDirs;
+
+		/**
+		 * Resource names (like {@code java/lang/Object.class}) of classes which must not be analyzed.
+		 */
+		@NotNull
+		public final List<String> skippedClasses;
+
+		/**
+		 * Only the classes of this shard (0 based) are analyzed, all other files are used to resolve references.
+		 */
+		public final int shard;
+
+		public final int shardCount;
+
+		/**
+		 * URLs of all non core plugins.
+		 */
+		@NotNull
+		public final List<String> pluginUrls;
+
+		/**
+		 * Plugin id to enabled state ({@code null} means default).
+		 */
+		@NotNull
+		public final Map<String, Boolean> pluginStatus;
+
+		/**
+		 * See {@link edu.umd.cs.findbugs.config.UserPreferences#write(java.io.OutputStream)}.
+		 */
+		@NotNull
+		public final byte[] userPreferences;
+
+		/**
+		 * Detector time budget in milliseconds, 0 for no limit.
+		 */
+		public final long detectorBudgetPerClass;
+
+		public final long detectorBudgetTotal;
+
+		/**
+		 * Dotted top level class names which are analyzed first, see {@link org.jetbrains.plugins.spotbugs.core.PrioritizedEngine}.
+		 */
+		@NotNull
+		public final List<String> priorityClasses;
+
+		public Request(
+				@NotNull final List<String> files,
+				@NotNull final List<String> auxClasspath,
+				@NotNull final List<String> sourceDirs,
+				@NotNull final List<String> skippedClasses,
+				final int shard,
+				final int shardCount,
+				@NotNull final List<String> pluginUrls,
+				@NotNull final Map<String, Boolean> pluginStatus,
+				@NotNull final byte[] userPreferences,
+				final long detectorBudgetPerClass,
+				final long detectorBudgetTotal,
+				@NotNull final List<String> priorityClasses
+		) {
+			this.files = files;
+			this.auxClasspath = auxClasspath;
+			this.sourceDirs = sourceDirs;
+			this.skippedClasses = skippedClasses;
+			this.shard = shard;
+			this.shardCount = shardCount;
+			this.pluginUrls = pluginUrls;
+			this.pluginStatus = pluginStatus;
+			this.userPreferences = userPreferences;
+			this.detectorBudgetPerClass = detectorBudgetPerClass;
+			this.detectorBudgetTotal = detectorBudgetTotal;
+			this.priorityClasses = priorityClasses;
+		}
+
+		public void write(@NotNull final DataOutputStream out) throws IOException {
+			writeStrings(out, files);
+			writeStrings(out, auxClasspath);
+			writeStrings(out, sourceDirs);
+			writeStrings(out, skippedClasses);
+			out.writeInt(shard);
+			out.writeInt(shardCount);
+			writeStrings(out, pluginUrls);
+			out.writeInt(pluginStatus.size());
+			for (final Map.Entry<String, Boolean> entry : pluginStatus.entrySet()) {
+				out.writeUTF(entry.getKey());
+				writeStatus(out, entry.getValue());
+			}
+			writeBytes(out, userPreferences);
+			out.writeLong(detectorBudgetPerClass);
+			out.writeLong(detectorBudgetTotal);
+			writeStrings(out, priorityClasses);
+		}
+
+		@NotNull
+		public static Request read(@NotNull final DataInputStream in) throws IOException {
+			final List<String> files = readStrings(in);
+			final List<String> auxClasspath = readStrings(in);
+			final List<String> sourceDirs = readStrings(in);
+			final List<String> skippedClasses = readStrings(in);
+			final int shard = in.readInt();
+			final int shardCount = in.readInt();
+			final List<String> pluginUrls = readStrings(in);
+			final int size = in.readInt();
+			final Map<String, Boolean> pluginStatus = new LinkedHashMap<>();
+			for (int i = 0; i < size; i++) {
+				pluginStatus.put(in.readUTF(), readStatus(in));
+			}
+			final byte[] userPreferences = readBytes(in);
+			final long detectorBudgetPerClass = in.readLong();
+			final long detectorBudgetTotal = in.readLong();
+			final List<String> priorityClasses = readStrings(in);
+			return new Request(files, auxClasspath, sourceDirs, skippedClasses, shard, shardCount, pluginUrls, pluginStatus,
+					userPreferences, detectorBudgetPerClass, detectorBudgetTotal, priorityClasses);
+		}
+
+		private static void writeStatus(@NotNull final DataOutputStream out, @Nullable final Boolean status) throws IOException {
+			out.writeByte(status == null ? 0 : status ? 1 : 2);
+		}
+
+		@Nullable
+		private static Boolean readStatus(@NotNull final DataInputStream in) throws IOException {
+			final byte status = in.readByte();
+			return status == 0 ? null : status == 1;
+		}
+	}
+}
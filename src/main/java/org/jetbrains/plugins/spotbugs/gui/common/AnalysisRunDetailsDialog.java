@@ -19,31 +19,49 @@
  */
 package org.jetbrains.plugins.spotbugs.gui.common;
 
+import com.google.gson.GsonBuilder;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogBuilder;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.components.JBTabbedPane;
 import com.intellij.util.ui.JBUI;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.common.VersionManager;
 import org.jetbrains.plugins.spotbugs.common.util.FindBugsUtil;
+import org.jetbrains.plugins.spotbugs.core.AnalysisTimings;
 import org.jetbrains.plugins.spotbugs.core.FindBugsProject;
 import org.jetbrains.plugins.spotbugs.core.FindBugsResult;
 import org.jetbrains.plugins.spotbugs.resources.GuiResources;
 
+import javax.swing.JButton;
 import javax.swing.JComponent;
 import javax.swing.JEditorPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTable;
 import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
 import javax.swing.text.html.HTMLEditorKit;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.FlowLayout;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @SuppressWarnings({"HardcodedFileSeparator"})
 public class AnalysisRunDetailsDialog {
@@ -63,6 +81,17 @@ public class AnalysisRunDetailsDialog {
 		html.append("<p><h2>").append(VersionManager.getName()).append(": <b>found ").append(bugCount).append(" bugs in ").append(numClasses).append(numClasses > 1 ? " classes" : " class").append("</b>").append("</h2></p>");
 		html.append("<p>").append("<font size='10px'>using ").append(VersionManager.getFullVersion()).append(" with SpotBugs version ").append(FindBugsUtil.getFindBugsFullVersion()).append("</font>").append("</p>");
 
+		if (result.isPartial()) {
+			html.append("<p><h3>Not Analyzed Classes - time limit reached").append(" <font size='9px' color='gray'>(").append(result.getUnanalyzedClasses().size()).append(")</h3></p>");
+			html.append("<ul>");
+			for (final String className : result.getUnanalyzedClasses()) {
+				html.append("<li>");
+				html.append(className);
+				html.append("</li>");
+			}
+			html.append("</ul>");
+		}
+
 		for (final edu.umd.cs.findbugs.Project bugsProject : result.getProjects()) {
 
 			html.append("<p><h2>").append(bugsProject.getProjectName()).append("</h3></p>");
@@ -154,11 +183,91 @@ public class AnalysisRunDetailsDialog {
 
 		jEditorPane.setText(html.toString());
 
-		panel.add(ScrollPaneFacade.createScrollPane(jEditorPane, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED));
+		final JBTabbedPane tabs = new JBTabbedPane();
+		tabs.addTab("Settings", ScrollPaneFacade.createScrollPane(jEditorPane, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED));
+		tabs.addTab("Timings", createTimingsPanel(project, result));
+		panel.add(tabs);
 		dialogBuilder.setCenterPanel(panel);
 
 		SwingUtilities.invokeLater(() -> jEditorPane.scrollRectToVisible(new Rectangle(0, 0)));
 
 		return dialogBuilder;
 	}
+
+	@NotNull
+	private static JComponent createTimingsPanel(@NotNull final Project project, @NotNull final FindBugsResult result) {
+		final DefaultTableModel model = new DefaultTableModel(new Object[]{"Project", "Type", "Name", "Time (ms)", "Calls"}, 0) {
+			@Override
+			public Class<?> getColumnClass(final int columnIndex) {
+				switch (columnIndex) {
+					case 3:
+						return Long.class;
+					case 4:
+						return Integer.class;
+					default:
+						return String.class;
+				}
+			}
+
+			@Override
+			public boolean isCellEditable(final int row, final int column) {
+				return false;
+			}
+		};
+		for (final Map.Entry<String, AnalysisTimings> timings : result.getTimings().entrySet()) {
+			for (final AnalysisTimings.Entry phase : timings.getValue().getPhases()) {
+				model.addRow(new Object[]{timings.getKey(), "Phase", phase.getName(), phase.getMillis(), phase.getCalls()});
+			}
+			final Set<String> overBudget = timings.getValue().getOverBudget();
+			for (final AnalysisTimings.Entry detector : timings.getValue().getDetectors()) {
+				final String type = overBudget.contains(detector.getName()) ? "Detector (over budget)" : "Detector";
+				model.addRow(new Object[]{timings.getKey(), type, detector.getName(), detector.getMillis(), detector.getCalls()});
+			}
+			for (final String detector : timings.getValue().getDisabled()) {
+				model.addRow(new Object[]{timings.getKey(), "Detector (disabled)", detector, 0L, 0});
+			}
+		}
+		final JTable table = TableFacade.createTable(model);
+		table.setAutoCreateRowSorter(true);
+
+		final JButton export = new JButton("Export JSON...");
+		export.setEnabled(model.getRowCount() > 0);
+		export.addActionListener(e -> exportTimings(project, result));
+		final JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+		buttons.add(export);
+
+		final JPanel ret = new JPanel(new BorderLayout());
+		ret.add(ScrollPaneFacade.createScrollPane(table));
+		ret.add(buttons, BorderLayout.SOUTH);
+		return ret;
+	}
+
+	private static void exportTimings(@NotNull final Project project, @NotNull final FindBugsResult result) {
+		final VirtualFileWrapper wrapper = FileChooserFactory.getInstance().createSaveFileDialog(
+				new FileSaverDescriptor("Export Timings", "Export the analysis timings as JSON", "json"),
+				project
+		).save("spotbugs-timings");
+		if (wrapper == null) {
+			return;
+		}
+		final Map<String, Object> json = new LinkedHashMap<>();
+		json.put("timestamp", System.currentTimeMillis());
+		json.put("spotbugsVersion", FindBugsUtil.getFindBugsFullVersion());
+		final Map<String, Object> projects = new LinkedHashMap<>();
+		for (final Map.Entry<String, AnalysisTimings> timings : result.getTimings().entrySet()) {
+			final Map<String, Object> entry = new LinkedHashMap<>();
+			entry.put("phases", timings.getValue().getPhases());
+			entry.put("detectors", timings.getValue().getDetectors());
+			entry.put("overBudget", timings.getValue().getOverBudget());
+			entry.put("disabled", timings.getValue().getDisabled());
+			projects.put(timings.getKey(), entry);
+		}
+		json.put("projects", projects);
+		final File file = wrapper.getFile();
+		try {
+			FileUtil.writeToFile(file, new GsonBuilder().setPrettyPrinting().create().toJson(json));
+		} catch (final IOException e) {
+			Messages.showErrorDialog(project, e.getMessage(), "Export Timings");
+		}
+	}
 }
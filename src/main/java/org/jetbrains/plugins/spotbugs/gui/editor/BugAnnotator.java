@@ -62,34 +62,35 @@ public final class BugAnnotator implements Annotator {
 		if (workspaceSettings != null && !workspaceSettings.annotationTextRangeMarkup) {
 			return;
 		}
-		if (!FindBugsState.get(project).isIdle()) {
-			return;
-		}
 		final ProblemCacheService cacheService = psiElement.getProject().getService(ProblemCacheService.class);
 		if (cacheService == null) {
 			return;
 		}
+		final PsiFile psiFile = psiElement.getContainingFile();
+		final boolean provisional = !FindBugsState.get(project).isIdle();
+		if (provisional && !cacheService.isReady(psiFile.getVirtualFile())) {
+			return;
+		}
 		final Map<PsiFile, List<ExtendedProblemDescriptor>> problems = cacheService.getProblems();
 
-		final PsiFile psiFile = psiElement.getContainingFile();
 		if (problems.containsKey(psiFile)) {
-			addAnnotation(psiElement, new ArrayList<>(problems.get(psiFile)), annotationHolder);
+			addAnnotation(psiElement, new ArrayList<>(problems.get(psiFile)), provisional, annotationHolder);
 		}
 	}
 
-	private static void addAnnotation(@NotNull final PsiElement psiElement, final Iterable<ExtendedProblemDescriptor> problemDescriptors, @NotNull final AnnotationHolder annotationHolder) {
+	private static void addAnnotation(@NotNull final PsiElement psiElement, final Iterable<ExtendedProblemDescriptor> problemDescriptors, final boolean provisional, @NotNull final AnnotationHolder annotationHolder) {
 		final List<ExtendedProblemDescriptor> matchingDescriptors = new ArrayList<>();
 		for (final ExtendedProblemDescriptor descriptor : problemDescriptors) {
 			final PsiElement problemPsiElement = descriptor.getPsiElement();
 
 			if (psiElement.equals(problemPsiElement)) {
 				matchingDescriptors.add(descriptor);
-				addAnnotation(descriptor, matchingDescriptors, psiElement, annotationHolder);
+				addAnnotation(descriptor, matchingDescriptors, psiElement, provisional, annotationHolder);
 			}
 		}
 	}
 
-	private static void addAnnotation(final ExtendedProblemDescriptor problemDescriptor, final List<ExtendedProblemDescriptor> matchingDescriptors, final PsiElement psiElement, @NotNull final AnnotationHolder annotationHolder) {
+	private static void addAnnotation(final ExtendedProblemDescriptor problemDescriptor, final List<ExtendedProblemDescriptor> matchingDescriptors, final PsiElement psiElement, final boolean provisional, @NotNull final AnnotationHolder annotationHolder) {
 		final BugInstance bugInstance = problemDescriptor.getBug().getInstance();
 		final int priority = bugInstance.getPriority();
 		final AnnotationBuilder annotation;
@@ -108,12 +109,12 @@ public final class BugAnnotator implements Annotator {
 						elementToAnnotation = ((PsiClass) psiElement).getNameIdentifier();
 					}
 
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors, provisional))
 									.range(elementToAnnotation == null ? psiElement : elementToAnnotation)
 									// FIXME: use color from annotation configuration
 									.enforcedTextAttributes(new TextAttributes(null, null, JBColor.RED.brighter(), EffectType.BOXED, Font.PLAIN));
 				} else {
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors, provisional))
 									.range(textRange)
 									// FIXME: use color from annotation configuration
 									.enforcedTextAttributes(new TextAttributes(null, null, JBColor.RED, EffectType.WAVE_UNDERSCORE, Font.PLAIN));
@@ -137,10 +138,10 @@ public final class BugAnnotator implements Annotator {
 					} else {
 						elementToAnnotation = ((PsiClass) psiElement).getNameIdentifier();
 					}
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors, provisional))
 									.range(elementToAnnotation == null ? psiElement : elementToAnnotation);
 				} else {
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors, provisional))
 									.range(textRange);
 				}
 
@@ -167,10 +168,10 @@ public final class BugAnnotator implements Annotator {
 					} else {
 						elementToAnnotation = ((PsiClass) problemElement).getNameIdentifier();
 					}
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors, provisional))
 									.range(elementToAnnotation == null ? psiElement : elementToAnnotation);
 				} else {
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors, provisional))
 									.range(textRange);
 				}
 
@@ -193,10 +194,10 @@ public final class BugAnnotator implements Annotator {
 					} else {
 						elementToAnnotation = ((PsiClass) psiElement).getNameIdentifier();
 					}
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.INFORMATION, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.INFORMATION, getAnnotationText(matchingDescriptors, provisional))
 									.range(elementToAnnotation == null ? psiElement : elementToAnnotation);
 				} else {
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.INFORMATION, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.INFORMATION, getAnnotationText(matchingDescriptors, provisional))
 									.range(textRange);
 				}
 
@@ -218,11 +219,11 @@ public final class BugAnnotator implements Annotator {
 					} else {
 						elementToAnnotation = ((PsiClass) problemElement).getNameIdentifier();
 					}
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors, provisional))
 									.range(elementToAnnotation == null ? psiElement : elementToAnnotation)
 									.enforcedTextAttributes(new TextAttributes(null, null, JBColor.MAGENTA.brighter(), EffectType.WAVE_UNDERSCORE, Font.PLAIN));
 				} else {
-					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors))
+					annotation = annotationHolder.newAnnotation(HighlightSeverity.WARNING, getAnnotationText(matchingDescriptors, provisional))
 									.range(textRange);
 				}
 
@@ -241,7 +242,12 @@ public final class BugAnnotator implements Annotator {
 		}
 	}
 
-	private static String getAnnotationText(final List<ExtendedProblemDescriptor> problemDescriptors) {
+	/**
+	 * @param provisional the analysis is still running; the file was only released early because its classes
+	 *                    were analyzed with priority (see {@link ProblemCacheService#isReady}), so detectors
+	 *                    which report across classes may still add bugs to it.
+	 */
+	private static String getAnnotationText(final List<ExtendedProblemDescriptor> problemDescriptors, final boolean provisional) {
 		final StringBuilder buffer = new StringBuilder();
 		for (//noinspection LocalCanBeFinal
 				int i = 0, problemDescriptorsSize = problemDescriptors.size(); i < problemDescriptorsSize; i++) {
@@ -253,6 +259,10 @@ public final class BugAnnotator implements Annotator {
 				buffer.append("\n\n");
 			}
 		}
+		if (provisional) {
+			//noinspection HardcodedLineSeparator
+			buffer.append("\n\n").append(ResourcesLoader.getString("annotation.provisional"));
+		}
 
 		return StringUtilFb.addLineSeparatorAt(buffer, 250).toString();
 	}
@@ -49,6 +49,7 @@ import org.jetbrains.plugins.spotbugs.intentions.ClearAndSuppressBugIntentionAct
 import org.jetbrains.plugins.spotbugs.intentions.ClearBugIntentionAction;
 import org.jetbrains.plugins.spotbugs.intentions.SuppressReportBugForClassIntentionAction;
 import org.jetbrains.plugins.spotbugs.intentions.SuppressReportBugIntentionAction;
+import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
@@ -76,14 +77,15 @@ public final class BugsLineMarkerProvider implements LineMarkerProvider {
 		if (!workspaceSettings.annotationGutterIcon) {
 			return null;
 		}
-		if (!FindBugsState.get(project).isIdle()) {
-			return null;
-		}
 		final ProblemCacheService cacheService = psiElement.getProject().getService(ProblemCacheService.class);
 		if (cacheService == null) {
 			return null;
 		}
 		final PsiFile psiFile = IdeaUtilImpl.getPsiFile(psiElement);
+		final boolean provisional = !FindBugsState.get(project).isIdle();
+		if (provisional && (psiFile == null || !cacheService.isReady(psiFile.getVirtualFile()))) {
+			return null;
+		}
 		final Map<PsiFile, List<ExtendedProblemDescriptor>> problemCache = cacheService.getProblems();
 
 		if (problemCache.containsKey(psiFile)) {
@@ -107,7 +109,7 @@ public final class BugsLineMarkerProvider implements LineMarkerProvider {
 			}
 			if (!matchingDescriptors.isEmpty()) {
 				final GutterIconNavigationHandler<PsiElement> navHandler = new BugGutterIconNavigationHandler(psiElement, matchingDescriptors);
-				return new LineMarkerInfo<>(psiElement, psiElement.getTextRange(), GuiUtil.getTinyIcon(matchingDescriptors.get(0)), new TooltipProvider(matchingDescriptors), navHandler, GutterIconRenderer.Alignment.LEFT);
+				return new LineMarkerInfo<>(psiElement, psiElement.getTextRange(), GuiUtil.getTinyIcon(matchingDescriptors.get(0)), new TooltipProvider(matchingDescriptors, provisional), navHandler, GutterIconRenderer.Alignment.LEFT);
 			}
 		}
 
@@ -187,22 +189,24 @@ public final class BugsLineMarkerProvider implements LineMarkerProvider {
 	private static class TooltipProvider implements Function<PsiElement, String> {
 
 		private final List<ExtendedProblemDescriptor> _problemDescriptors;
+		private final boolean _provisional;
 		@SuppressWarnings("HardcodedLineSeparator")
 		private static final Pattern PATTERN = Pattern.compile("\n");
 
 
-		private TooltipProvider(final List<ExtendedProblemDescriptor> problemDescriptors) {
+		private TooltipProvider(final List<ExtendedProblemDescriptor> problemDescriptors, final boolean provisional) {
 			_problemDescriptors = problemDescriptors;
+			_provisional = provisional;
 		}
 
 
 		public String fun(final PsiElement psiElement) {
-			return getTooltipText(_problemDescriptors);
+			return getTooltipText(_problemDescriptors, _provisional);
 		}
 
 
 		@SuppressWarnings({"HardcodedFileSeparator"})
-		private static String getTooltipText(final List<ExtendedProblemDescriptor> problemDescriptors) {
+		private static String getTooltipText(final List<ExtendedProblemDescriptor> problemDescriptors, final boolean provisional) {
 			final StringBuilder buffer = new StringBuilder();
 			buffer.append("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01 Transitional//EN\">");
 			buffer.append("<HTML><HEAD><TITLE>");
@@ -220,6 +224,9 @@ public final class BugsLineMarkerProvider implements LineMarkerProvider {
 				}
 
 			}
+			if (provisional) {
+				buffer.append("<HR><I>").append(ResourcesLoader.getString("annotation.provisional")).append("</I>");
+			}
 
 			buffer.append("</BODY></HTML>");
 			return buffer.toString();
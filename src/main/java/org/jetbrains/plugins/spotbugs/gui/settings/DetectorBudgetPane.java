@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.gui.settings;
+
+import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.ui.JBIntSpinner;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.util.ui.JBDimension;
+import com.intellij.util.ui.UIUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.spotbugs.core.AbstractSettings;
+import org.jetbrains.plugins.spotbugs.gui.common.HAlignment;
+import org.jetbrains.plugins.spotbugs.gui.common.VAlignment;
+import org.jetbrains.plugins.spotbugs.gui.common.VerticalFlowLayout;
+import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import java.awt.FlowLayout;
+
+final class DetectorBudgetPane extends JPanel implements SettingsOwner<AbstractSettings> {
+	private JLabel perClassLabel;
+	private JBIntSpinner perClass;
+	private JLabel totalLabel;
+	private JBIntSpinner total;
+	private JBCheckBox disableOverBudget;
+
+	DetectorBudgetPane(final int indent) {
+		super(new VerticalFlowLayout(HAlignment.Left, VAlignment.Top, 0, UIUtil.DEFAULT_VGAP, false, false));
+		perClassLabel = new JLabel(ResourcesLoader.getString("budget.perClass.text"));
+		perClassLabel.setToolTipText(ResourcesLoader.getString("budget.perClass.description"));
+		perClassLabel.setPreferredSize(new JBDimension(indent, perClassLabel.getPreferredSize().height));
+		perClass = new JBIntSpinner(0, 0, 3600000, 1000);
+
+		totalLabel = new JLabel(ResourcesLoader.getString("budget.total.text"));
+		totalLabel.setToolTipText(ResourcesLoader.getString("budget.total.description"));
+		totalLabel.setPreferredSize(new JBDimension(indent, totalLabel.getPreferredSize().height));
+		total = new JBIntSpinner(0, 0, 86400, 10);
+
+		disableOverBudget = new JBCheckBox(ResourcesLoader.getString("budget.disable.text"));
+
+		final JPanel perClassPane = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		perClassPane.add(perClassLabel);
+		perClassPane.add(perClass);
+
+		final JPanel totalPane = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		totalPane.add(totalLabel);
+		totalPane.add(total);
+
+		add(perClassPane);
+		add(totalPane);
+		add(disableOverBudget);
+	}
+
+	@Override
+	public void setEnabled(final boolean enabled) {
+		super.setEnabled(enabled);
+		perClassLabel.setEnabled(enabled);
+		perClass.setEnabled(enabled);
+		totalLabel.setEnabled(enabled);
+		total.setEnabled(enabled);
+		disableOverBudget.setEnabled(enabled);
+	}
+
+	@Override
+	public boolean isModified(@NotNull final AbstractSettings settings) {
+		return perClass.getNumber() != settings.detectorBudgetPerClass ||
+				total.getNumber() != settings.detectorBudgetTotal ||
+				disableOverBudget.isSelected() != settings.disableDetectorsOverBudget;
+	}
+
+	@Override
+	public void apply(@NotNull final AbstractSettings settings) throws ConfigurationException {
+		settings.detectorBudgetPerClass = perClass.getNumber();
+		settings.detectorBudgetTotal = total.getNumber();
+		settings.disableDetectorsOverBudget = disableOverBudget.isSelected();
+	}
+
+	@Override
+	public void reset(@NotNull final AbstractSettings settings) {
+		perClass.setNumber(Math.max(0, Math.min(settings.detectorBudgetPerClass, perClass.getMax())));
+		total.setNumber(Math.max(0, Math.min(settings.detectorBudgetTotal, total.getMax())));
+		disableOverBudget.setSelected(settings.disableDetectorsOverBudget);
+	}
+}
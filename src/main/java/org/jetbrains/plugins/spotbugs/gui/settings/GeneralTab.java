@@ -20,6 +20,7 @@
 package org.jetbrains.plugins.spotbugs.gui.settings;
 
 import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.ui.JBIntSpinner;
 import com.intellij.ui.components.JBCheckBox;
 import com.intellij.util.ui.UIUtil;
 import org.jetbrains.annotations.NotNull;
@@ -31,15 +32,26 @@ import org.jetbrains.plugins.spotbugs.gui.common.VerticalFlowLayout;
 import org.jetbrains.plugins.spotbugs.plugins.Plugins;
 import org.jetbrains.plugins.spotbugs.resources.ResourcesLoader;
 
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import java.awt.BorderLayout;
+import java.awt.FlowLayout;
 
 final class GeneralTab extends JPanel {
 	private JBCheckBox compileBeforeAnalyze;
 	private JBCheckBox analyzeAfterCompile;
 	private JBCheckBox analyzeAfterAutoMake;
+	private JBCheckBox analyzeDependents;
 	private JBCheckBox runInBackground;
 	private JBCheckBox toolWindowToFront;
+	private JBCheckBox incrementalAnalysis;
+	private JBCheckBox mergeModules;
+	private JBIntSpinner analysisThreads;
+	private JBCheckBox analyzeInDaemon;
+	private JBIntSpinner daemonMaxHeap;
+	private JBIntSpinner analysisShards;
+	private JBIntSpinner analysisTimeLimit;
+	private JBCheckBox pruneLibraries;
 	private PluginTablePane plugin;
 
 	GeneralTab() {
@@ -47,16 +59,50 @@ final class GeneralTab extends JPanel {
 		compileBeforeAnalyze = new JBCheckBox(ResourcesLoader.getString("general.compileBeforeAnalyze.title"));
 		analyzeAfterCompile = new JBCheckBox(ResourcesLoader.getString("general.analyzeAfterCompile.title"));
 		analyzeAfterAutoMake = new JBCheckBox(ResourcesLoader.getString("general.analyzeAfterAutoMake.title"));
+		analyzeDependents = new JBCheckBox(ResourcesLoader.getString("general.analyzeDependents.title"));
 		runInBackground = new JBCheckBox(ResourcesLoader.getString("general.runInBackground.title"));
 		toolWindowToFront = new JBCheckBox(ResourcesLoader.getString("general.toolWindowToFront.title"));
+		incrementalAnalysis = new JBCheckBox(ResourcesLoader.getString("general.incrementalAnalysis.title"));
+		mergeModules = new JBCheckBox(ResourcesLoader.getString("general.mergeModules.title"));
+		analysisThreads = new JBIntSpinner(1, 1, Math.max(1, Runtime.getRuntime().availableProcessors()));
+		analyzeInDaemon = new JBCheckBox(ResourcesLoader.getString("general.analyzeInDaemon.title"));
+		daemonMaxHeap = new JBIntSpinner(2048, 256, 65536, 256);
+		analysisShards = new JBIntSpinner(1, 1, Math.max(1, Runtime.getRuntime().availableProcessors()));
+		analysisTimeLimit = new JBIntSpinner(0, 0, 86400, 10);
+		pruneLibraries = new JBCheckBox(ResourcesLoader.getString("general.pruneLibraries.title"));
 		plugin = new PluginTablePane();
 
+		final JPanel analysisThreadsPane = new JPanel(new FlowLayout(FlowLayout.LEFT, UIUtil.DEFAULT_HGAP, 0));
+		analysisThreadsPane.add(new JLabel(ResourcesLoader.getString("general.analysisThreads.title")));
+		analysisThreadsPane.add(analysisThreads);
+
+		final JPanel daemonMaxHeapPane = new JPanel(new FlowLayout(FlowLayout.LEFT, UIUtil.DEFAULT_HGAP, 0));
+		daemonMaxHeapPane.add(new JLabel(ResourcesLoader.getString("general.daemonMaxHeap.title")));
+		daemonMaxHeapPane.add(daemonMaxHeap);
+
+		final JPanel analysisShardsPane = new JPanel(new FlowLayout(FlowLayout.LEFT, UIUtil.DEFAULT_HGAP, 0));
+		analysisShardsPane.add(new JLabel(ResourcesLoader.getString("general.analysisShards.title")));
+		analysisShardsPane.add(analysisShards);
+
+		final JPanel analysisTimeLimitPane = new JPanel(new FlowLayout(FlowLayout.LEFT, UIUtil.DEFAULT_HGAP, 0));
+		analysisTimeLimitPane.add(new JLabel(ResourcesLoader.getString("general.analysisTimeLimit.title")));
+		analysisTimeLimitPane.add(analysisTimeLimit);
+
 		final JPanel topPane = new JPanel(new VerticalFlowLayout(HAlignment.Left, VAlignment.Top, 0, UIUtil.DEFAULT_VGAP, false, false));
 		topPane.add(compileBeforeAnalyze);
 		topPane.add(analyzeAfterCompile);
 		topPane.add(analyzeAfterAutoMake);
+		topPane.add(analyzeDependents);
 		topPane.add(runInBackground);
 		topPane.add(toolWindowToFront);
+		topPane.add(incrementalAnalysis);
+		topPane.add(mergeModules);
+		topPane.add(analysisThreadsPane);
+		topPane.add(analyzeInDaemon);
+		topPane.add(analysisShardsPane);
+		topPane.add(daemonMaxHeapPane);
+		topPane.add(analysisTimeLimitPane);
+		topPane.add(pruneLibraries);
 
 		add(topPane, BorderLayout.NORTH);
 		add(plugin);
@@ -74,8 +120,17 @@ final class GeneralTab extends JPanel {
 		return compileBeforeAnalyze.isSelected() != settings.compileBeforeAnalyze ||
 				analyzeAfterCompile.isSelected() != settings.analyzeAfterCompile ||
 				analyzeAfterAutoMake.isSelected() != settings.analyzeAfterAutoMake ||
+				analyzeDependents.isSelected() != settings.analyzeDependents ||
 				runInBackground.isSelected() != settings.runInBackground ||
-				toolWindowToFront.isSelected() != settings.toolWindowToFront;
+				toolWindowToFront.isSelected() != settings.toolWindowToFront ||
+				incrementalAnalysis.isSelected() != settings.incrementalAnalysis ||
+				mergeModules.isSelected() != settings.mergeModules ||
+				analysisThreads.getNumber() != settings.analysisThreads ||
+				analyzeInDaemon.isSelected() != settings.analyzeInDaemon ||
+				daemonMaxHeap.getNumber() != settings.daemonMaxHeap ||
+				analysisShards.getNumber() != settings.analysisShards ||
+				analysisTimeLimit.getNumber() != settings.analysisTimeLimit ||
+				pruneLibraries.isSelected() != settings.pruneLibraries;
 	}
 
 	void apply(@NotNull final AbstractSettings settings) throws ConfigurationException {
@@ -86,8 +141,17 @@ final class GeneralTab extends JPanel {
 		settings.compileBeforeAnalyze = compileBeforeAnalyze.isSelected();
 		settings.analyzeAfterCompile = analyzeAfterCompile.isSelected();
 		settings.analyzeAfterAutoMake = analyzeAfterAutoMake.isSelected();
+		settings.analyzeDependents = analyzeDependents.isSelected();
 		settings.runInBackground = runInBackground.isSelected();
 		settings.toolWindowToFront = toolWindowToFront.isSelected();
+		settings.incrementalAnalysis = incrementalAnalysis.isSelected();
+		settings.mergeModules = mergeModules.isSelected();
+		settings.analysisThreads = analysisThreads.getNumber();
+		settings.analyzeInDaemon = analyzeInDaemon.isSelected();
+		settings.daemonMaxHeap = daemonMaxHeap.getNumber();
+		settings.analysisShards = analysisShards.getNumber();
+		settings.analysisTimeLimit = analysisTimeLimit.getNumber();
+		settings.pruneLibraries = pruneLibraries.isSelected();
 	}
 
 	void reset(@NotNull final AbstractSettings settings) {
@@ -98,8 +162,17 @@ final class GeneralTab extends JPanel {
 		compileBeforeAnalyze.setSelected(settings.compileBeforeAnalyze);
 		analyzeAfterCompile.setSelected(settings.analyzeAfterCompile);
 		analyzeAfterAutoMake.setSelected(settings.analyzeAfterAutoMake);
+		analyzeDependents.setSelected(settings.analyzeDependents);
 		runInBackground.setSelected(settings.runInBackground);
 		toolWindowToFront.setSelected(settings.toolWindowToFront);
+		incrementalAnalysis.setSelected(settings.incrementalAnalysis);
+		mergeModules.setSelected(settings.mergeModules);
+		analysisThreads.setNumber(Math.max(1, Math.min(settings.analysisThreads, analysisThreads.getMax())));
+		analyzeInDaemon.setSelected(settings.analyzeInDaemon);
+		daemonMaxHeap.setNumber(Math.max(daemonMaxHeap.getMin(), Math.min(settings.daemonMaxHeap, daemonMaxHeap.getMax())));
+		analysisShards.setNumber(Math.max(1, Math.min(settings.analysisShards, analysisShards.getMax())));
+		analysisTimeLimit.setNumber(Math.max(0, Math.min(settings.analysisTimeLimit, analysisTimeLimit.getMax())));
+		pruneLibraries.setSelected(settings.pruneLibraries);
 	}
 
 	@NotNull
@@ -118,8 +191,17 @@ final class GeneralTab extends JPanel {
 				"general.compileBeforeAnalyze.title",
 				"general.analyzeAfterCompile.title",
 				"general.analyzeAfterAutoMake.title",
+				"general.analyzeDependents.title",
 				"general.runInBackground.title",
 				"general.toolWindowToFront.title",
+				"general.incrementalAnalysis.title",
+				"general.mergeModules.title",
+				"general.analysisThreads.title",
+				"general.analyzeInDaemon.title",
+				"general.daemonMaxHeap.title",
+				"general.analysisShards.title",
+				"general.analysisTimeLimit.title",
+				"general.pruneLibraries.title",
 				// PluginTablePane
 				"plugins.title",
 				"plugins.addFromDisk"
@@ -40,6 +40,7 @@ final class ReportTab extends JPanel implements SettingsOwner<AbstractSettings>
 	private MinRankPane minRank;
 	private MinPriorityPane minPriority;
 	private BugCategoryPane bugCategory;
+	private DetectorBudgetPane detectorBudget;
 
 	ReportTab() {
 		super(new VerticalFlowLayout(HAlignment.Left, VAlignment.Top, 0, UIUtil.DEFAULT_HGAP, true, false));
@@ -47,6 +48,7 @@ final class ReportTab extends JPanel implements SettingsOwner<AbstractSettings>
 		add(getAnalysisEffort());
 		add(getMinRank());
 		add(getMinPriority());
+		add(getDetectorBudget());
 
 		final JPanel bottomPane = new JPanel(new BorderLayout());
 		bottomPane.add(getBugCategory(), BorderLayout.NORTH);
@@ -60,6 +62,7 @@ final class ReportTab extends JPanel implements SettingsOwner<AbstractSettings>
 		getMinRank().setEnabled(enabled);
 		getMinPriority().setEnabled(enabled);
 		getBugCategory().setEnabled(enabled);
+		getDetectorBudget().setEnabled(enabled);
 	}
 
 	@NotNull
@@ -86,6 +89,14 @@ final class ReportTab extends JPanel implements SettingsOwner<AbstractSettings>
 		return minPriority;
 	}
 
+	@NotNull
+	private DetectorBudgetPane getDetectorBudget() {
+		if (detectorBudget == null) {
+			detectorBudget = new DetectorBudgetPane(200);
+		}
+		return detectorBudget;
+	}
+
 	@NotNull
 	BugCategoryPane getBugCategory() {
 		if (bugCategory == null) {
@@ -99,7 +110,8 @@ final class ReportTab extends JPanel implements SettingsOwner<AbstractSettings>
 		return getAnalysisEffort().isModified(settings) ||
 				getMinRank().isModified(settings) ||
 				getMinPriority().isModified(settings) ||
-				getBugCategory().isModified(settings);
+				getBugCategory().isModified(settings) ||
+				getDetectorBudget().isModified(settings);
 	}
 
 	@Override
@@ -108,6 +120,7 @@ final class ReportTab extends JPanel implements SettingsOwner<AbstractSettings>
 		getMinRank().apply(settings);
 		getMinPriority().apply(settings);
 		getBugCategory().apply(settings);
+		getDetectorBudget().apply(settings);
 	}
 
 	@Override
@@ -116,6 +129,7 @@ final class ReportTab extends JPanel implements SettingsOwner<AbstractSettings>
 		getMinRank().reset(settings);
 		getMinPriority().reset(settings);
 		getBugCategory().reset(settings);
+		getDetectorBudget().reset(settings);
 	}
 
 	@NotNull
@@ -139,6 +153,11 @@ final class ReportTab extends JPanel implements SettingsOwner<AbstractSettings>
 				"minPriority.text",
 				"minPriority.description",
 
+				// DetectorBudgetPane
+				"budget.perClass.text",
+				"budget.total.text",
+				"budget.disable.text",
+
 				// BugCategoryPane
 				"bugCategory.title"
 		};
@@ -124,6 +124,20 @@ public class BugTreePanel extends JPanel {
 		_treeModel.addNode(bug);
 	}
 
+	void addNodes(@NotNull final Collection<Bug> bugs) {
+		if (_treeModel.getGroupBy() != _groupBy) {
+			_treeModel.setGroupBy(_groupBy);
+		}
+		_treeModel.beginBulkInsert();
+		try {
+			for (final Bug bug : bugs) {
+				_treeModel.addNode(bug);
+			}
+		} finally {
+			_treeModel.endBulkInsert();
+		}
+	}
+
 	void updateRootNode(@Nullable final Integer classCount) {
 		int numClasses = 0;
 		if (classCount != null) {
@@ -337,6 +351,16 @@ public class BugTreePanel extends JPanel {
 		this.result = result;
 	}
 
+	/**
+	 * Replaces all nodes of the tree with the bugs of the given result.
+	 */
+	void showResult(@NotNull final FindBugsResult result) {
+		EventDispatchThreadHelper.checkEDT();
+		this.result = result;
+		_treeModel.clear();
+		regroupTree();
+	}
+
 	public FindBugsResult getResult() {
 		return result;
 	}
@@ -387,9 +411,7 @@ public class BugTreePanel extends JPanel {
 			// may be a analysis is running, we need to regroup existing nodes
 			final Collection<Bug> existing = _treeModel.getBugs();
 			_treeModel.clear();
-			for (final Bug bug : existing) {
-				addNode(bug);
-			}
+			addNodes(existing);
 		}
 	}
 
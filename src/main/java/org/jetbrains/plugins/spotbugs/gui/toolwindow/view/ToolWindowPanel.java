@@ -73,6 +73,12 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 	private transient PreviewPanel _previewPanel;
 	private FindBugsResult result;
 
+	/**
+	 * {@code true} while an incremental analysis is running, the current result stays visible
+	 * and is merged with the incremental result when the analysis is finished.
+	 */
+	private boolean incrementalAnalysis;
+
 	public ToolWindowPanel(@NotNull final Project project) {
 		_project = project;
 		installListeners();
@@ -83,9 +89,19 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 			DaemonCodeAnalyzer.getInstance(_project).restart();
 		});
 		MessageBusManager.subscribe(project, this, NewBugListener.TOPIC, (bug, analyzedClassCount) -> {
+			if (incrementalAnalysis) {
+				return;
+			}
 			_bugTreePanel.addNode(bug);
 			_bugTreePanel.updateRootNode(analyzedClassCount);
 		});
+		MessageBusManager.subscribe(project, this, NewBugsListener.TOPIC, (bugs, analyzedClassCount) -> {
+			if (incrementalAnalysis) {
+				return;
+			}
+			_bugTreePanel.addNodes(bugs);
+			_bugTreePanel.updateRootNode(analyzedClassCount);
+		});
 	}
 
 	private void initGui() {
@@ -208,11 +224,14 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 	}
 
 	@Override
-	public void analysisStarted() {
+	public void analysisStarted(final boolean incremental) {
 		EditorFactory.getInstance().refreshAllEditors();
 		DaemonCodeAnalyzer.getInstance(_project).restart();
 		updateLayout(false);
-		clear();
+		incrementalAnalysis = incremental && result != null;
+		if (!incrementalAnalysis) {
+			clear();
+		}
 	}
 
 	@Override
@@ -221,12 +240,22 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 
 	@Override
 	public void analysisAborted() {
+		if (incrementalAnalysis) {
+			incrementalAnalysis = false; // keep current result
+			return;
+		}
 		_bugTreePanel.setResult(null);
 	}
 
 	@Override
-	public void analysisFinished(@NotNull final FindBugsResult result, @Nullable final Throwable error) {
-		_bugTreePanel.setResult(result);
+	public void analysisFinished(@NotNull FindBugsResult result, @Nullable final Throwable error) {
+		if (incrementalAnalysis && result.isIncremental()) {
+			result = this.result.merge(result);
+			_bugTreePanel.showResult(result);
+		} else {
+			_bugTreePanel.setResult(result);
+		}
+		incrementalAnalysis = false;
 		final Integer analyzedClassCount = result.getAnalyzedClassCount();
 		_bugTreePanel.updateRootNode(analyzedClassCount);
 		_bugTreePanel.getBugTree().validate();
@@ -242,9 +271,14 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 		this.result = result;
 
 		final NotificationType notificationType;
-		if (numAnalysedClasses == 0) {
+		if (numAnalysedClasses == 0 && !result.isPartial()) {
 			notificationType = NotificationType.WARNING;
 			message.append("&nbsp; (no class files found <a href='").append(A_HREF_MORE_ANCHOR).append("'>more...</a>)<br/>");
+		} else if (result.isPartial()) {
+			notificationType = NotificationType.WARNING;
+			final int unanalyzed = result.getUnanalyzedClasses().size();
+			message.append("&nbsp; (time limit reached, ").append(unanalyzed).append(unanalyzed == 1 ? " class" : " classes")
+					.append(" not analyzed <a href='").append(A_HREF_MORE_ANCHOR).append("'>more...</a>)<br/>");
 		} else {
 			notificationType = NotificationType.INFORMATION;
 			message.append("&nbsp;<a href='").append(A_HREF_MORE_ANCHOR).append("'>more...</a><br/>");
@@ -245,6 +245,26 @@ public abstract class AbstractTreeModel<N extends TreeNode, R extends N> impleme
 	}
 
 
+	/**
+	 * Invoke this method after you've inserted some children into node.
+	 * childIndices should be the index of the new elements and must be sorted
+	 * in ascending order.
+	 *
+	 * @param node ..
+	 * @param childIndices ..
+	 */
+	public final void nodesWereInserted(final N node, final int[] childIndices) {
+		EventDispatchThreadHelper.checkEDT();
+		if (node != null && childIndices != null && childIndices.length > 0) {
+			final Object[] newChildren = new Object[childIndices.length];
+			for (int counter = 0; counter < childIndices.length; counter++) {
+				newChildren[counter] = getChildNode(node, childIndices[counter]);
+			}
+			fireTreeNodesInserted(this, getPathToRoot(node), childIndices, newChildren);
+		}
+	}
+
+
 	/**
 	 * Invoke this method if you've totally changed the children of node and its
 	 * childrens children... This will post a treeStructureChanged event.
@@ -358,6 +378,35 @@ public abstract class AbstractTreeModel<N extends TreeNode, R extends N> impleme
 	}
 
 
+	/**
+	 * Notifies all listeners that have registered interest for notification on
+	 * this event type. The event instance is lazily created using the
+	 * parameters passed into the fire method.
+	 *
+	 * @param source	   the node where new elements are being inserted
+	 * @param path		 the path to the root node
+	 * @param childIndices the indices of the new elements
+	 * @param children	 the new elements
+	 * @see EventListenerList
+	 */
+	protected final void fireTreeNodesInserted(final Object source, final Object[] path, final int[] childIndices, final Object[] children) {
+		// Guaranteed to return a non-null array
+		final Object[] listeners = _treeModelListeners.getListenerList();
+		TreeModelEvent e = null;
+		// Process the listeners last to first, notifying
+		// those that are interested in this event
+		for (int i = listeners.length - 2; i >= 0; i -= 2) {
+			if (listeners[i] == TreeModelListener.class) {
+				// Lazily create the event:
+				if (e == null) {
+					e = new TreeModelEvent(source, path, childIndices, children);
+				}
+				((TreeModelListener) listeners[i + 1]).treeNodesInserted(e);
+			}
+		}
+	}
+
+
 	/**
 	 * Notifies all listeners that have registered interest for notification on
 	 * this event type. The event instance is lazily created using the
@@ -25,6 +25,7 @@ import org.jetbrains.plugins.spotbugs.gui.tree.NodeVisitor;
 import javax.swing.Icon;
 import javax.swing.tree.TreeNode;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
 
@@ -73,6 +74,28 @@ public abstract class AbstractTreeNode<T extends VisitableTreeNode & TreeNode> e
 	}
 
 
+	/**
+	 * Inserts the given node behind all children which are not greater, the children must be sorted.
+	 *
+	 * @return index of the inserted node
+	 */
+	int insertChildSorted(final T node, final Comparator<? super T> comparator) {
+		final List<T> children = getChildsList();
+		int low = 0;
+		int high = children.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (comparator.compare(children.get(mid), node) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		children.add(low, node);
+		return low;
+	}
+
+
 	public T getChildAt(final int childIndex) {
 		return getChildsList().get(childIndex);
 	}
@@ -45,6 +45,8 @@ import java.util.Locale;
 
 public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNode> implements VisitableTreeNode {
 
+	private static final Comparator<TreeNode> CHILD_COMPARATOR = new ChildComparator();
+
 	private final List<VisitableTreeNode> _children;
 	private final Bug bug;
 	private final RecurseNodeVisitor<BugInstanceGroupNode> _recurseNodeVisitor = new RecurseNodeVisitor<>(this);
@@ -83,15 +85,16 @@ public final class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNo
 
 	@Override
 	public void addChild(final VisitableTreeNode node) {
-		_children.add(node);
 		if (node instanceof BugInstanceNode && node.isLeaf()) {
-			_children.sort(new ChildComparator());
+			insertChildSorted(node, CHILD_COMPARATOR);
 			incrementMemberCount();
 			TreeNode treeNode = getParent();
 			while (treeNode instanceof BugInstanceGroupNode) {
 				((BugInstanceGroupNode) treeNode).incrementMemberCount();
 				treeNode = treeNode.getParent();
 			}
+		} else {
+			_children.add(node);
 		}
 	}
 
@@ -19,13 +19,11 @@
  */
 package org.jetbrains.plugins.spotbugs.gui.tree.model;
 
-import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.spotbugs.common.EventDispatchThreadHelper;
 import org.jetbrains.plugins.spotbugs.common.ExtendedProblemDescriptor;
-import org.jetbrains.plugins.spotbugs.common.util.BugInstanceUtil;
 import org.jetbrains.plugins.spotbugs.core.Bug;
 import org.jetbrains.plugins.spotbugs.core.ProblemCacheService;
 import org.jetbrains.plugins.spotbugs.gui.tree.BugInstanceComparator;
@@ -35,19 +33,62 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Groups the bugs by {@link #getGroupBy()}, every level of the tree is one group by.
+ * <p>
+ * The group names of a bug are computed once when it is added. A group node is found by its path
+ * (the group names from the root) with a hash lookup, and new nodes are inserted sorted into their parent,
+ * so adding a bug does not depend on the number of groups.
+ * <p>
+ * Between {@link #beginBulkInsert()} and {@link #endBulkInsert()} no events are fired while bugs are added.
+ * The inserted nodes are collected per parent and reported with one insert event per parent at the end,
+ * so the tree keeps its expansion and selection state (unlike with a structure changed event).
+ */
+public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNode> {
+
+	private GroupBy[] _groupBy;
 
-public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNode> implements Grouper.GrouperCallback<Bug> {
+	/**
+	 * Group path to node, for the groups of all depths.
+	 */
+	private final transient Map<List<String>, BugInstanceGroupNode> _groups;
 
-	private static final Logger LOGGER = Logger.getInstance(GroupTreeModel.class.getName());
+	private final transient Map<Bug, BugInstanceNode> _leafs;
+
+	/**
+	 * Comparators of the groups by depth, {@code null} if not yet created for the current {@link #_groupBy}.
+	 */
+	@Nullable
+	private transient List<Comparator<VisitableTreeNode>> _groupComparators;
+
+	/**
+	 * Existing node to the nodes inserted into it since {@link #beginBulkInsert()}, {@code null} if not in bulk mode.
+	 * Only the topmost node of a new subtree is collected, its children are part of the same insert event.
+	 */
+	@Nullable
+	private transient Map<VisitableTreeNode, List<VisitableTreeNode>> _inserted;
+
+	/**
+	 * Existing groups whose member count changed since {@link #beginBulkInsert()}.
+	 */
+	@Nullable
+	private transient Set<VisitableTreeNode> _changed;
+
+	/**
+	 * Groups created since {@link #beginBulkInsert()}, the nodes added below them are part of their insert event.
+	 */
+	@Nullable
+	private transient Set<VisitableTreeNode> _created;
 
-	private GroupBy[] _groupBy;
-	private final transient Map<String, Map<Integer, List<BugInstanceGroupNode>>> _groups;
-	private transient Grouper<Bug> _grouper;
 	private int _bugCount;
 	private final transient Map<PsiFile, List<ExtendedProblemDescriptor>> _problems;
 
@@ -60,6 +101,7 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 		_project = project;
 		_groupBy = groupBy.clone();
 		_groups = new HashMap<>();
+		_leafs = new HashMap<>();
 		_problems = project.getService(ProblemCacheService.class).getProblems();
 	}
 
@@ -67,26 +109,6 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 		return _project;
 	}
 
-	private void addGroupIfAbsent(final String groupNameKey, final int depth, final BugInstanceGroupNode groupNode) {
-		if (!_groups.containsKey(groupNameKey)) {
-			final Map<Integer, List<BugInstanceGroupNode>> map = new HashMap<>();
-			_groups.put(groupNameKey, map);
-			final List<BugInstanceGroupNode> groupNodes = addGroupIfAbsentImpl(groupNameKey, depth, groupNode);
-			map.put(depth, groupNodes);
-		} else {
-			addGroupIfAbsentImpl(groupNameKey, depth, groupNode);
-		}
-	}
-
-	@NotNull
-	private List<BugInstanceGroupNode> addGroupIfAbsentImpl(final String groupNameKey, final int depth, final BugInstanceGroupNode groupNode) {
-		final Map<Integer, List<BugInstanceGroupNode>> map = _groups.get(groupNameKey);
-
-		final List<BugInstanceGroupNode> list = map.computeIfAbsent(depth, k -> new ArrayList<>());
-		list.add(groupNode);
-		return list;
-	}
-
 	@SuppressWarnings({"ReturnOfCollectionOrArrayField"})
 	public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
 		return _problems;
@@ -104,7 +126,8 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 			if (_problems.containsKey(value)) {
 				_problems.get(value).add(element);
 			} else {
-				final List<ExtendedProblemDescriptor> list = new ArrayList<>();
+				// read by the editor annotators while the analysis is running, see ProblemCacheService#isReady
+				final List<ExtendedProblemDescriptor> list = new CopyOnWriteArrayList<>();
 				list.add(element);
 				_problems.put(value, list);
 			}
@@ -116,123 +139,124 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 		return _bugCount;
 	}
 
-	@SuppressWarnings({"LockAcquiredButNotSafelyReleased"})
-	public void addNode(@NotNull final Bug bug) {
-		/*if(isHiddenBugGroup(bugInstance)) {
-			return;
-		}*/
-		_bugCount++;
-		group(bug);
+	/**
+	 * Starts collecting the events of {@link #addNode(Bug)} until {@link #endBulkInsert()}.
+	 */
+	public void beginBulkInsert() {
+		EventDispatchThreadHelper.checkEDT();
+		if (_inserted == null) {
+			_inserted = new IdentityHashMap<>();
+			_changed = Collections.newSetFromMap(new IdentityHashMap<>());
+			_created = Collections.newSetFromMap(new IdentityHashMap<>());
+		}
 	}
 
-	private void group(@NotNull final Bug bug) {
-		if (_grouper == null) {
-			_grouper = new Grouper<>(this);
+	/**
+	 * Fires the collected events: one insert event per parent with the final (sorted) indices
+	 * of its new children, and a changed event for every existing group which got new members.
+	 */
+	public void endBulkInsert() {
+		EventDispatchThreadHelper.checkEDT();
+		final Map<VisitableTreeNode, List<VisitableTreeNode>> inserted = _inserted;
+		final Set<VisitableTreeNode> changed = _changed;
+		if (inserted == null || changed == null) {
+			return;
+		}
+		_inserted = null;
+		_changed = null;
+		_created = null;
+		for (final Map.Entry<VisitableTreeNode, List<VisitableTreeNode>> entry : inserted.entrySet()) {
+			final VisitableTreeNode parent = entry.getKey();
+			final List<VisitableTreeNode> children = entry.getValue();
+			final int[] childIndices = new int[children.size()];
+			for (int i = 0; i < childIndices.length; i++) {
+				childIndices[i] = getIndexOfChildNode(parent, children.get(i));
+			}
+			Arrays.sort(childIndices);
+			nodesWereInserted(parent, childIndices);
+		}
+		for (final VisitableTreeNode group : changed) {
+			nodeChanged(group);
 		}
-		final List<Comparator<Bug>> groupComparators = BugInstanceComparator.getGroupComparators(_groupBy);
-		_grouper.group(bug, groupComparators);
 	}
 
-	@Override
-	public void startGroup(final Bug member, final int depth) {
-		EventDispatchThreadHelper.assertInEDTorADT();
-
-		final GroupBy groupBy = _groupBy[depth];
-		final String groupName = GroupBy.getGroupName(groupBy, member);
-		final BugInstanceGroupNode groupNode = new BugInstanceGroupNode(groupBy, groupName, _root, member, depth, _project);
-
-		addGroupIfAbsent(Arrays.toString(BugInstanceUtil.getGroupPath(member, depth, _groupBy)), depth, groupNode);
-
-		_root.addChild(groupNode);
-		nodeStructureChanged(_root);
-
-		startSubGroup(depth + 1, member, member);
+	public void addNode(@NotNull final Bug bug) {
+		/*if(isHiddenBugGroup(bugInstance)) {
+			return;
+		}*/
+		EventDispatchThreadHelper.checkEDT();
+		final boolean bulk = _inserted != null;
+		if (!bulk) {
+			beginBulkInsert();
+		}
+		try {
+			addNodeImpl(bug);
+		} finally {
+			if (!bulk) {
+				endBulkInsert();
+			}
+		}
 	}
 
-	@Override
-	public void startSubGroup(final int depth, final Bug member, final Bug parent) {
-		EventDispatchThreadHelper.assertInEDTorADT();
-
-		String groupName = GroupBy.getGroupName(_groupBy[depth - 1], member);
-		final BugInstanceGroupNode parentGroup = _root.findChildNode(parent, depth - 1, groupName);
-
-		//final BugInstanceGroupNode parentGroup = ((RootNode) _root).getChildByBugInstance(parent, depth - 1);
-		//final BugInstanceGroupNode parentGroup = ((RootNode) _root).getChildByGroupName(GroupBy.getGroupName(_groupBy[depth - 1], parent), depth - 1);
-		//final BugInstanceGroupNode parentGroup = _groups.get(depth-1 + Arrays.toString(getGroupPath(member)));
-
-		if (parentGroup != null) {
-			final GroupBy groupBy = _groupBy[depth];
-			groupName = GroupBy.getGroupName(groupBy, member);
-			final BugInstanceGroupNode childGroup = new BugInstanceGroupNode(groupBy, groupName, parentGroup, member, depth, _project);
-
-			addGroupIfAbsent(Arrays.toString(BugInstanceUtil.getGroupPath(parent, depth, _groupBy)), depth, childGroup);
-			//addGroupIfAbsent(GroupBy.getGroupName(_groupBy[0], parent), depth, childGroup);
-
-			parentGroup.addChild(childGroup);
-			nodeStructureChanged(parentGroup);
+	private void addNodeImpl(@NotNull final Bug bug) {
+		_bugCount++;
 
-			if (depth < _groupBy.length - 1) {
-				startSubGroup(depth + 1, member, member);
+		final String[] groupNames = new String[_groupBy.length];
+		for (int depth = 0; depth < groupNames.length; depth++) {
+			groupNames[depth] = GroupBy.getGroupName(_groupBy[depth], bug);
+		}
+		final List<String> path = Arrays.asList(groupNames);
+
+		VisitableTreeNode parent = _root;
+		BugInstanceGroupNode group = null;
+		boolean newSubtree = false;
+		for (int depth = 0; depth < groupNames.length; depth++) {
+			final List<String> key = path.subList(0, depth + 1);
+			group = _groups.get(key);
+			if (group == null) {
+				group = new BugInstanceGroupNode(_groupBy[depth], groupNames[depth], parent, bug, depth, _project);
+				_groups.put(key, group);
+				parent.getTreeNode().insertChildSorted(group, getGroupComparator(depth));
+				if (!newSubtree) {
+					inserted(parent, group);
+					newSubtree = true;
+				}
+				_created.add(group);
+			} else if (_created.contains(group)) {
+				newSubtree = true;
 			} else {
-				addToGroup(depth, member, member);
+				_changed.add(group);
 			}
-		} else {
-			String message =
-					"parentGroup can not be null: groupName = " + groupName + "; depth = " + depth + "; parent = " + parent;
-			LOGGER.error(new NullPointerException(message));
+			parent = group;
 		}
 
-
-	}
-
-	@Override
-	public void addToGroup(final int depth, final Bug member, final Bug parent) {
-		EventDispatchThreadHelper.checkEDT();
-
-		final String groupName = GroupBy.getGroupName(_groupBy[depth], member);
-		final BugInstanceGroupNode parentGroup = _root.findChildNode(parent, depth, groupName);
-
-		if (parentGroup != null) {
-			final BugInstanceNode childNode = new BugInstanceNode(member, parentGroup, _project);
-			parentGroup.addChild(childNode);
-			addProblem(childNode);
-			nodeStructureChanged(parentGroup);
-		} else {
-			//noinspection ThrowableInstanceNeverThrown
-			LOGGER.error("parentSubGroup can not be null. ", new NullPointerException());
+		final BugInstanceNode leaf = new BugInstanceNode(bug, group, _project);
+		group.addChild(leaf);
+		if (!newSubtree) {
+			inserted(group, leaf);
 		}
+		_leafs.putIfAbsent(bug, leaf);
+		addProblem(leaf);
 	}
 
-	@Override
-	public Comparator<Bug> currentGroupComparatorChain(final int depth) {
-		return BugInstanceComparator.getComparatorChain(depth, getGroupBy());
+	private void inserted(@NotNull final VisitableTreeNode parent, @NotNull final VisitableTreeNode child) {
+		_inserted.computeIfAbsent(parent, k -> new ArrayList<>()).add(child);
 	}
 
-	@Override
-	public List<Bug> availableGroups(final int depth, @NotNull final Bug bug) {
-    final List<Bug> result = new ArrayList<>();
-
-		//final GroupBy groupBy = _groupBy[0];
-		//final String groupName = GroupBy.getGroupName(groupBy, bug);
-		final String groupName = Arrays.toString(BugInstanceUtil.getGroupPath(bug, depth, _groupBy));
-
-		if (_groups.containsKey(groupName)) {
-			final Map<Integer, List<BugInstanceGroupNode>> map = _groups.get(groupName);
-
-			if (map.containsKey(depth)) {
-				final List<BugInstanceGroupNode> groupNodes = map.get(depth);
-
-				for (final BugInstanceGroupNode node : groupNodes) {
-					result.add(node.getBug());
-				}
+	@NotNull
+	private Comparator<VisitableTreeNode> getGroupComparator(final int depth) {
+		if (_groupComparators == null) {
+			_groupComparators = new ArrayList<>();
+			for (final Comparator<Bug> comparator : BugInstanceComparator.getGroupComparators(_groupBy)) {
+				_groupComparators.add((a, b) -> comparator.compare(((BugInstanceGroupNode) a).getBug(), ((BugInstanceGroupNode) b).getBug()));
 			}
 		}
-
-		return result;
+		return _groupComparators.get(depth);
 	}
 
 	public void setGroupBy(final GroupBy[] groupBy) {
 		_groupBy = groupBy.clone();
+		_groupComparators = null;
 	}
 
 	public GroupBy[] getGroupBy() {
@@ -245,6 +269,7 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 		//_sortedCollection.clear();
 		_bugCount = 0;
 		_groups.clear();
+		_leafs.clear();
 		_problems.clear();
 		_root.removeAllChilds();
 		nodeStructureChanged(_root);
@@ -254,27 +279,7 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 
 	@Nullable
 	public BugInstanceNode findNodeByBugInstance(final Bug bug) {
-		final String[] fullGroupPath = BugInstanceUtil.getFullGroupPath(bug, _groupBy);
-		final String[] groupNameKey = BugInstanceUtil.getGroupPath(bug, fullGroupPath.length - 1, _groupBy);
-
-		final Map<Integer, List<BugInstanceGroupNode>> map = _groups.get(Arrays.toString(groupNameKey));
-		if (map != null) {
-			for (final Entry<Integer, List<BugInstanceGroupNode>> entry : map.entrySet()) {
-
-				final List<BugInstanceGroupNode> groupNodes = entry.getValue();
-				for (final BugInstanceGroupNode groupNode : groupNodes) {
-
-					final List<VisitableTreeNode> bugInstanceNodes = groupNode.getChildsList();
-					for (final VisitableTreeNode node : bugInstanceNodes) {
-						final Bug otherBug = ((BugInstanceNode) node).getBug();
-						if (otherBug.equals(bug)) {
-							return (BugInstanceNode) node;
-						}
-					}
-				}
-			}
-		}
-		return null;
+		return _leafs.get(bug);
 	}
 
 	@NotNull
@@ -33,7 +33,9 @@ public interface AnalysisStartedListener {
 
 	/**
 	 * Invoked by EDT.
+	 *
+	 * @param incremental {@code true} if the result of this analysis will be merged into the current result
 	 */
-	void analysisStarted();
+	void analysisStarted(boolean incremental);
 
 }
\ No newline at end of file
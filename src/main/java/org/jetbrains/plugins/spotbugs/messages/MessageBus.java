@@ -62,6 +62,11 @@ final class MessageBus {
 	}
 
 
+	public void unsubscribe(@NotNull final Object subscriber) {
+		_subscribers.remove(subscriber);
+	}
+
+
 	@SuppressWarnings("unchecked")
 	@NotNull
 	public <L> L publisher(@NotNull final Topic<L> topic) {
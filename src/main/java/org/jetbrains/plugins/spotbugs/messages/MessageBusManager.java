@@ -29,6 +29,7 @@ import org.jetbrains.plugins.spotbugs.core.FindBugsResult;
 import org.jetbrains.plugins.spotbugs.core.FindBugsState;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -71,6 +72,17 @@ public final class MessageBusManager {
 		of(project).subscribe(subscriber, topic, handler);
 	}
 
+	/**
+	 * Removes all handlers of {@code subscriber}, f. e. of an analysis which is finished.
+	 */
+	public static void unsubscribe(@NotNull final Project project, @NotNull final Object subscriber) {
+		EventDispatchThreadHelper.checkEDT();
+		final MessageBus bus = _busByProject.get(project);
+		if (bus != null) {
+			bus.unsubscribe(subscriber);
+		}
+	}
+
 	public static void publishClear(@NotNull final Project project) {
 		EventDispatchThreadHelper.checkEDT();
 		FindBugsState.set(project, FindBugsState.Cleared);
@@ -82,17 +94,22 @@ public final class MessageBusManager {
 		publish(project, NewBugListener.TOPIC).newBug(bug, analyzedClassCount);
 	}
 
-	public static void publishAnalysisStarted(@NotNull final Project project) {
+	public static void publishNewBugs(@NotNull final Project project, @NotNull final List<Bug> bugs, final int analyzedClassCount) {
+		EventDispatchThreadHelper.checkEDT();
+		publish(project, NewBugsListener.TOPIC).newBugs(bugs, analyzedClassCount);
+	}
+
+	public static void publishAnalysisStarted(@NotNull final Project project, final boolean incremental) {
 		EventDispatchThreadHelper.checkEDT();
 		FindBugsState.set(project, FindBugsState.Started);
-		publish(project, AnalysisStartedListener.TOPIC).analysisStarted();
+		publish(project, AnalysisStartedListener.TOPIC).analysisStarted(incremental);
 	}
 
 	public static void publishAnalysisStartedToEDT(@NotNull final Project project) {
 		EventDispatchThreadHelper.checkNotEDT();
 		EventDispatchThreadHelper.invokeLater(() -> {
 			FindBugsState.set(project, FindBugsState.Started);
-			publish(project, AnalysisStartedListener.TOPIC).analysisStarted();
+			publish(project, AnalysisStartedListener.TOPIC).analysisStarted(false);
 		});
 	}
 
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.messages;
+
+import com.intellij.util.messages.Topic;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.spotbugs.core.Bug;
+
+import java.util.List;
+
+/**
+ * Batched variant of {@link NewBugListener}, used by the analysis so a large number of bugs
+ * does not need one EDT event per bug.
+ */
+public interface NewBugsListener {
+	Topic<NewBugsListener> TOPIC = Topic.create("SpotBugs New Bugs", NewBugsListener.class);
+
+	/**
+	 * Invoked by EDT.
+	 *
+	 * @param bugs in report order, never empty
+	 */
+	void newBugs(@NotNull List<Bug> bugs, int analyzedClassCount);
+}
@@ -71,7 +71,7 @@ public abstract class AbstractPluginLoader {
 		}
 
 
-		// 2. load bundled plugins and unload
+		// 2. read bundled plugins (loaded and unloaded again if not cached)
 		final IdeaPluginDescriptor ideaPluginDescriptor = FindBugsPluginUtil.getIdeaPluginDescriptor();
 		Plugins.deploy(ideaPluginDescriptor);
 		final File[] bundledPlugins = Plugins.getDirectory(ideaPluginDescriptor).listFiles();
@@ -88,11 +88,11 @@ public abstract class AbstractPluginLoader {
 					continue;
 				}
 				try {
-					Plugin plugin = FindBugsCustomPluginUtil.loadTemporary(pluginFile);
-					PluginSettings pluginSettings = PluginSettings.findBundledById(settings, plugin.getPluginId());
+					final PluginMetadata plugin = PluginMetadata.get(pluginFile, FindBugsCustomPluginUtil.getAsString(pluginFile));
+					PluginSettings pluginSettings = PluginSettings.findBundledById(settings, plugin.pluginId);
 					if (pluginSettings == null) {
 						pluginSettings = new PluginSettings();
-						pluginSettings.id = plugin.getPluginId();
+						pluginSettings.id = plugin.pluginId;
 						pluginSettings.bundled = true;
 						pluginSettings.enabled = false;
 						seenBundledPlugin(PluginInfo.create(pluginSettings, plugin));
@@ -100,9 +100,8 @@ public abstract class AbstractPluginLoader {
 						seenConfiguredPlugin(PluginInfo.create(pluginSettings, plugin));
 					}
 					if (pluginSettings.enabled) {
-						enabledBundledPluginUrls.add(FindBugsCustomPluginUtil.getAsString(plugin));
+						enabledBundledPluginUrls.add(plugin.url);
 					}
-					FindBugsCustomPluginUtil.unload(plugin);
 				} catch (final Exception e) {
 					LOGGER.warn("Could not load plugin: " + pluginFile, e);
 				}
@@ -110,7 +109,7 @@ public abstract class AbstractPluginLoader {
 		}
 
 
-		// 3. load user plugins and unload
+		// 3. read user plugins (loaded and unloaded again if not cached)
 		final Set<String> enabledUserPluginUrls = new HashSet<String>();
 		for (final PluginSettings pluginSettings : settings) {
 			if (pluginSettings.bundled) {
@@ -137,12 +136,10 @@ public abstract class AbstractPluginLoader {
 					handleError(error);
 					continue;
 				}
-				final Plugin plugin = FindBugsCustomPluginUtil.loadTemporary(pluginUrl);
-				seenConfiguredPlugin(PluginInfo.create(pluginSettings, plugin));
+				seenConfiguredPlugin(PluginInfo.create(pluginSettings, PluginMetadata.get(pluginFile, pluginUrl)));
 				if (pluginSettings.enabled) {
 					enabledUserPluginUrls.add(pluginUrl);
 				}
-				FindBugsCustomPluginUtil.unload(plugin);
 			} catch (final Exception e) {
 				final String error = ResourcesLoader.getString("plugins.load.error.text.path", pluginUrl);
 				seenConfiguredPlugin(PluginInfo.create(pluginSettings, error));
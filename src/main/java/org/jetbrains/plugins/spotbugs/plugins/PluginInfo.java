@@ -67,6 +67,17 @@ public final class PluginInfo {
 		);
 	}
 
+	@NotNull
+	static PluginInfo create(@NotNull final PluginSettings settings, @NotNull final PluginMetadata plugin) {
+		return new PluginInfo(
+				settings,
+				plugin.shortDescription,
+				plugin.detailedDescription,
+				plugin.website,
+				null
+		);
+	}
+
 	@NotNull
 	static PluginInfo create(@NotNull final PluginSettings settings, @NotNull final String error) {
 		return new PluginInfo(
@@ -19,50 +19,134 @@
  */
 package org.jetbrains.plugins.spotbugs.plugins;
 
-import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.util.FindBugsCustomPluginUtil;
 import org.jetbrains.plugins.spotbugs.core.AbstractSettings;
+import org.jetbrains.plugins.spotbugs.core.PluginSettings;
+import org.jetbrains.plugins.spotbugs.core.ProjectSettings;
 
-import java.lang.ref.WeakReference;
+import java.io.File;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Keeps the SpotBugs plugins of several plugin configurations (project settings and module settings which
+ * override them, of all open projects) loaded at the same time. SpotBugs has only one global plugin registry and
+ * {@link edu.umd.cs.findbugs.DetectorFactoryCollection}, so the union of the enabled plugins of all configurations
+ * is loaded, and every analysis enables only the plugins of its own configuration with the plugin status of its
+ * {@link edu.umd.cs.findbugs.Project} (see {@code FindBugsProject#create}).
+ * <p>
+ * Configurations are identified by a {@link #fingerprint(Set) fingerprint} of their enabled plugins, so switching
+ * between modules and projects with known configurations does not load any plugin. All plugins are loaded again when
+ * a new configuration is added, and the other configurations are dropped if the new one enables another jar
+ * with the same plugin id (SpotBugs can not load both).
+ */
 public final class PluginLoader {
-	private static WeakReference<Project> projectRef; // @GuardedBy PluginLoader.class
-	private static WeakReference<Module> moduleRef; // @GuardedBy PluginLoader.class
+
+	/**
+	 * Fingerprints of the configurations covered by the loaded plugins.
+	 */
+	private static final Set<String> loaded = new HashSet<>(); // @GuardedBy PluginLoader.class
+
+	/**
+	 * Plugin id to the settings of the loaded (enabled) plugin.
+	 */
+	private static final Map<String, PluginSettings> enabledPlugins = new HashMap<>(); // @GuardedBy PluginLoader.class
 
 	private PluginLoader() {
 	}
 
 	public synchronized static void invalidate() {
-		projectRef = null;
-		moduleRef = null;
+		loaded.clear();
+		enabledPlugins.clear();
 	}
 
 	public synchronized static boolean load(
 			@NotNull final Project project,
-			@Nullable final Module module,
 			@NotNull final AbstractSettings settings,
 			final boolean addEditSettingsLinkToErrorMessage
 	) {
 
-		Project latestProject = projectRef == null ? null : projectRef.get();
-		Module latestModule = moduleRef == null ? null : moduleRef.get();
-		if (latestProject != project || latestModule != module) {
-			final PluginLoaderImpl pluginLoader = new PluginLoaderImpl(addEditSettingsLinkToErrorMessage);
-			pluginLoader.load(settings.plugins);
-      projectRef = new WeakReference<>(project);
-			moduleRef = null;
-			if (module != null) {
-        moduleRef = new WeakReference<>(module);
+		final String fingerprint = fingerprint(settings.plugins);
+		if (loaded.contains(fingerprint)) {
+			return true;
+		}
+		final Set<String> configurations = new HashSet<>(loaded);
+		final Map<String, PluginSettings> plugins = new HashMap<>(enabledPlugins);
+		if (!addEnabled(plugins, settings.plugins)) {
+			configurations.clear();
+			plugins.clear();
+			addEnabled(plugins, settings.plugins);
+		}
+
+		// disabled plugins of the new configuration are needed too, to find the settings of bundled plugins
+		final Set<PluginSettings> combined = new HashSet<>(plugins.values());
+		for (final PluginSettings pluginSettings : settings.plugins) {
+			if (!plugins.containsKey(pluginSettings.id)) {
+				combined.add(pluginSettings);
 			}
-			return pluginLoader.showErrorNotificationIfNecessary(project);
 		}
-		return true;
+		final PluginLoaderImpl pluginLoader = new PluginLoaderImpl(addEditSettingsLinkToErrorMessage);
+		pluginLoader.load(combined); // invalidates
+		loaded.addAll(configurations);
+		loaded.add(fingerprint);
+		enabledPlugins.putAll(plugins);
+		return pluginLoader.showErrorNotificationIfNecessary(project);
 	}
 
+	/**
+	 * @return {@code true} if the plugins of the project settings are loaded
+	 */
 	public synchronized static boolean isLoaded(@NotNull final Project project) {
-		return projectRef != null && projectRef.get() == project;
+		return loaded.contains(fingerprint(ProjectSettings.getInstance(project).plugins));
+	}
+
+	/**
+	 * @return {@code false} if a plugin id is already enabled with another jar
+	 */
+	private static boolean addEnabled(@NotNull final Map<String, PluginSettings> plugins, @NotNull final Set<PluginSettings> settings) {
+		for (final PluginSettings pluginSettings : settings) {
+			if (!pluginSettings.enabled) {
+				continue;
+			}
+			final PluginSettings existing = plugins.putIfAbsent(pluginSettings.id, pluginSettings);
+			if (existing != null && (existing.bundled != pluginSettings.bundled || !String.valueOf(existing.url).equals(String.valueOf(pluginSettings.url)))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Detector settings are not part of the fingerprint, they are applied by every analysis.
+	 * The modification time of user plugin jars is, so a rebuilt plugin is loaded again.
+	 */
+	@NotNull
+	static String fingerprint(@NotNull final Set<PluginSettings> settings) {
+		final List<String> ret = new ArrayList<>();
+		for (final PluginSettings pluginSettings : settings) {
+			if (pluginSettings.enabled) {
+				long modified = 0;
+				if (!pluginSettings.bundled && pluginSettings.url != null) {
+					try {
+						final File file = FindBugsCustomPluginUtil.getAsFile(pluginSettings.url);
+						modified = file.lastModified();
+					} catch (final MalformedURLException ignore) {
+						// reported by AbstractPluginLoader
+					}
+				}
+				ret.add(pluginSettings.id + '|' + pluginSettings.bundled + '|' + pluginSettings.url + '|' + modified);
+			}
+		}
+		Collections.sort(ret);
+		return String.join("\n", ret);
 	}
 
 	private static class PluginLoaderImpl extends AbstractPluginLoader {
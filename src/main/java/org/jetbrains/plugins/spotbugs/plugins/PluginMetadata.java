@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.plugins;
+
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.spotbugs.common.util.FindBugsCustomPluginUtil;
+import org.jetbrains.plugins.spotbugs.common.util.HashUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Id and descriptions of a plugin jar, read by loading the plugin temporarily. {@link AbstractPluginLoader} needs them
+ * for all bundled and configured plugins on every load, so they are cached by jar URL. A jar is loaded again only
+ * if its modification time or size changed and its content hash changed too.
+ */
+final class PluginMetadata {
+
+	private static final Map<String, PluginMetadata> cache = new HashMap<>(); // @GuardedBy cache
+
+	@NotNull
+	final String pluginId;
+
+	/**
+	 * URL of the plugin loader, as returned by {@link FindBugsCustomPluginUtil#getAsString(Plugin)}.
+	 */
+	@NotNull
+	final String url;
+
+	@Nullable
+	final String shortDescription;
+
+	@Nullable
+	final String detailedDescription;
+
+	@Nullable
+	final String website;
+
+	private final long modified;
+
+	private final long size;
+
+	@NotNull
+	private final String hash;
+
+	private PluginMetadata(@NotNull final Plugin plugin, @NotNull final File file, @NotNull final String hash) {
+		pluginId = plugin.getPluginId();
+		url = FindBugsCustomPluginUtil.getAsString(plugin);
+		shortDescription = plugin.getShortDescription();
+		detailedDescription = plugin.getDetailedDescription();
+		website = plugin.getWebsite();
+		modified = file.lastModified();
+		size = file.length();
+		this.hash = hash;
+	}
+
+	private PluginMetadata(@NotNull final PluginMetadata other, @NotNull final File file) {
+		pluginId = other.pluginId;
+		url = other.url;
+		shortDescription = other.shortDescription;
+		detailedDescription = other.detailedDescription;
+		website = other.website;
+		modified = file.lastModified();
+		size = file.length();
+		hash = other.hash;
+	}
+
+	/**
+	 * @param pluginUrl URL of the given plugin jar
+	 */
+	@NotNull
+	static PluginMetadata get(@NotNull final File file, @NotNull final String pluginUrl) throws IOException, PluginException {
+		synchronized (cache) {
+			final PluginMetadata cached = cache.get(pluginUrl);
+			if (cached != null && cached.modified != 0 && cached.modified == file.lastModified() && cached.size == file.length()) {
+				return cached;
+			}
+			final String hash = HashUtil.sha256(file);
+			if (cached != null && cached.hash.equals(hash)) {
+				final PluginMetadata ret = new PluginMetadata(cached, file);
+				cache.put(pluginUrl, ret);
+				return ret;
+			}
+			final Plugin plugin = FindBugsCustomPluginUtil.loadTemporary(pluginUrl);
+			if (plugin == null) {
+				throw new PluginException("Could not load plugin: " + pluginUrl);
+			}
+			try {
+				final PluginMetadata ret = new PluginMetadata(plugin, file, hash);
+				cache.put(pluginUrl, ret);
+				return ret;
+			} finally {
+				FindBugsCustomPluginUtil.unload(plugin);
+			}
+		}
+	}
+}
@@ -23,13 +23,22 @@ import com.intellij.ide.plugins.IdeaPluginDescriptor;
 import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.spotbugs.common.util.HashUtil;
 import org.jetbrains.plugins.spotbugs.common.util.IoUtil;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Properties;
 
 public enum Plugins {
 
@@ -58,6 +67,16 @@ public enum Plugins {
 
 	private static final Logger LOGGER = Logger.getInstance(Plugins.class.getName());
 
+	private static final String CUSTOM_PLUGINS_DIR = "customPlugins";
+
+	private static final String MANIFEST = "deployed.properties";
+
+	private static final String VERSION_KEY = "version";
+
+	private static File directory; // @GuardedBy Plugins.class
+
+	private static boolean deployed; // @GuardedBy Plugins.class
+
 	@NotNull
 	private final String _jarName;
 
@@ -102,21 +121,49 @@ public enum Plugins {
 		return ret;
 	}
 
+	/**
+	 * The directory is resolved once per IDE session. A read-only plugin directory is used as is
+	 * if the bundled plugins are already deployed there (e.g. by an administrator).
+	 */
 	@NotNull
-	public static File getDirectory(@NotNull final IdeaPluginDescriptor pluginDescriptor) {
+	public synchronized static File getDirectory(@NotNull final IdeaPluginDescriptor pluginDescriptor) {
+		if (directory != null) {
+			return directory;
+		}
+		final File readOnly = new File(pluginDescriptor.getPath(), CUSTOM_PLUGINS_DIR);
+		if (!pluginDescriptor.getPath().canWrite() && isDeployed(readOnly, getVersion(pluginDescriptor))) {
+			directory = readOnly;
+			return directory;
+		}
 		final File homeDir = findAccessibleFindBugsIdeaPluginPath(pluginDescriptor);
-		final File dir = new File(homeDir, "customPlugins");
+		final File dir = new File(homeDir, CUSTOM_PLUGINS_DIR);
 		if (!dir.isDirectory()) {
 			if (!dir.mkdirs()) {
 				throw new IllegalStateException("Could not create SpotBugs custom plugins directory: " + dir.getAbsolutePath());
 			}
 		}
-		return dir;
+		directory = dir;
+		return directory;
 	}
 
-	public static void deploy(@NotNull final IdeaPluginDescriptor plugin) {
-
+	/**
+	 * Deploys the bundled plugin jars, at most once per IDE session. The {@link #MANIFEST} records the plugin version
+	 * and the size and checksum of every deployed jar, so nothing is copied as long as the version is unchanged
+	 * and the jars are in place.
+	 */
+	public synchronized static void deploy(@NotNull final IdeaPluginDescriptor plugin) {
+		if (deployed) {
+			return;
+		}
 		final File dir = getDirectory(plugin);
+		final String version = getVersion(plugin);
+		if (!isDeployed(dir, version)) {
+			deployAll(dir, version);
+		}
+		deployed = true;
+	}
+
+	private static void deployAll(@NotNull final File dir, @NotNull final String version) {
 
 		// first delete all legacy
 		for (final Plugins customPlugin : values()) {
@@ -131,47 +178,116 @@ public enum Plugins {
 		}
 
 		// deploy new
-		final boolean isJava7OrLater = isJava7OrLater();
+		final Properties manifest = new Properties();
+		manifest.setProperty(VERSION_KEY, version);
 		for (final Plugins customPlugin : values()) {
-
-			if (Plugins.fb_contrib_java6.equals(customPlugin)) {
-				if (isJava7OrLater()) {
-					continue; // use new fb-contrib version
-				}
-			}
-
-			final File jar = new File(dir, customPlugin._jarName);
-			if (customPlugin._needsJava7OrLater && !isJava7OrLater) {
-				if (jar.exists()) {
+			if (!customPlugin.isDeployable()) {
+				final File jar = new File(dir, customPlugin._jarName);
+				if (customPlugin._needsJava7OrLater && !isJava7OrLater() && jar.exists()) {
 					if (!jar.delete()) {
 						LOGGER.error("Could not delete custom plugin (only supported with Java 7 or later): " + jar.getAbsolutePath());
 					}
 				}
-			} else {
-				if (!jar.isFile()) {
-					deployImpl(jar, customPlugin);
-				}
+				continue;
 			}
+			manifest.setProperty(customPlugin._jarName, deployImpl(new File(dir, customPlugin._jarName), customPlugin));
+		}
+
+		final File file = new File(dir, MANIFEST);
+		final File tmp = new File(dir, MANIFEST + ".tmp");
+		try {
+			try (OutputStream out = new FileOutputStream(tmp)) {
+				manifest.store(out, "Bundled SpotBugs plugins");
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not write " + file.getAbsolutePath(), e);
 		}
 	}
 
-	private static void deployImpl(@NotNull final File file, @NotNull final Plugins plugin) {
-		final InputStream in = Plugins.class.getResourceAsStream(plugin._jarName);
-		if (in == null) {
+	/**
+	 * Copies the jar to a temporary file which is moved to the target, so a concurrent or interrupted
+	 * deployment never leaves a truncated jar behind.
+	 *
+	 * @return manifest entry of the deployed jar: size and SHA-256 checksum
+	 */
+	@NotNull
+	private static String deployImpl(@NotNull final File file, @NotNull final Plugins plugin) {
+		final InputStream resource = Plugins.class.getResourceAsStream(plugin._jarName);
+		if (resource == null) {
 			throw new IllegalStateException("Can not find plugin: " + plugin);
 		}
+		final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
 		try {
-			final FileOutputStream out = new FileOutputStream(file);
-			try {
+			final MessageDigest digest = HashUtil.newSha256();
+			try (InputStream in = new DigestInputStream(resource, digest); OutputStream out = new FileOutputStream(tmp)) {
 				IoUtil.copy(in, out);
-			} finally {
-				IoUtil.safeClose(out);
 			}
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return file.length() + ":" + HashUtil.toHex(digest);
 		} catch (final IOException e) {
 			throw new RuntimeException(e);
 		} finally {
-			IoUtil.safeClose(in);
+			IoUtil.safeClose(resource);
+		}
+	}
+
+	/**
+	 * The checksums are verified at most once per IDE session (see {@link #deploy(IdeaPluginDescriptor)}),
+	 * the size is compared first so a jar of another size is not read at all.
+	 *
+	 * @return {@code true} if the manifest of the given directory matches the plugin version, and all jars are there
+	 * with the recorded size and checksum
+	 */
+	private static boolean isDeployed(@NotNull final File dir, @NotNull final String version) {
+		final File file = new File(dir, MANIFEST);
+		if (!file.isFile()) {
+			return false;
+		}
+		final Properties manifest = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			manifest.load(in);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not read " + file.getAbsolutePath(), e);
+			return false;
+		}
+		if (!version.equals(manifest.getProperty(VERSION_KEY))) {
+			return false;
+		}
+		for (final Plugins customPlugin : values()) {
+			if (customPlugin.isDeployable()) {
+				final String entry = manifest.getProperty(customPlugin._jarName);
+				final File jar = new File(dir, customPlugin._jarName);
+				if (entry == null || !entry.startsWith(jar.length() + ":")) {
+					return false;
+				}
+				try {
+					if (!entry.equals(jar.length() + ":" + HashUtil.sha256(jar))) {
+						return false;
+					}
+				} catch (final IOException e) {
+					LOGGER.warn("Could not read " + jar.getAbsolutePath(), e);
+					return false;
+				}
+			}
 		}
+		return true;
+	}
+
+	private boolean isDeployable() {
+		if (Plugins.fb_contrib_java6.equals(this) && isJava7OrLater()) {
+			return false; // use new fb-contrib version
+		}
+		return !_needsJava7OrLater || isJava7OrLater();
+	}
+
+	@NotNull
+	private static String getVersion(@NotNull final IdeaPluginDescriptor pluginDescriptor) {
+		return String.valueOf(pluginDescriptor.getVersion());
 	}
 
 	// IDEA 2016 needs at least JRE 1.8 or higher, so we can kick this if IDEA 15 support is gone.
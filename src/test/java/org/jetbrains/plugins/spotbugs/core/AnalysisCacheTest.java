@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugCollectionBugReporter;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.DelegatingBugReporter;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisCacheTest {
+
+    private static final String FINGERPRINT = "fingerprint";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+    private File out;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = new File(folder.newFolder("project"), "analysis");
+        out = folder.newFolder("out");
+        TestClasses.compile(out, Arrays.asList(
+                "package app; public class A {}",
+                "package app; public class B {}"
+        ));
+    }
+
+    @Test
+    public void testUnchangedClassesAreReplayed() throws IOException {
+        final AnalysisCache first = open(FINGERPRINT, "app/A.class", "app/B.class");
+        assertTrue(first.hasChangedClasses());
+        assertTrue(first.vacuous());
+        first.store(bugs("app.A", "app.B"));
+
+        final AnalysisCache second = open(FINGERPRINT, "app/A.class", "app/B.class");
+        assertFalse(second.hasChangedClasses());
+        assertFalse(second.matches("app/A.class"));
+        assertEquals(Arrays.asList("app.A", "app.B"), replay(second));
+    }
+
+    @Test
+    public void testChangedClassIsAnalyzed() throws IOException {
+        open(FINGERPRINT, "app/A.class", "app/B.class").store(bugs("app.A", "app.B"));
+        TestClasses.compile(out, Collections.singletonList("package app; public class A { void m() {} }"));
+
+        final AnalysisCache cache = open(FINGERPRINT, "app/A.class", "app/B.class");
+        assertTrue(cache.hasChangedClasses());
+        assertTrue(cache.matches("app/A.class"));
+        assertFalse(cache.matches("app/B.class"));
+        assertEquals(Collections.singletonList("app.B"), replay(cache));
+    }
+
+    @Test
+    public void testOtherFingerprintIsNotReused() throws IOException {
+        open(FINGERPRINT, "app/A.class", "app/B.class").store(bugs("app.A", "app.B"));
+
+        final AnalysisCache cache = open("other", "app/A.class", "app/B.class");
+        assertTrue(cache.hasChangedClasses());
+        assertTrue(cache.vacuous());
+        assertTrue(replay(cache).isEmpty());
+    }
+
+    @Test
+    public void testBugsOfOtherClassesAreRetained() throws IOException {
+        open(FINGERPRINT, "app/A.class", "app/B.class").store(bugs("app.A", "app.B"));
+        open(FINGERPRINT, "app/A.class").store(bugs("app.A"));
+
+        final AnalysisCache cache = open(FINGERPRINT, "app/A.class", "app/B.class");
+        assertFalse(cache.hasChangedClasses());
+        assertEquals(Arrays.asList("app.A", "app.B"), replay(cache));
+    }
+
+    private AnalysisCache open(final String fingerprint, final String... classFiles) throws IOException {
+        final Project project = new Project();
+        for (final String classFile : classFiles) {
+            project.addFile(new File(out, classFile).getPath());
+        }
+        return AnalysisCache.open(dir, "module", project, new ClassFiles(), fingerprint);
+    }
+
+    private static SortedBugCollection bugs(final String... classNames) {
+        final SortedBugCollection ret = new SortedBugCollection();
+        for (final String className : classNames) {
+            ret.add(new BugInstance("NP_ALWAYS_NULL", Priorities.HIGH_PRIORITY).addClass(className), false);
+        }
+        return ret;
+    }
+
+    private static List<String> replay(final AnalysisCache cache) {
+        final List<String> ret = new ArrayList<>();
+        cache.replay(new DelegatingBugReporter(new BugCollectionBugReporter(new Project())) {
+            @Override
+            public void reportBug(final BugInstance bugInstance) {
+                ret.add(bugInstance.getPrimaryClass().getClassName());
+            }
+        });
+        Collections.sort(ret);
+        return ret;
+    }
+}
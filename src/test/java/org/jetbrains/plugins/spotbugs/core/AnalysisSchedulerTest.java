@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import com.intellij.openapi.compiler.CompileScope;
+import com.intellij.openapi.compiler.CompilerManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.testFramework.fixtures.JavaCodeInsightFixtureTestCase;
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AnalysisSchedulerTest extends JavaCodeInsightFixtureTestCase {
+
+    private final List<FindBugsStarter> launched = new ArrayList<>();
+    private AnalysisScheduler scheduler;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        scheduler = new AnalysisScheduler((starter, justCompiled) -> launched.add(starter));
+    }
+
+    public void testStartsImmediatelyWhenIdle() {
+        final TestStarter background = background("background");
+
+        scheduler.schedule(background, true);
+
+        assertEquals(Collections.singletonList(background), launched);
+        assertTrue(scheduler.isBackgroundRunning());
+    }
+
+    public void testQueuedBackgroundRequestsAreMerged() {
+        final TestStarter manual = manual("manual");
+        final TestStarter first = background("first");
+        final TestStarter second = background("second");
+
+        scheduler.schedule(manual, false);
+        scheduler.schedule(first, true);
+        scheduler.schedule(second, false);
+        assertEquals(Collections.singletonList(manual), launched);
+
+        scheduler.finished(manual);
+
+        assertEquals(2, launched.size());
+        final FindBugsStarter merged = launched.get(1);
+        assertTrue(merged.isBackground());
+        assertTrue(configure(merged));
+        assertEquals(Collections.singletonList(true), first.configured);
+        assertEquals(Collections.singletonList(false), second.configured);
+        assertTrue(manual.configured.isEmpty());
+    }
+
+    public void testNewerBackgroundRequestSupersedesRunningOne() {
+        final TestStarter running = background("running");
+        final TestStarter newer = background("newer");
+
+        scheduler.schedule(running, true);
+        scheduler.schedule(newer, true);
+
+        assertFalse(scheduler.isBackgroundRunning());
+        assertEquals(Collections.singletonList(running), launched);
+
+        scheduler.finished(running);
+
+        assertEquals(2, launched.size());
+        configure(launched.get(1));
+        assertEquals(Arrays.asList("running", "newer"), TestStarter.order);
+    }
+
+    public void testManualRequestRunsBeforeQueuedBackgroundRequests() {
+        final TestStarter first = manual("first");
+        final TestStarter background = background("background");
+        final TestStarter second = manual("second");
+
+        scheduler.schedule(first, false);
+        scheduler.schedule(background, true);
+        scheduler.schedule(second, false);
+
+        scheduler.finished(first);
+        assertEquals(Arrays.asList(first, second), launched);
+        assertFalse(scheduler.isBackgroundRunning());
+
+        scheduler.finished(second);
+        assertEquals(Arrays.asList(first, second, background), launched);
+    }
+
+    public void testManualRequestSupersedesRunningBackgroundAnalysis() {
+        final TestStarter background = background("background");
+        final TestStarter manual = manual("manual");
+
+        scheduler.schedule(background, true);
+        scheduler.schedule(manual, false);
+        assertEquals(Collections.singletonList(background), launched);
+
+        scheduler.finished(background);
+        assertEquals(Arrays.asList(background, manual), launched);
+
+        scheduler.finished(manual);
+        assertEquals(3, launched.size());
+        configure(launched.get(2));
+        assertEquals(Collections.singletonList(true), background.configured);
+    }
+
+    public void testQueuedManualRequestIsReplacedByNewerOne() {
+        final TestStarter running = manual("running");
+        final TestStarter replaced = manual("replaced");
+        final TestStarter newer = manual("newer");
+
+        scheduler.schedule(running, false);
+        scheduler.schedule(replaced, false);
+        scheduler.schedule(newer, false);
+
+        scheduler.finished(running);
+        scheduler.finished(newer);
+
+        assertEquals(Arrays.asList(running, newer), launched);
+    }
+
+    public void testModalRequestStartsWhenIdle() {
+        final TestStarter modal = new TestStarter(getProject(), "modal", false, ProgressStartType.Modal);
+
+        scheduler.schedule(modal, false);
+
+        assertEquals(Collections.singletonList(modal), launched);
+    }
+
+    public void testModalRequestIsNeverDeferred() {
+        final TestStarter background = background("background");
+        final TestStarter modal = new TestStarter(getProject(), "modal", false, ProgressStartType.Modal);
+
+        scheduler.schedule(background, true);
+        scheduler.schedule(modal, false);
+
+        assertEquals(Arrays.asList(background, modal), launched);
+        assertEquals(Collections.singletonList(background), new ArrayList<>(modal.getPredecessors()));
+        assertFalse(scheduler.isBackgroundRunning());
+    }
+
+    public void testModalRequestWaitsForRunningManualAnalysis() {
+        final TestStarter manual = manual("manual");
+        final TestStarter modal = new TestStarter(getProject(), "modal", false, ProgressStartType.Modal);
+
+        scheduler.schedule(manual, false);
+        scheduler.schedule(modal, false);
+
+        assertEquals(Arrays.asList(manual, modal), launched);
+        assertEquals(Collections.singletonList(manual), new ArrayList<>(modal.getPredecessors()));
+    }
+
+    public void testSupersededBackgroundRequestRunsAfterModalAnalysis() {
+        final TestStarter background = background("background");
+        final TestStarter modal = new TestStarter(getProject(), "modal", false, ProgressStartType.Modal);
+
+        scheduler.schedule(background, true);
+        scheduler.schedule(modal, false);
+
+        scheduler.finished(background);
+        assertEquals(2, launched.size());
+
+        scheduler.finished(modal);
+        assertEquals(3, launched.size());
+        configure(launched.get(2));
+        assertEquals(Collections.singletonList(true), background.configured);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestStarter.order.clear();
+        super.tearDown();
+    }
+
+    private boolean configure(@NotNull final FindBugsStarter starter) {
+        return starter.configure(new EmptyProgressIndicator(), new FindBugsProjects(getProject()), false);
+    }
+
+    @NotNull
+    private TestStarter background(@NotNull final String title) {
+        return new TestStarter(getProject(), title, true, ProgressStartType.RunInBackground);
+    }
+
+    @NotNull
+    private TestStarter manual(@NotNull final String title) {
+        return new TestStarter(getProject(), title, false, ProgressStartType.RunInBackground);
+    }
+
+    private static final class TestStarter extends FindBugsStarter {
+
+        private static final List<String> order = new ArrayList<>();
+
+        private final String title;
+        private final boolean background;
+        private final List<Boolean> configured = new ArrayList<>();
+
+        private TestStarter(
+                @NotNull final Project project,
+                @NotNull final String title,
+                final boolean background,
+                @NotNull final ProgressStartType progressStartType
+        ) {
+            super(project, title, progressStartType);
+            this.title = title;
+            this.background = background;
+        }
+
+        @Override
+        protected boolean isBackground() {
+            return background;
+        }
+
+        @Override
+        protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected boolean configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProjects projects, final boolean justCompiled) {
+            order.add(title);
+            configured.add(justCompiled);
+            return true;
+        }
+    }
+}
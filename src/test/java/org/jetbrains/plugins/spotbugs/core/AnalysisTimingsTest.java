@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jetbrains.plugins.spotbugs.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AnalysisTimingsTest {
+
+    @Test
+    public void testProfilerCallsAreCounted() {
+        final AnalysisProfiler profiler = new AnalysisProfiler();
+        for (int i = 0; i < 3; i++) {
+            profiler.start(String.class);
+            profiler.end(String.class);
+        }
+        profiler.start(Integer.class);
+        profiler.end(Integer.class);
+
+        final AnalysisTimings timings = new AnalysisTimings();
+        timings.addProfiler(profiler);
+
+        final List<AnalysisTimings.Entry> detectors = timings.getDetectors();
+        assertEquals(2, detectors.size());
+        assertEquals(3, find(detectors, "String").getCalls());
+        assertEquals(1, find(detectors, "Integer").getCalls());
+    }
+
+    @Test
+    public void testShardsAreSummedUp() {
+        final AnalysisTimings timings = new AnalysisTimings();
+        timings.addDetector("FindNullDeref", 100, 10);
+        timings.addDetector("UnreadFields", 500, 3);
+        timings.addDetector("FindNullDeref", 50, 5);
+
+        final List<AnalysisTimings.Entry> detectors = timings.getDetectors();
+        assertEquals(2, detectors.size());
+        assertEquals("UnreadFields", detectors.get(0).getName());
+        assertEquals(150, detectors.get(1).getMillis());
+        assertEquals(15, detectors.get(1).getCalls());
+    }
+
+    private static AnalysisTimings.Entry find(final List<AnalysisTimings.Entry> entries, final String name) {
+        for (final AnalysisTimings.Entry entry : entries) {
+            if (entry.getName().equals(name)) {
+                return entry;
+            }
+        }
+        throw new AssertionError("No entry " + name);
+    }
+}
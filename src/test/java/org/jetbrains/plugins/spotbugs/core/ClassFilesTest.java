@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jetbrains.plugins.spotbugs.core;
+
+import org.jetbrains.plugins.spotbugs.common.util.HashUtil;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClassFilesTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File classes;
+
+    @Before
+    public void setUp() throws IOException {
+        classes = folder.newFolder("classes");
+        TestClasses.compile(classes, Arrays.asList(
+                "package lib; public class Base {}",
+                "package lib; public interface Api {}",
+                "package lib; public class Field {}",
+                "package lib; public class Param<T> {}",
+                "package lib; public class Element {}",
+                "package app; public class A extends lib.Base implements lib.Api {"
+                        + " lib.Field field;"
+                        + " lib.Field[][] fields;"
+                        + " void m(lib.Param<lib.Element> p) {}"
+                        + " }",
+                "package app; public class Outer { Runnable r = new Runnable() { public void run() {} }; }"
+        ));
+    }
+
+    @Test
+    public void testNameReferencesAndHash() throws IOException {
+        final File file = new File(classes, "app/A.class");
+        final ClassFiles.ClassFile classFile = new ClassFiles().get(file.getPath());
+
+        assertEquals("app.A", classFile.name);
+        assertTrue(classFile.references.containsAll(Arrays.asList("lib.Base", "lib.Api", "lib.Field", "lib.Param", "lib.Element")));
+        assertFalse(classFile.references.contains("app.A"));
+        assertEquals(HashUtil.sha256(Files.readAllBytes(file.toPath())), classFile.hash);
+    }
+
+    @Test
+    public void testInterface() throws IOException {
+        final ClassFiles classFiles = new ClassFiles();
+        assertTrue(classFiles.get(new File(classes, "lib/Api.class").getPath()).isInterface);
+        assertFalse(classFiles.get(new File(classes, "app/A.class").getPath()).isInterface);
+    }
+
+    @Test
+    public void testParsedOnce() throws IOException {
+        final ClassFiles classFiles = new ClassFiles();
+        final String path = new File(classes, "lib/Base.class").getPath();
+        assertSame(classFiles.get(path), classFiles.get(path));
+
+        classFiles.clear();
+        assertEquals("lib.Base", classFiles.get(path).name);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoClassFile() throws IOException {
+        final File file = folder.newFile("Broken.class");
+        Files.write(file.toPath(), "no class".getBytes(StandardCharsets.US_ASCII));
+        new ClassFiles().get(file.getPath());
+    }
+
+    @Test
+    public void testClassNameFallsBackToPath() throws IOException {
+        final File file = folder.newFile("Truncated.class");
+        Files.write(file.toPath(), new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0});
+        assertEquals(file.getPath(), new ClassFiles().getClassName(file.getPath()));
+    }
+
+    @Test
+    public void testSourceFileName() throws IOException {
+        assertEquals("Outer.java", ClassFiles.readSourceFileName(new File(classes, "app/Outer$1.class")));
+        assertEquals("A.java", ClassFiles.readSourceFileName(new File(classes, "app/A.class")));
+
+        final File file = folder.newFile("Truncated.class");
+        Files.write(file.toPath(), new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0});
+        assertNull(ClassFiles.readSourceFileName(file));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jetbrains.plugins.spotbugs.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyGraphTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File classes;
+    private File graphFile;
+
+    @Before
+    public void setUp() throws IOException {
+        classes = folder.newFolder("classes");
+        graphFile = new File(folder.getRoot(), "dependencies.txt");
+        TestClasses.compile(classes, Arrays.asList(
+                "package app; public class Service { public void run() {} }",
+                "package app; public class Caller { void call(Service s) { s.run(); } }",
+                "package app; public class Unrelated {}"
+        ));
+    }
+
+    @Test
+    public void testDependentsOfChangedClass() {
+        final DependencyGraph graph = DependencyGraph.load(graphFile);
+        final Set<String> classNames = graph.update("app", classFiles("Service", "Caller", "Unrelated"), new ClassFiles());
+        assertEquals(new HashSet<>(Arrays.asList("app.Service", "app.Caller", "app.Unrelated")), classNames);
+
+        final Map<String, DependencyGraph.Node> dependents = graph.getDependents(Collections.singleton("app.Service"));
+        assertEquals(Collections.singleton("app.Caller"), dependents.keySet());
+        assertEquals("app", dependents.get("app.Caller").module);
+    }
+
+    @Test
+    public void testGraphIsPersisted() {
+        final DependencyGraph graph = DependencyGraph.load(graphFile);
+        graph.update("app", classFiles("Service", "Caller"), new ClassFiles());
+        graph.save();
+
+        final DependencyGraph loaded = DependencyGraph.load(graphFile);
+        assertEquals(Collections.singleton("app.Caller"), loaded.getDependents(Collections.singleton("app.Service")).keySet());
+    }
+
+    @Test
+    public void testDeletedClasses() {
+        final DependencyGraph graph = DependencyGraph.load(graphFile);
+        graph.update("app", classFiles("Service", "Caller"), new ClassFiles());
+        graph.save();
+        assertTrue(new File(classes, "app/Service.class").delete());
+
+        final DependencyGraph loaded = DependencyGraph.load(graphFile);
+        assertEquals(Collections.singleton("app.Service"), loaded.removeDeletedClasses(Collections.singleton(classes.getPath())));
+        assertTrue(loaded.getDependents(Collections.singleton("app.Caller")).isEmpty());
+        loaded.save();
+        assertTrue(DependencyGraph.load(graphFile).removeDeletedClasses(Collections.singleton(classes.getPath())).isEmpty());
+    }
+
+    @Test
+    public void testDeletedClassesOutsideOutputDirsAreKept() throws IOException {
+        final DependencyGraph graph = DependencyGraph.load(graphFile);
+        graph.update("app", classFiles("Service", "Caller"), new ClassFiles());
+        assertTrue(new File(classes, "app/Service.class").delete());
+
+        assertTrue(graph.removeDeletedClasses(Collections.singleton(folder.newFolder("other").getPath())).isEmpty());
+        assertEquals(Collections.singleton("app.Caller"), graph.getDependents(Collections.singleton("app.Service")).keySet());
+    }
+
+    @Test
+    public void testRemovedReference() throws IOException {
+        final DependencyGraph graph = DependencyGraph.load(graphFile);
+        graph.update("app", classFiles("Service", "Caller"), new ClassFiles());
+        TestClasses.compile(classes, Collections.singletonList("package app; public class Caller {}"));
+
+        graph.update("app", classFiles("Caller"), new ClassFiles());
+
+        assertTrue(graph.getDependents(Collections.singleton("app.Service")).isEmpty());
+    }
+
+    private Set<String> classFiles(final String... simpleNames) {
+        final Set<String> ret = new HashSet<>();
+        for (final String simpleName : simpleNames) {
+            ret.add(new File(classes, "app/" + simpleName + ".class").getPath());
+        }
+        return ret;
+    }
+}
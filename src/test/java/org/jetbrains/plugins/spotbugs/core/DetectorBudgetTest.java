@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.Detector;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DetectorBudgetTest {
+
+    @Test
+    public void testDetectorOverPerClassBudgetIsSkipped() throws InterruptedException {
+        final DetectorBudget budget = new DetectorBudget(1, 0);
+        visit(budget, SlowDetector.class, 20);
+
+        assertSkipped(budget, SlowDetector.class);
+        assertEquals(Collections.singleton("SlowDetector"), budget.getSkipped());
+    }
+
+    @Test
+    public void testDetectorOverTotalBudgetIsSkipped() throws InterruptedException {
+        final DetectorBudget budget = new DetectorBudget(0, 200);
+        visit(budget, SlowDetector.class, 10);
+        visit(budget, SlowDetector.class, 10);
+        assertTrue(budget.getSkipped().isEmpty());
+
+        visit(budget, SlowDetector.class, 200);
+        assertSkipped(budget, SlowDetector.class);
+    }
+
+    @Test
+    public void testOtherDetectorsAreNotSkipped() throws InterruptedException {
+        final DetectorBudget budget = new DetectorBudget(50, 0);
+        visit(budget, SlowDetector.class, 100);
+        assertSkipped(budget, SlowDetector.class);
+
+        visit(budget, OtherDetector.class, 0);
+        visit(budget, OtherDetector.class, 0);
+        assertEquals(Collections.singleton("SlowDetector"), budget.getSkipped());
+    }
+
+    @Test
+    public void testEnginesAreNotSkipped() throws InterruptedException {
+        final DetectorBudget budget = new DetectorBudget(1, 1);
+        visit(budget, String.class, 20);
+        visit(budget, String.class, 0);
+
+        assertTrue(budget.getSkipped().isEmpty());
+    }
+
+    @Test
+    public void testEngineTimeCountsForTheDetector() throws InterruptedException {
+        final DetectorBudget budget = new DetectorBudget(1, 0);
+        budget.start(SlowDetector.class);
+        visit(budget, String.class, 20);
+        budget.end(SlowDetector.class);
+
+        assertSkipped(budget, SlowDetector.class);
+    }
+
+    @Test
+    public void testIsSkipped() {
+        assertFalse(DetectorBudget.isSkipped(null));
+        assertFalse(DetectorBudget.isSkipped(new RuntimeException()));
+    }
+
+    private static void visit(final DetectorBudget budget, final Class<?> c, final long millis) throws InterruptedException {
+        budget.start(c);
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+        budget.end(c);
+    }
+
+    private static void assertSkipped(final DetectorBudget budget, final Class<?> detector) {
+        try {
+            budget.start(detector);
+            fail("Detector was not skipped");
+        } catch (final RuntimeException e) {
+            assertTrue(DetectorBudget.isSkipped(e));
+        }
+        // FindBugs2 still ends the skipped detector
+        budget.end(detector);
+    }
+
+    private abstract static class SlowDetector implements Detector {
+    }
+
+    private abstract static class OtherDetector implements Detector {
+    }
+}
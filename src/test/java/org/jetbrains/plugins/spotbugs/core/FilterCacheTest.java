@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.filter.Filter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FilterCacheTest {
+
+    private static final String FILTER = "<FindBugsFilter><Match><Bug pattern=\"%s\"/></Match></FindBugsFilter>";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testUnchangedFilterIsReused() throws IOException {
+        final File file = writeFilter(folder.newFile("filter.xml"), "NP_ALWAYS_NULL");
+
+        final Filter filter = FilterCache.getFilter(file.getPath());
+
+        assertSame(filter, FilterCache.getFilter(file.getPath()));
+        assertTrue(filter.match(bug("NP_ALWAYS_NULL")));
+        assertFalse(filter.match(bug("DM_EXIT")));
+    }
+
+    @Test
+    public void testTouchedFilterWithSameContentIsReused() throws IOException {
+        final File file = writeFilter(folder.newFile("filter.xml"), "NP_ALWAYS_NULL");
+        final Filter filter = FilterCache.getFilter(file.getPath());
+
+        assertTrue(file.setLastModified(file.lastModified() - 10_000));
+
+        assertSame(filter, FilterCache.getFilter(file.getPath()));
+    }
+
+    @Test
+    public void testChangedFilterIsParsedAgain() throws IOException {
+        final File file = writeFilter(folder.newFile("filter.xml"), "NP_ALWAYS_NULL");
+        final Filter filter = FilterCache.getFilter(file.getPath());
+
+        writeFilter(file, "DM_EXIT");
+        assertTrue(file.setLastModified(file.lastModified() - 10_000));
+
+        final Filter changed = FilterCache.getFilter(file.getPath());
+        assertNotSame(filter, changed);
+        assertFalse(changed.match(bug("NP_ALWAYS_NULL")));
+        assertTrue(changed.match(bug("DM_EXIT")));
+    }
+
+    private static File writeFilter(final File file, final String bugPattern) throws IOException {
+        Files.write(file.toPath(), String.format(FILTER, bugPattern).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static BugInstance bug(final String type) {
+        return new BugInstance(type, Priorities.NORMAL_PRIORITY).addClass("a.A");
+    }
+}
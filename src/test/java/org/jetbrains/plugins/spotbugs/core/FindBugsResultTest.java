@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FindBugsResultTest {
+
+    private final Project project = new Project();
+
+    @Test
+    public void testReanalyzedAndDeletedClassesAreReplaced() {
+        final FindBugsResult current = result(
+                bug("OLD", "app.Changed"),
+                bug("OLD", "app.Unchanged"),
+                bug("OLD", "app.Deleted"));
+        final FindBugsResult incremental = result(bug("NEW", "app.Changed"));
+        incremental.setIncremental(new HashSet<>(Arrays.asList("app.Changed", "app.Deleted")));
+
+        final FindBugsResult merged = current.merge(incremental);
+
+        assertEquals(new TreeSet<>(Arrays.asList("NEW app.Changed", "OLD app.Unchanged")), bugs(merged));
+        assertFalse(merged.isIncremental());
+        assertFalse(merged.isPartial());
+    }
+
+    @Test
+    public void testUnanalyzedClassesOfPartialResultAreRetained() {
+        final FindBugsResult current = result(bug("OLD", "app.Changed"), bug("OLD", "app.Dependent"));
+        final FindBugsResult incremental = result(bug("NEW", "app.Changed"));
+        incremental.setIncremental(new HashSet<>(Arrays.asList("app.Changed", "app.Dependent")));
+        incremental.markPartial(Collections.singleton("app.Dependent"));
+
+        final FindBugsResult merged = current.merge(incremental);
+
+        assertEquals(new TreeSet<>(Arrays.asList("NEW app.Changed", "OLD app.Dependent")), bugs(merged));
+        assertTrue(merged.isPartial());
+        assertEquals(Collections.singleton("app.Dependent"), merged.getUnanalyzedClasses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeRequiresIncrementalResult() {
+        result().merge(result());
+    }
+
+    private FindBugsResult result(final BugInstance... bugs) {
+        final SortedBugCollection bugCollection = new SortedBugCollection(project);
+        for (final BugInstance bug : bugs) {
+            bugCollection.add(bug);
+        }
+        final FindBugsResult ret = new FindBugsResult();
+        ret.put(project, bugCollection);
+        return ret;
+    }
+
+    private static BugInstance bug(final String type, final String className) {
+        return new BugInstance(type, Priorities.NORMAL_PRIORITY).addClass(className);
+    }
+
+    /**
+     * @return "type class" of every bug
+     */
+    private static Set<String> bugs(final FindBugsResult result) {
+        final Set<String> ret = new TreeSet<>();
+        for (final SortedBugCollection bugCollection : result.getResults().values()) {
+            for (final BugInstance bug : bugCollection.getCollection()) {
+                ret.add(bug.getType() + " " + bug.getPrimaryClass().getClassName());
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.Project;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class LibraryIndexTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File index;
+    private File libJar;
+    private File otherJar;
+
+    @Before
+    public void setUp() throws IOException {
+        index = folder.newFolder("index");
+        final File lib = folder.newFolder("lib");
+        TestClasses.compile(lib, Arrays.asList(
+                "package lib; public class L {}",
+                "package lib; public class Param {}",
+                "package lib; public @interface Marker {}"
+        ));
+        libJar = TestClasses.jar(lib, new File(folder.getRoot(), "lib.jar"));
+        final File other = folder.newFolder("other");
+        TestClasses.compile(other, Collections.singletonList("package other; public class U {}"));
+        otherJar = TestClasses.jar(other, new File(folder.getRoot(), "other.jar"));
+    }
+
+    @Test
+    public void testUnreferencedJarIsRemoved() throws IOException {
+        final File analyzed = folder.newFolder("analyzed");
+        TestClasses.compile(analyzed, Collections.singletonList("package app; public class A extends lib.L {}"), libJar);
+
+        final Project project = createProject(new File(analyzed, "app/A.class"), libJar.getPath(), otherJar.getPath());
+        LibraryIndex.pruneAuxClasspath(project, new ClassFiles(), index);
+
+        assertEquals(Collections.singletonList(libJar.getPath()), project.getAuxClasspathEntryList());
+    }
+
+    @Test
+    public void testDescriptorReferences() throws IOException {
+        final File analyzed = folder.newFolder("analyzed");
+        TestClasses.compile(analyzed, Collections.singletonList(
+                "package app; public class A { java.util.List<lib.Param[]> m(int i, lib.Param[][] p) { return null; } }"), libJar);
+
+        final Project project = createProject(new File(analyzed, "app/A.class"), otherJar.getPath(), libJar.getPath());
+        LibraryIndex.pruneAuxClasspath(project, new ClassFiles(), index);
+
+        assertEquals(Collections.singletonList(libJar.getPath()), project.getAuxClasspathEntryList());
+    }
+
+    /**
+     * The super class of the analyzed class is in an aux classpath directory (like the compiler output
+     * of the module if only one file is analyzed), its super class in a jar.
+     */
+    @Test
+    public void testSuperClassInAuxDirectory() throws IOException {
+        final File out = folder.newFolder("out");
+        TestClasses.compile(out, Collections.singletonList("package app; @lib.Marker public class B extends lib.L {}"), libJar);
+        final File analyzed = folder.newFolder("analyzed");
+        TestClasses.compile(analyzed, Collections.singletonList("package app; public class A extends B {}"), out, libJar);
+
+        final Project project = createProject(new File(analyzed, "app/A.class"), out.getPath(), libJar.getPath(), otherJar.getPath());
+        LibraryIndex.pruneAuxClasspath(project, new ClassFiles(), index);
+
+        assertEquals(Arrays.asList(out.getPath(), libJar.getPath()), project.getAuxClasspathEntryList());
+    }
+
+    /**
+     * The only link to a jar is an annotation of a method of a library class.
+     */
+    @Test
+    public void testMemberAnnotationOfLibraryClass() throws IOException {
+        final File annotations = folder.newFolder("annotations");
+        TestClasses.compile(annotations, Collections.singletonList("package ann; public @interface Nullable {}"));
+        final File annotationsJar = TestClasses.jar(annotations, new File(folder.getRoot(), "annotations.jar"));
+        final File api = folder.newFolder("api");
+        TestClasses.compile(api, Collections.singletonList(
+                "package api; public class Service { @ann.Nullable public Object find() { return null; } }"), annotationsJar);
+        final File apiJar = TestClasses.jar(api, new File(folder.getRoot(), "api.jar"));
+        final File analyzed = folder.newFolder("analyzed");
+        TestClasses.compile(analyzed, Collections.singletonList(
+                "package app; public class A { Object m(api.Service s) { return s.find(); } }"), apiJar, annotationsJar);
+
+        final Project project = createProject(new File(analyzed, "app/A.class"), apiJar.getPath(), annotationsJar.getPath(), otherJar.getPath());
+        LibraryIndex.pruneAuxClasspath(project, new ClassFiles(), index);
+
+        assertEquals(Arrays.asList(apiJar.getPath(), annotationsJar.getPath()), project.getAuxClasspathEntryList());
+    }
+
+    @Test
+    public void testThrownExceptionOfLibraryClass() throws IOException {
+        final File exceptions = folder.newFolder("exceptions");
+        TestClasses.compile(exceptions, Collections.singletonList("package ex; public class Failure extends Exception {}"));
+        final File exceptionsJar = TestClasses.jar(exceptions, new File(folder.getRoot(), "exceptions.jar"));
+        final File api = folder.newFolder("api");
+        TestClasses.compile(api, Collections.singletonList(
+                "package api; public class Service { public void call() throws ex.Failure {} }"), exceptionsJar);
+        final File apiJar = TestClasses.jar(api, new File(folder.getRoot(), "api.jar"));
+        final File analyzed = folder.newFolder("analyzed");
+        TestClasses.compile(analyzed, Collections.singletonList(
+                "package app; public class A { void m(api.Service s) throws Exception { s.call(); } }"), apiJar, exceptionsJar);
+
+        final Project project = createProject(new File(analyzed, "app/A.class"), otherJar.getPath(), exceptionsJar.getPath(), apiJar.getPath());
+        LibraryIndex.pruneAuxClasspath(project, new ClassFiles(), index);
+
+        assertEquals(Arrays.asList(exceptionsJar.getPath(), apiJar.getPath()), project.getAuxClasspathEntryList());
+    }
+
+    @Test
+    public void testIndexIsReused() throws IOException {
+        final File analyzed = folder.newFolder("analyzed");
+        TestClasses.compile(analyzed, Collections.singletonList("package app; public class A extends lib.L {}"), libJar);
+
+        final Project first = createProject(new File(analyzed, "app/A.class"), libJar.getPath(), otherJar.getPath());
+        LibraryIndex.pruneAuxClasspath(first, new ClassFiles(), index);
+        final Project second = createProject(new File(analyzed, "app/A.class"), libJar.getPath(), otherJar.getPath());
+        LibraryIndex.pruneAuxClasspath(second, new ClassFiles(), index);
+
+        assertEquals(Collections.singletonList(libJar.getPath()), second.getAuxClasspathEntryList());
+        assertEquals(2, index.list((dir, name) -> name.endsWith(".idx")).length);
+    }
+
+    @Test
+    public void testNothingRemovedForArchives() {
+        final Project project = createProject(libJar, otherJar.getPath());
+        LibraryIndex.pruneAuxClasspath(project, new ClassFiles(), index);
+
+        assertEquals(Collections.singletonList(otherJar.getPath()), project.getAuxClasspathEntryList());
+    }
+
+    private static Project createProject(final File file, final String... auxClasspath) {
+        final Project ret = new Project();
+        ret.addFile(file.getPath());
+        for (final String entry : auxClasspath) {
+            ret.addAuxClasspathEntry(entry);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jetbrains.plugins.spotbugs.core;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+public class ResultJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private ResultJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        journal = ResultJournal.create(folder.newFolder("journal"), "app");
+        assertNotNull(journal);
+        journal.append(Collections.singletonList(bug("app.First")), 1);
+        journal.append(Collections.singletonList(bug("app.Second")), 2);
+        journal.close();
+    }
+
+    @Test
+    public void testAllRecordsAreRead() {
+        final Map<String, SortedBugCollection> collections = read();
+        assertEquals(setOf("app.First", "app.Second"), classNames(collections.get("")));
+        assertEquals(2, collections.get("app").getProjectStats().getNumClasses());
+    }
+
+    @Test
+    public void testTruncatedRecordIsIgnored() throws IOException {
+        final File file = journal.getFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 10); // IDE died while the second record was written
+        }
+
+        final Map<String, SortedBugCollection> collections = read();
+        assertEquals(setOf("app.First"), classNames(collections.get("")));
+        assertEquals(1, collections.get("app").getProjectStats().getNumClasses());
+    }
+
+    @Test
+    public void testDeleteRemovesFile() {
+        journal.delete();
+        assertFalse(journal.getFile().exists());
+    }
+
+    private Map<String, SortedBugCollection> read() {
+        final Map<String, SortedBugCollection> ret = new LinkedHashMap<>();
+        ResultJournal.read(journal.getFile(), moduleName -> ret.computeIfAbsent(moduleName, k -> new SortedBugCollection()));
+        return ret;
+    }
+
+    private static Bug bug(final String className) {
+        return new Bug(null, new SortedBugCollection(), new BugInstance("NP_ALWAYS_NULL", Priorities.HIGH_PRIORITY).addClass(className));
+    }
+
+    private static Set<String> classNames(final SortedBugCollection bugs) {
+        final Set<String> ret = new TreeSet<>();
+        for (final BugInstance bug : bugs.getCollection()) {
+            ret.add(bug.getPrimaryClass().getClassName());
+        }
+        return ret;
+    }
+
+    private static Set<String> setOf(final String... values) {
+        final Set<String> ret = new TreeSet<>();
+        Collections.addAll(ret, values);
+        return ret;
+    }
+}
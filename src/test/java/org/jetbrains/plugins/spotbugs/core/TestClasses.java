@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jetbrains.plugins.spotbugs.core;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Compiles test classes from in-memory sources.
+ */
+final class TestClasses {
+
+    private TestClasses() {
+    }
+
+    /**
+     * @param sources   Java sources, the class name is taken from the first "class" declaration
+     * @param classpath directories and jars needed to compile the sources
+     */
+    static void compile(final File out, final List<String> sources, final File... classpath) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager manager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            manager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(out));
+            manager.setLocation(StandardLocation.CLASS_PATH, Arrays.asList(classpath));
+            final List<JavaFileObject> units = new ArrayList<>();
+            for (final String source : sources) {
+                units.add(new Source(source));
+            }
+            if (!compiler.getTask(null, manager, diagnostics, null, null, units).call()) {
+                fail(diagnostics.getDiagnostics().toString());
+            }
+        }
+    }
+
+    static File jar(final File dir, final File jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()));
+             Stream<Path> files = Files.walk(dir.toPath())) {
+            for (final Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new JarEntry(dir.toPath().relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+
+        private final String source;
+
+        private Source(final String source) {
+            super(URI.create("string:///" + getPath(source)), Kind.SOURCE);
+            this.source = source;
+        }
+
+        private static String getPath(final String source) {
+            final String[] words = source.split("[\\s{;<]+");
+            String packageName = "";
+            for (int i = 0; i < words.length - 1; i++) {
+                if ("package".equals(words[i])) {
+                    packageName = words[i + 1].replace('.', '/') + "/";
+                } else if ("class".equals(words[i]) || "interface".equals(words[i]) || "@interface".equals(words[i])) {
+                    return packageName + words[i + 1] + Kind.SOURCE.extension;
+                }
+            }
+            throw new IllegalArgumentException("No class in " + source);
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.gui.tree.model;
+
+import com.intellij.testFramework.fixtures.JavaCodeInsightFixtureTestCase;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.spotbugs.core.Bug;
+import org.jetbrains.plugins.spotbugs.gui.tree.GroupBy;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GroupTreeModelTest extends JavaCodeInsightFixtureTestCase {
+
+    private static final GroupBy[] GROUP_BY = {GroupBy.Package, GroupBy.Class, GroupBy.Priority};
+
+    private final SortedBugCollection bugCollection = new SortedBugCollection();
+    private final List<TreeModelEvent> inserted = new ArrayList<>();
+    private final List<TreeModelEvent> changed = new ArrayList<>();
+    private RootNode root;
+    private GroupTreeModel model;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        root = new RootNode(getProject().getName());
+        model = new GroupTreeModel(root, GROUP_BY, getProject());
+        model.addTreeModelListener(new TreeModelListener() {
+            @Override
+            public void treeNodesChanged(final TreeModelEvent e) {
+                changed.add(e);
+            }
+
+            @Override
+            public void treeNodesInserted(final TreeModelEvent e) {
+                inserted.add(e);
+            }
+
+            @Override
+            public void treeNodesRemoved(final TreeModelEvent e) {
+                fail("Unexpected remove event");
+            }
+
+            @Override
+            public void treeStructureChanged(final TreeModelEvent e) {
+                fail("Unexpected structure changed event");
+            }
+        });
+    }
+
+    public void testEveryGroupByIsOneLevel() {
+        model.addNode(bug("b.C", Priorities.HIGH_PRIORITY));
+        model.addNode(bug("a.A", Priorities.HIGH_PRIORITY));
+        model.addNode(bug("a.A", Priorities.NORMAL_PRIORITY));
+        model.addNode(bug("a.B", Priorities.HIGH_PRIORITY));
+
+        assertEquals(4, model.getBugCount());
+        assertEquals(2, root.getChildCount());
+        final BugInstanceGroupNode packageA = group(root, 0);
+        final BugInstanceGroupNode packageB = group(root, 1);
+        assertEquals("a", packageA.getGroupName());
+        assertEquals("b", packageB.getGroupName());
+        assertEquals(3, packageA.getMemberCount());
+        assertEquals(1, packageB.getMemberCount());
+
+        assertEquals(2, packageA.getChildCount());
+        final BugInstanceGroupNode classA = group(packageA, 0);
+        assertEquals("a.A", classA.getGroupName());
+        assertEquals("a.B", group(packageA, 1).getGroupName());
+        assertEquals(2, classA.getMemberCount());
+
+        assertEquals(2, classA.getChildCount());
+        for (int i = 0; i < classA.getChildCount(); i++) {
+            final BugInstanceGroupNode priority = group(classA, i);
+            assertEquals(1, priority.getChildCount());
+            assertTrue(priority.getChildAt(0) instanceof BugInstanceNode);
+        }
+    }
+
+    public void testBulkInsertFiresOneEventPerParent() {
+        model.beginBulkInsert();
+        model.addNode(bug("b.C", Priorities.HIGH_PRIORITY));
+        model.addNode(bug("a.A", Priorities.HIGH_PRIORITY));
+        model.addNode(bug("a.B", Priorities.HIGH_PRIORITY));
+        assertTrue(inserted.isEmpty());
+        model.endBulkInsert();
+
+        assertEquals(1, inserted.size());
+        final TreeModelEvent event = inserted.get(0);
+        assertEquals(new TreePath(root), event.getTreePath());
+        assertTrue(Arrays.equals(new int[]{0, 1}, event.getChildIndices()));
+        assertSame(group(root, 0), event.getChildren()[0]);
+        assertSame(group(root, 1), event.getChildren()[1]);
+        assertTrue(changed.isEmpty());
+    }
+
+    public void testBulkInsertIntoExistingGroups() {
+        model.addNode(bug("a.A", Priorities.HIGH_PRIORITY));
+        final BugInstanceGroupNode packageA = group(root, 0);
+        final BugInstanceGroupNode classA = group(packageA, 0);
+        final BugInstanceGroupNode highA = group(classA, 0);
+        inserted.clear();
+        changed.clear();
+
+        final Bug normal = bug("a.A", Priorities.NORMAL_PRIORITY);
+        final Bug inner = bug("a.A$Inner", Priorities.HIGH_PRIORITY);
+        model.beginBulkInsert();
+        model.addNode(bug("c.D", Priorities.HIGH_PRIORITY));
+        model.addNode(bug("a.B", Priorities.HIGH_PRIORITY));
+        model.addNode(normal);
+        model.addNode(inner);
+        model.endBulkInsert();
+
+        assertEquals(4, inserted.size());
+        assertInserted(root, 1);
+        assertInserted(packageA, 1);
+        assertInserted(classA, classA.getIndex(model.findNodeByBugInstance(normal).getParent()));
+        assertInserted(highA, highA.getIndex(model.findNodeByBugInstance(inner)));
+
+        assertEquals(3, changed.size());
+        assertEquals(4, packageA.getMemberCount());
+        assertEquals(3, classA.getMemberCount());
+        assertEquals(2, highA.getMemberCount());
+    }
+
+    public void testEventIndicesAreTheFinalSortedIndices() {
+        model.addNode(bug("m.M", Priorities.HIGH_PRIORITY));
+        inserted.clear();
+
+        model.beginBulkInsert();
+        model.addNode(bug("z.Z", Priorities.HIGH_PRIORITY));
+        model.addNode(bug("a.A", Priorities.HIGH_PRIORITY));
+        model.endBulkInsert();
+
+        assertEquals(1, inserted.size());
+        assertInserted(root, 0, 2);
+        assertEquals("a", group(root, 0).getGroupName());
+        assertEquals("m", group(root, 1).getGroupName());
+        assertEquals("z", group(root, 2).getGroupName());
+    }
+
+    private void assertInserted(@NotNull final VisitableTreeNode parent, final int... childIndices) {
+        for (final TreeModelEvent event : inserted) {
+            if (event.getTreePath().getLastPathComponent() == parent) {
+                assertEquals(Arrays.toString(childIndices), Arrays.toString(event.getChildIndices()));
+                return;
+            }
+        }
+        fail("No insert event for " + parent);
+    }
+
+    @NotNull
+    private static BugInstanceGroupNode group(@NotNull final VisitableTreeNode parent, final int index) {
+        return (BugInstanceGroupNode) parent.getChildAt(index);
+    }
+
+    @NotNull
+    private Bug bug(@NotNull final String className, final int priority) {
+        return new Bug(null, bugCollection, new BugInstance("NP_ALWAYS_NULL", priority).addClass(className));
+    }
+}
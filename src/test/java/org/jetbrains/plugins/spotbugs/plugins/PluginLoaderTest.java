@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 SpotBugs plugin contributors
+ *
+ * This file is part of IntelliJ SpotBugs plugin.
+ *
+ * IntelliJ SpotBugs plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ SpotBugs plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ SpotBugs plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jetbrains.plugins.spotbugs.plugins;
+
+import org.jetbrains.plugins.spotbugs.core.PluginSettings;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PluginLoaderTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testOrderIsIgnored() {
+        final PluginSettings first = bundled("first", true);
+        final PluginSettings second = bundled("second", true);
+
+        assertEquals(
+                PluginLoader.fingerprint(new HashSet<>(Arrays.asList(first, second))),
+                PluginLoader.fingerprint(new HashSet<>(Arrays.asList(second, first))));
+    }
+
+    @Test
+    public void testDisabledPluginsAndDetectorsAreIgnored() {
+        final PluginSettings enabled = bundled("enabled", true);
+        final String fingerprint = PluginLoader.fingerprint(plugins(enabled));
+
+        final PluginSettings withDetector = bundled("enabled", true);
+        withDetector.detectors.put("FindNullDeref", false);
+
+        assertEquals(fingerprint, PluginLoader.fingerprint(plugins(withDetector, bundled("disabled", false))));
+        assertNotEquals(fingerprint, PluginLoader.fingerprint(plugins(enabled, bundled("other", true))));
+    }
+
+    @Test
+    public void testRebuiltUserPluginChangesFingerprint() throws IOException {
+        final File jar = folder.newFile("plugin.jar");
+        final PluginSettings plugin = user("user", jar);
+        final String fingerprint = PluginLoader.fingerprint(plugins(plugin));
+        assertEquals(fingerprint, PluginLoader.fingerprint(plugins(user("user", jar))));
+
+        assertTrue(jar.setLastModified(jar.lastModified() - 10_000));
+
+        assertNotEquals(fingerprint, PluginLoader.fingerprint(plugins(plugin)));
+    }
+
+    private static Set<PluginSettings> plugins(final PluginSettings... plugins) {
+        return new HashSet<>(Arrays.asList(plugins));
+    }
+
+    private static PluginSettings bundled(final String id, final boolean enabled) {
+        final PluginSettings ret = new PluginSettings();
+        ret.id = id;
+        ret.enabled = enabled;
+        ret.bundled = true;
+        return ret;
+    }
+
+    private static PluginSettings user(final String id, final File jar) throws MalformedURLException {
+        final PluginSettings ret = new PluginSettings();
+        ret.id = id;
+        ret.enabled = true;
+        ret.url = jar.toURI().toURL().toExternalForm();
+        return ret;
+    }
+}